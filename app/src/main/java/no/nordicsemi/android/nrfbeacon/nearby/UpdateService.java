@@ -78,19 +78,6 @@ public class UpdateService extends Service {
 
     public final static String EXTRA_DATA = "no.nordicsemi.android.nrfbeacon.nearby.EXTRA_DATA";
     public final static String EXTRA_FRAME_TYPE = "no.nordicsemi.android.nrfbeacon.nearby.EXTRA_FRAME_TYPE";
-    public final static String EXTRA_NAMESPACE_ID = "no.nordicsemi.android.nrfbeacon.nearby.EXTRA_NAMESPACE_ID";
-    public final static String EXTRA_INSTANCE_ID = "no.nordicsemi.android.nrfbeacon.nearby.EXTRA_INSTANCE_ID";
-    public final static String EXTRA_URL = "no.nordicsemi.android.nrfbeacon.nearby.EXTRA_URL";
-    public final static String EXTRA_CLOCK_VALUE = "no.nordicsemi.android.nrfbeacon.nearby.EXTRA_CLOCK_VALUE";
-    public final static String EXTRA_TIMER_EXPONENT = "no.nordicsemi.android.nrfbeacon.nearby.EXTRA_TIMER_EXPONENT";
-    public final static String EXTRA_EID = "no.nordicsemi.android.nrfbeacon.nearby.EXTRA_EID";
-    public final static String EXTRA_VOLTAGE = "no.nordicsemi.android.nrfbeacon.nearby.EXTRA_VOLTAGE";
-    public final static String EXTRA_BEACON_TEMPERATURE = "no.nordicsemi.android.nrfbeacon.nearby.EXTRA_BEACON_TEMPERATURE";
-    public final static String EXTRA_PDU_COUNT = "no.nordicsemi.android.nrfbeacon.nearby.EXTRA_PDU_COUNT";
-    public final static String EXTRA_TIME_SINCE_BOOT = "no.nordicsemi.android.nrfbeacon.nearby.EXTRA_TIME_SINCE_BOOT";
-    public final static String EXTRA_ETLM = "no.nordicsemi.android.nrfbeacon.nearby.EXTRA_ETLM";
-    public final static String EXTRA_SALT = "no.nordicsemi.android.nrfbeacon.nearby.EXTRA_SALT";
-    public final static String EXTRA_MESSAGE_INTEGRITY_CHECK = "no.nordicsemi.android.nrfbeacon.nearby.EXTRA_MESSAGE_INTEGRITY_CHECK";
 
     private static final int EMPTY_SLOT = -1;
     private static final int TYPE_UID = 0x00;
@@ -842,6 +829,7 @@ public class UpdateService extends Service {
             return;
         }
 
+        // Receivers decode the fields they show from EXTRA_DATA with EddystoneFrame.
         final int frameType = ParserUtils.getIntValue(readWriteAdvSlot, 0, BluetoothGattCharacteristic.FORMAT_UINT8);
 
         switch (frameType){
@@ -858,8 +846,6 @@ public class UpdateService extends Service {
                     return;
                 }
                 intent.putExtra(EXTRA_FRAME_TYPE, frameType);
-                intent.putExtra(EXTRA_NAMESPACE_ID, ParserUtils.bytesToHex(readWriteAdvSlot, 2, 10, true));
-                intent.putExtra(EXTRA_INSTANCE_ID, ParserUtils.bytesToHex(readWriteAdvSlot, 12, 6, true));
                 intent.putExtra(EXTRA_DATA, readWriteAdvSlot);
                 LocalBroadcastManager.getInstance(this).sendBroadcast(intent);
                 break;
@@ -878,7 +864,6 @@ public class UpdateService extends Service {
                 }
 
                 intent.putExtra(EXTRA_FRAME_TYPE, frameType);
-                intent.putExtra(EXTRA_URL, ParserUtils.decodeUri(readWriteAdvSlot, 2, readWriteAdvSlot.length-2));
                 intent.putExtra(EXTRA_DATA, readWriteAdvSlot);
                 LocalBroadcastManager.getInstance(this).sendBroadcast(intent);
                 break;
@@ -897,32 +882,6 @@ public class UpdateService extends Service {
                 }
 
                 intent.putExtra(EXTRA_FRAME_TYPE, frameType);
-                if(mActiveSlotsTypes.contains("EID")){
-                    intent.putExtra(EXTRA_ETLM, ParserUtils.bytesToHex(readWriteAdvSlot, 2, 12, true));
-                    intent.putExtra(EXTRA_SALT,  ParserUtils.bytesToHex(readWriteAdvSlot, 14, 2, true));
-                    intent.putExtra(EXTRA_MESSAGE_INTEGRITY_CHECK, ParserUtils.bytesToHex(readWriteAdvSlot, 16, 2, true));
-                    intent.putExtra(EXTRA_DATA, readWriteAdvSlot);
-                    LocalBroadcastManager.getInstance(this).sendBroadcast(intent);
-                    return;
-                }
-
-                final int voltage = ParserUtils.decodeUint16BigEndian(readWriteAdvSlot, 2);
-                if(voltage > 0){
-                    intent.putExtra(EXTRA_VOLTAGE, String.valueOf(voltage) + getString(R.string.voltage_unit));
-                } else {
-                    intent.putExtra(EXTRA_VOLTAGE, getString(R.string.batt_voltage_unsupported));
-                }
-
-                final float temp = ParserUtils.decode88FixedPointNotation(readWriteAdvSlot, 4);
-                if (temp > -128.0f) {
-                    intent.putExtra(EXTRA_BEACON_TEMPERATURE, String.valueOf(temp) + getString(R.string.temperature_unit));
-                }
-                else {
-                    intent.putExtra(EXTRA_BEACON_TEMPERATURE, getString(R.string.temperature_unsupported));
-                }
-
-                intent.putExtra(EXTRA_PDU_COUNT, String.valueOf(ParserUtils.decodeUint32BigEndian(readWriteAdvSlot, 6)));
-                intent.putExtra(EXTRA_TIME_SINCE_BOOT,  String.valueOf(ParserUtils.decodeUint32BigEndian(readWriteAdvSlot, 10) * 100));
                 intent.putExtra(EXTRA_DATA, readWriteAdvSlot);
                 LocalBroadcastManager.getInstance(this).sendBroadcast(intent);
                 break;
@@ -942,9 +901,6 @@ public class UpdateService extends Service {
                 add(RequestType.READ_CHARACTERISTIC, mPublicEcdhKeyCharacteristic);
                 add(RequestType.READ_CHARACTERISTIC, mEidIdentityKeyCharacteristic);
                 intent.putExtra(EXTRA_FRAME_TYPE, frameType);
-                intent.putExtra(EXTRA_TIMER_EXPONENT, String.valueOf(ParserUtils.getIntValue(readWriteAdvSlot, 1, BluetoothGattCharacteristic.FORMAT_UINT8)));
-                intent.putExtra(EXTRA_CLOCK_VALUE, String.valueOf(ParserUtils.getIntValue(readWriteAdvSlot, 2, ParserUtils.FORMAT_UINT32_BIG_INDIAN)));
-                intent.putExtra(EXTRA_EID, String.valueOf(ParserUtils.bytesToHex(readWriteAdvSlot, 6, 8, true)));
                 intent.putExtra(EXTRA_DATA, readWriteAdvSlot);
                 LocalBroadcastManager.getInstance(this).sendBroadcast(intent);
                 break;
@@ -29,51 +29,72 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import no.nordicsemi.android.nrfbeacon.nearby.R;
-import no.nordicsemi.android.support.v18.scanner.ScanResult;
 
 /**
- * DeviceListAdapter class is list adapter for showing scanned Devices name, address and RSSI image based on RSSI values.
+ * DeviceListAdapter class is list adapter for showing scanned Devices name, address, decoded Eddystone frames and RSSI image based on RSSI values.
+ * <p>
+ * The adapter shows the immutable snapshots published by the {@link ScanProcessor}; all scan processing happens there. Item
+ * ids are the device addresses, so they stay stable while the list changes. A snapshot with the same devices in the same
+ * order as the previous one does not call {@link #notifyDataSetChanged()}. Instead the rows currently bound to devices whose
+ * RSSI, name or frames changed are updated in place, which avoids rebinding and relaying out the whole list every second in
+ * busy environments.
+ * </p>
  */
 public class DeviceListAdapter extends BaseAdapter {
 	private static final int TYPE_TITLE = 0;
 	private static final int TYPE_ITEM = 1;
 	private static final int TYPE_EMPTY = 2;
 
-	private final List<ExtendedBluetoothDevice> mDevices = new ArrayList<>();
+	private static final long ID_TITLE = -1;
+	private static final long ID_EMPTY = -2;
+
+	/** The devices in display order. */
+	private List<ScannedDevice> mDevices = Collections.emptyList();
+	/** Holders of all device rows created so far: the visible rows and those in the ListView's recycler. */
+	private final List<ViewHolder> mHolders = new ArrayList<>();
+	private LayoutInflater mInflater;
 
 	/**
-	 * If such device exists on the bonded device list, this method does nothing. If not then the device is updated (rssi value) or added.
-	 * 
-	 * @param results scan results
+	 * Shows the given devices.
+	 *
+	 * @param devices the devices in display order, not modified afterwards
 	 */
-	public void update(final List<ScanResult> results) {
-		for (final ScanResult result : results) {
-			final ExtendedBluetoothDevice device = findDevice(result);
-			if (device == null) {
-				mDevices.add(new ExtendedBluetoothDevice(result));
-			} else {
-				device.name = result.getScanRecord() != null ? result.getScanRecord().getDeviceName() : null;
-				device.rssi = result.getRssi();
-			}
+	public void setDevices(final List<ScannedDevice> devices) {
+		final List<ScannedDevice> previous = mDevices;
+		mDevices = devices;
+		if (!sameDevices(previous, devices)) {
+			notifyDataSetChanged();
+			return;
+		}
+
+		for (final ViewHolder holder : mHolders) {
+			// Rows in the recycler may still show a device from an older list
+			if (holder.device == null || holder.index >= devices.size())
+				continue;
+			final ScannedDevice device = devices.get(holder.index);
+			if (device != holder.device && device.id == holder.device.id)
+				bind(holder, holder.index, device);
 		}
-		notifyDataSetChanged();
 	}
 
-	private ExtendedBluetoothDevice findDevice(final ScanResult result) {
-		for (final ExtendedBluetoothDevice device : mDevices)
-			if (device.matches(result))
-				return device;
-		return null;
+	/**
+	 * Returns true if both lists hold the same devices in the same order.
+	 */
+	private static boolean sameDevices(final List<ScannedDevice> a, final List<ScannedDevice> b) {
+		if (a.size() != b.size())
+			return false;
+		for (int i = 0; i < a.size(); i++)
+			if (a.get(i).id != b.get(i).id)
+				return false;
+		return true;
 	}
 
 	public void clearDevices() {
-		if (mDevices != null) {
-			mDevices.clear();
-			notifyDataSetChanged();
-		}
+		setDevices(Collections.<ScannedDevice>emptyList());
 	}
 
 	@Override
@@ -115,14 +136,28 @@ public class DeviceListAdapter extends BaseAdapter {
 		return TYPE_ITEM;
 	}
 
+	@Override
+	public boolean hasStableIds() {
+		return true;
+	}
+
 	@Override
 	public long getItemId(int position) {
-		return position;
+		switch (getItemViewType(position)) {
+			case TYPE_TITLE:
+				return ID_TITLE;
+			case TYPE_EMPTY:
+				return ID_EMPTY;
+			default:
+				return mDevices.get(position - 1).id;
+		}
 	}
 
 	@Override
 	public View getView(int position, View oldView, ViewGroup parent) {
-		final LayoutInflater inflater = LayoutInflater.from(parent.getContext());
+		if (mInflater == null)
+			mInflater = LayoutInflater.from(parent.getContext());
+		final LayoutInflater inflater = mInflater;
 		final int type = getItemViewType(position);
 
 		View view = oldView;
@@ -145,31 +180,58 @@ public class DeviceListAdapter extends BaseAdapter {
 				final ViewHolder holder = new ViewHolder();
 				holder.name = (TextView) view.findViewById(R.id.name);
 				holder.address = (TextView) view.findViewById(R.id.address);
+				holder.frames = (TextView) view.findViewById(R.id.frames);
 				holder.rssi = (ImageView) view.findViewById(R.id.rssi);
 				view.setTag(holder);
+				mHolders.add(holder);
 			}
 
-			final ExtendedBluetoothDevice device = (ExtendedBluetoothDevice) getItem(position);
 			final ViewHolder holder = (ViewHolder) view.getTag();
-			final String name = device.name;
-			holder.name.setText(name != null ? name : parent.getContext().getString(R.string.not_available));
+			bind(holder, position - 1, (ScannedDevice) getItem(position));
+			break;
+		}
+
+		return view;
+	}
+
+	/**
+	 * Binds the device to the row, only touching the views whose values differ from those of the device bound before.
+	 */
+	private void bind(final ViewHolder holder, final int index, final ScannedDevice device) {
+		final ScannedDevice previous = holder.device;
+		final boolean rebind = previous == null || previous.id != device.id;
+		holder.device = device;
+		holder.index = index;
+
+		if (rebind)
 			holder.address.setText(device.device.getAddress());
-			if (device.rssi != ScannerFragment.NO_RSSI) {
-				final int rssiPercent = (int) (100.0f * (127.0f + device.rssi) / (127.0f + 20.0f));
-				holder.rssi.setImageLevel(rssiPercent);
+		if (rebind || !equals(previous.name, device.name))
+			holder.name.setText(device.name != null ? device.name : holder.name.getContext().getString(R.string.not_available));
+		if (rebind || !equals(previous.frames, device.frames)) {
+			holder.frames.setText(device.frames);
+			holder.frames.setVisibility(device.frames != null ? View.VISIBLE : View.GONE);
+		}
+		if (rebind || previous.rssiLevel != device.rssiLevel) {
+			if (device.rssiLevel >= 0) {
+				holder.rssi.setImageLevel(device.rssiLevel);
 				holder.rssi.setVisibility(View.VISIBLE);
 			} else {
 				holder.rssi.setVisibility(View.GONE);
 			}
-			break;
 		}
+	}
 
-		return view;
+	private static boolean equals(final String a, final String b) {
+		return a == null ? b == null : a.equals(b);
 	}
 
 	private class ViewHolder {
 		private TextView name;
 		private TextView address;
+		private TextView frames;
 		private ImageView rssi;
+		/** The device the row shows and its position in the list of devices. */
+		private ScannedDevice device;
+		private int index;
 	}
 }
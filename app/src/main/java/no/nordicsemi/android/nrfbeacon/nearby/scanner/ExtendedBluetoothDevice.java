@@ -23,21 +23,52 @@ package no.nordicsemi.android.nrfbeacon.nearby.scanner;
 
 import android.bluetooth.BluetoothDevice;
 
-import no.nordicsemi.android.support.v18.scanner.ScanResult;
+import no.nordicsemi.android.libeddystonecore.TrackedDevice;
+
+/**
+ * The state of a scanned device. Owned by the processing thread of the {@link ScanProcessor}, which publishes it to the UI as
+ * {@link ScannedDevice}.
+ */
+public class ExtendedBluetoothDevice extends TrackedDevice {
+	/** Base of the ids of devices whose address could not be parsed, above the 48-bit address range. */
+	private static final long ID_UNPARSED_ADDRESS = 1L << 48;
 
-public class ExtendedBluetoothDevice {
 	public BluetoothDevice device;
-	public int rssi;
-	public String name;
+	/** Stable item id: the address, or a value above the address range derived from the slot. */
+	public final long id;
+	/** The last published copy, reused while nothing shown in the list changes. */
+	private ScannedDevice mScannedDevice;
+
+	/* package */ ExtendedBluetoothDevice(final BluetoothDevice device, final String name, final int rssi, final long timestampNanos,
+										  final long address, final int slot) {
+		super(address, slot);
+		this.id = address >= 0 ? address : ID_UNPARSED_ADDRESS + slot;
+		this.device = device;
+		this.name = name;
+		this.rssi = rssi;
+		this.filteredRssi = rssi;
+		this.lastSeen = timestampNanos / 1000000;
+	}
 
-	public ExtendedBluetoothDevice(final ScanResult scanResult) {
-		this.device = scanResult.getDevice();
-		this.name = scanResult.getScanRecord() != null ? scanResult.getScanRecord().getDeviceName() : null;
-		this.rssi = scanResult.getRssi();
+	/**
+	 * Returns an immutable copy of the values shown in the list. The previous copy is returned if none of them changed.
+	 */
+	/* package */ ScannedDevice toScannedDevice() {
+		final int level = getRssiLevel();
+		final ScannedDevice last = mScannedDevice;
+		// The name is parsed from every scan record, so it is a new String each time
+		if (last != null && last.rssiLevel == level && last.frames == frames && (last.name == null ? name == null : last.name.equals(name)))
+			return last;
+		return mScannedDevice = new ScannedDevice(id, device, name, level, frames);
 	}
 
-	public boolean matches(final ScanResult scanResult) {
-		return device.getAddress().equals(scanResult.getDevice().getAddress());
+	/**
+	 * Returns the image level of the filtered RSSI, in percent, or -1 if there is no RSSI.
+	 */
+	private int getRssiLevel() {
+		if (rssi == NO_RSSI)
+			return -1;
+		return (int) (100.0f * (127.0f + filteredRssi) / (127.0f + 20.0f));
 	}
 
 	@Override
@@ -0,0 +1,431 @@
+/*
+ * Copyright (c) 2015, Nordic Semiconductor
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE
+ * USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package no.nordicsemi.android.nrfbeacon.nearby.scanner;
+
+import android.bluetooth.BluetoothAdapter;
+import android.bluetooth.BluetoothDevice;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.ParcelUuid;
+import android.os.Process;
+import android.util.Log;
+import android.view.Choreographer;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import no.nordicsemi.android.libeddystonecore.AdvertisingData;
+import no.nordicsemi.android.libeddystonecore.DeviceTable;
+import no.nordicsemi.android.libeddystonecore.HexCodec;
+import no.nordicsemi.android.libeddystonecore.LongIntHashMap;
+import no.nordicsemi.android.libeddystonecore.RssiFilter;
+import no.nordicsemi.android.libeddystonecore.ScanLogReader;
+import no.nordicsemi.android.libeddystonecore.ScanLogReplayer;
+import no.nordicsemi.android.libeddystonecore.ScanLogWriter;
+import no.nordicsemi.android.support.v18.scanner.ScanRecord;
+import no.nordicsemi.android.support.v18.scanner.ScanResult;
+
+/**
+ * Merges scan results into the list of scanned devices on a dedicated {@link HandlerThread}, so that matching, filtering,
+ * decoding and sorting never run on the main thread.
+ * <p>
+ * After every change the processor publishes an immutable snapshot, a list of {@link ScannedDevice}s in display order. Only
+ * the latest snapshot is kept, and it is handed to the {@link Listener} on the main thread in a {@link Choreographer} frame
+ * callback, so the list is updated at most once per frame however many batches arrive.
+ * </p>
+ * <p>
+ * Devices are matched by their 48-bit address in O(1) and kept in a {@link DeviceTable}, which decodes their Eddystone frames,
+ * filters their RSSI and orders them by the estimated distance after every batch. In continuous scanning devices that have
+ * not been seen for a while are removed with {@link #removeExpired(long, long)}.
+ * </p>
+ * <p>
+ * All scan results can be recorded to a {@link ScanLogWriter scan log}, and a log can be replayed into the processor in place
+ * of a real scan, to reproduce what the scanner saw in the field.
+ * </p>
+ * The public methods may be called from any thread; the device state is only ever touched by the processing thread.
+ */
+/* package */ class ScanProcessor {
+	private static final String TAG = "ScanProcessor";
+
+	private static final ParcelUuid EDDYSTONE_SERVICE_UUID = ParcelUuid.fromString("0000FEAA-0000-1000-8000-00805F9B34FB");
+
+	/* package */ interface Listener {
+		/**
+		 * Called on the main thread with the latest list of devices, in display order.
+		 */
+		void onDevicesChanged(final List<ScannedDevice> devices);
+
+		/**
+		 * Called on the main thread when a replay started with {@link #replay(File, float, long)} has reached the end of the log
+		 * or failed.
+		 */
+		void onReplayFinished();
+	}
+
+	private final HandlerThread mThread;
+	private final Handler mHandler;
+	private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+	/** The snapshot waiting for the next frame, or null. */
+	private final AtomicReference<List<ScannedDevice>> mPending = new AtomicReference<>();
+	/** Devices added since the last call to {@link #takeNewDevices()}. */
+	private final AtomicInteger mNewDevices = new AtomicInteger();
+	/** Accessed on the main thread only. */
+	private Listener mListener;
+
+	// The following fields are confined to the processing thread
+
+	private final DeviceTable<ExtendedBluetoothDevice> mTable = new DeviceTable<>();
+	/** Slot of each device, keyed by its 48-bit address, so a scan result is matched in O(1). */
+	private final LongIntHashMap mIndex = new LongIntHashMap(64);
+	/** Devices removed by the last call to {@link #expire(long, long)}. */
+	private final List<ExtendedBluetoothDevice> mExpired = new ArrayList<>();
+	/** The last published snapshot. */
+	private ScannedDevice[] mSnapshot = new ScannedDevice[0];
+	private ScanLogWriter mLogWriter;
+
+	/* package */ ScanProcessor() {
+		mThread = new HandlerThread("ScanProcessor", Process.THREAD_PRIORITY_BACKGROUND);
+		mThread.start();
+		mHandler = new Handler(mThread.getLooper());
+	}
+
+	/**
+	 * Sets the listener notified on the main thread. Must be called on the main thread.
+	 */
+	public void setListener(final Listener listener) {
+		mListener = listener;
+	}
+
+	/**
+	 * Stops the processing thread. Pending results are dropped and no more snapshots are published.
+	 */
+	public void quit() {
+		stopRecording();
+		mThread.quitSafely();
+		mThread.interrupt(); // stops a replay
+		mListener = null;
+		mMainHandler.removeCallbacks(mScheduleFrame);
+		mMainHandler.removeCallbacks(mReplayFinished);
+		Choreographer.getInstance().removeFrameCallback(mFrameCallback);
+	}
+
+	/**
+	 * Queues a batch of scan results for processing.
+	 */
+	public void process(final List<ScanResult> results) {
+		final List<ScanResult> batch = new ArrayList<>(results);
+		mHandler.post(new Runnable() {
+			@Override
+			public void run() {
+				final boolean structureChanged = merge(batch);
+				publish(structureChanged);
+			}
+		});
+	}
+
+	/**
+	 * Returns the number of devices found since the last call and resets it.
+	 */
+	public int takeNewDevices() {
+		return mNewDevices.getAndSet(0);
+	}
+
+	/**
+	 * Selects the filter used to smooth the RSSI of the devices. The filter starts over from the next scan result of each device.
+	 *
+	 * @param mode {@link RssiFilter#MODE_EMA} or {@link RssiFilter#MODE_KALMAN}
+	 */
+	public void setRssiFilterMode(final int mode) {
+		mHandler.post(new Runnable() {
+			@Override
+			public void run() {
+				mTable.setRssiFilterMode(mode);
+			}
+		});
+	}
+
+	/**
+	 * Removes the devices whose last scan result is older than the timeout.
+	 *
+	 * @param now     the current time, in milliseconds of {@link android.os.SystemClock#elapsedRealtime()}
+	 * @param timeout the time after which a device is removed, in milliseconds
+	 */
+	public void removeExpired(final long now, final long timeout) {
+		mHandler.post(new Runnable() {
+			@Override
+			public void run() {
+				if (expire(now, timeout) > 0)
+					publish(true);
+			}
+		});
+	}
+
+	/**
+	 * Removes all devices.
+	 */
+	public void clear() {
+		mHandler.post(new Runnable() {
+			@Override
+			public void run() {
+				mTable.clear();
+				mIndex.clear();
+				publish(true);
+			}
+		});
+	}
+
+	/**
+	 * Starts recording all scan results to the given file. A recording in progress is stopped first.
+	 */
+	public void startRecording(final File file) {
+		mHandler.post(new Runnable() {
+			@Override
+			public void run() {
+				closeLog();
+				try {
+					mLogWriter = new ScanLogWriter(new FileOutputStream(file));
+				} catch (final IOException e) {
+					Log.w(TAG, "Unable to record scan results to " + file, e);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Stops recording and writes the rest of the log.
+	 */
+	public void stopRecording() {
+		mHandler.post(new Runnable() {
+			@Override
+			public void run() {
+				closeLog();
+			}
+		});
+	}
+
+	/**
+	 * Replays a scan log on the processing thread, in batches of the given duration. Scan results queued meanwhile are processed
+	 * after the replay. The listener is notified when the replay has finished.
+	 *
+	 * @param file       the log
+	 * @param speed      how much faster than recorded to replay the log, 1 for the original pace
+	 * @param batchNanos the longest time span of a batch, in nanoseconds of log time
+	 */
+	public void replay(final File file, final float speed, final long batchNanos) {
+		mHandler.post(new Runnable() {
+			@Override
+			public void run() {
+				final BluetoothAdapter adapter = BluetoothAdapter.getDefaultAdapter();
+				if (adapter == null) {
+					mMainHandler.post(mReplayFinished);
+					return;
+				}
+				ScanLogReader reader = null;
+				try {
+					reader = new ScanLogReader(new FileInputStream(file));
+					new ScanLogReplayer(reader, speed, batchNanos).replay(new ScanLogReplayer.Listener() {
+						private boolean mStructureChanged;
+
+						@Override
+						public void onScanResult(final long timestampNanos, final long address, final int rssi, final byte[] data, final int length) {
+							final BluetoothDevice device = adapter.getRemoteDevice(HexCodec.formatAddress(address));
+							final String name = AdvertisingData.getLocalName(data, 0, length);
+							final byte[] serviceData = AdvertisingData.getServiceData(data, 0, length, AdvertisingData.EDDYSTONE_SERVICE_UUID);
+							mStructureChanged |= merge(device, address, name, rssi, timestampNanos, serviceData);
+						}
+
+						@Override
+						public void onBatchEnd() {
+							mStructureChanged |= mTable.sort();
+							publish(mStructureChanged);
+							mStructureChanged = false;
+						}
+					});
+				} catch (final IOException e) {
+					Log.w(TAG, "Unable to replay " + file, e);
+				} catch (final InterruptedException e) {
+					// The processor was stopped
+					return;
+				} finally {
+					if (reader != null) {
+						try {
+							reader.close();
+						} catch (final IOException e) {
+							// ignore
+						}
+					}
+				}
+				mMainHandler.post(mReplayFinished);
+			}
+		});
+	}
+
+	/**
+	 * Merges a batch of scan results into the device state, recording them if a recording is in progress. Runs on the calling thread.
+	 *
+	 * @param results scan results
+	 * @return true if devices were added or moved
+	 */
+	/* package */ boolean merge(final List<ScanResult> results) {
+		boolean added = false;
+		for (final ScanResult result : results) {
+			final BluetoothDevice bluetoothDevice = result.getDevice();
+			final ScanRecord record = result.getScanRecord();
+			final long address = HexCodec.parseAddress(bluetoothDevice.getAddress());
+			if (mLogWriter != null && address >= 0)
+				record(result, address);
+			added |= merge(bluetoothDevice, address, record != null ? record.getDeviceName() : null, result.getRssi(), result.getTimestampNanos(),
+					record != null ? record.getServiceData(EDDYSTONE_SERVICE_UUID) : null);
+		}
+		return mTable.sort() || added;
+	}
+
+	/**
+	 * Merges a single scan result into the device state. The display order is not updated.
+	 *
+	 * @param address     the address parsed by {@link HexCodec#parseAddress(CharSequence)}
+	 * @param serviceData the service data of the Eddystone service UUID, or null
+	 * @return true if the device was added
+	 */
+	private boolean merge(final BluetoothDevice bluetoothDevice, final long address, final String name, final int rssi,
+						  final long timestampNanos, final byte[] serviceData) {
+		ExtendedBluetoothDevice device = address >= 0 ? getDevice(address) : findDevice(bluetoothDevice.getAddress());
+		final boolean added = device == null;
+		if (added) {
+			final int slot = mTable.nextSlot();
+			if (address >= 0)
+				mIndex.put(address, slot);
+			device = new ExtendedBluetoothDevice(bluetoothDevice, name, rssi, timestampNanos, address, slot);
+			mTable.add(device);
+			mNewDevices.incrementAndGet();
+		}
+		mTable.update(device, name, rssi, timestampNanos, serviceData);
+		return added;
+	}
+
+	private void record(final ScanResult result, final long address) {
+		final ScanRecord record = result.getScanRecord();
+		final byte[] data = record != null ? record.getBytes() : null;
+		try {
+			mLogWriter.append(result.getTimestampNanos(), address, result.getRssi(), data, 0, data != null ? data.length : 0);
+		} catch (final IOException e) {
+			Log.w(TAG, "Unable to record scan result", e);
+			closeLog();
+		}
+	}
+
+	private void closeLog() {
+		if (mLogWriter == null)
+			return;
+		try {
+			mLogWriter.close();
+		} catch (final IOException e) {
+			Log.w(TAG, "Unable to write scan log", e);
+		}
+		mLogWriter = null;
+	}
+
+	/**
+	 * Removes the devices whose last scan result is older than the timeout. Runs on the calling thread.
+	 *
+	 * @return the number of devices removed
+	 */
+	/* package */ int expire(final long now, final long timeout) {
+		final int removed = mTable.expire(now, timeout, mExpired);
+		for (final ExtendedBluetoothDevice device : mExpired)
+			if (device.address >= 0)
+				mIndex.remove(device.address, device.slot);
+		mExpired.clear();
+		return removed;
+	}
+
+	/**
+	 * Builds a snapshot of the devices and schedules it for the next frame, unless nothing shown in the list changed.
+	 *
+	 * @param structureChanged true if devices were added, removed or moved
+	 */
+	private void publish(final boolean structureChanged) {
+		final List<ExtendedBluetoothDevice> devices = mTable.getDevices();
+		final ScannedDevice[] previous = mSnapshot;
+		final ScannedDevice[] snapshot = structureChanged ? new ScannedDevice[devices.size()] : previous.clone();
+		boolean changed = structureChanged;
+		for (int i = 0; i < snapshot.length; i++) {
+			final ScannedDevice device = devices.get(i).toScannedDevice();
+			changed |= device != snapshot[i];
+			snapshot[i] = device;
+		}
+		if (!changed)
+			return;
+
+		mSnapshot = snapshot;
+		if (mPending.getAndSet(Collections.unmodifiableList(Arrays.asList(snapshot))) == null)
+			mMainHandler.post(mScheduleFrame);
+	}
+
+	private final Runnable mScheduleFrame = new Runnable() {
+		@Override
+		public void run() {
+			Choreographer.getInstance().postFrameCallback(mFrameCallback);
+		}
+	};
+
+	private final Choreographer.FrameCallback mFrameCallback = new Choreographer.FrameCallback() {
+		@Override
+		public void doFrame(final long frameTimeNanos) {
+			final List<ScannedDevice> devices = mPending.getAndSet(null);
+			if (devices != null && mListener != null)
+				mListener.onDevicesChanged(devices);
+		}
+	};
+
+	private final Runnable mReplayFinished = new Runnable() {
+		@Override
+		public void run() {
+			if (mListener != null)
+				mListener.onReplayFinished();
+		}
+	};
+
+	private ExtendedBluetoothDevice getDevice(final long address) {
+		final int slot = mIndex.get(address);
+		return slot != LongIntHashMap.NO_VALUE ? mTable.get(slot) : null;
+	}
+
+	/**
+	 * Linear search, only used for addresses that {@link HexCodec#parseAddress(CharSequence)} does not accept.
+	 */
+	private ExtendedBluetoothDevice findDevice(final String address) {
+		for (final ExtendedBluetoothDevice device : mTable.getDevices())
+			if (device.device.getAddress().equals(address))
+				return device;
+		return null;
+	}
+}
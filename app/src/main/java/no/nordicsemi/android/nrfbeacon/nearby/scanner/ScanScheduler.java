@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2015, Nordic Semiconductor
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE
+ * USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package no.nordicsemi.android.nrfbeacon.nearby.scanner;
+
+import no.nordicsemi.android.support.v18.scanner.ScanSettings;
+
+/**
+ * Chooses the scan settings based on how fast new devices are being discovered.
+ * <p>
+ * A scan starts in the {@link #PHASE_DISCOVERY} phase with low latency scanning and a short report delay. Once hardly any new
+ * devices show up, the scheduler steps down to balanced scanning with hardware batching and filtering, then to the low power
+ * duty cycle, and finally ends the scan. A burst of new devices in a later phase brings it back to discovery. In continuous
+ * mode the scan is never ended and stays in the low power phase instead.
+ * </p>
+ * <p>
+ * Every phase lasts at least {@link #MIN_PHASE_DURATION}, as changing the settings means restarting the scan and Android
+ * refuses to start more than 5 scans per 30 seconds.
+ * </p>
+ */
+/* package */ class ScanScheduler {
+	/* package */ static final int PHASE_DISCOVERY = 0;
+	/* package */ static final int PHASE_BALANCED = 1;
+	/* package */ static final int PHASE_LOW_POWER = 2;
+	/** The scan should be stopped. */
+	/* package */ static final int PHASE_DONE = 3;
+
+	private final static long MIN_PHASE_DURATION = 8000;
+	/** How long the low power phase goes on without new devices before the scan ends. */
+	private final static long LOW_POWER_DURATION = 30000;
+	/** Discovery rate, in new devices per second, below which discovery is considered saturated. */
+	private final static float SATURATED_RATE = 0.2f;
+	/** Discovery rate, in new devices per second, that brings the scheduler back to the discovery phase. */
+	private final static float BURST_RATE = 1.0f;
+	/** Weight of the latest tick in the discovery rate. */
+	private final static float RATE_ALPHA = 0.3f;
+
+	private final static int[] SCAN_MODES = { ScanSettings.SCAN_MODE_LOW_LATENCY, ScanSettings.SCAN_MODE_BALANCED, ScanSettings.SCAN_MODE_LOW_POWER };
+	private final static long[] REPORT_DELAYS = { 1000, 2000, 5000 };
+
+	private boolean mContinuous;
+	private int mPhase;
+	private long mPhaseStart;
+	private long mLastTick;
+	private float mRate;
+
+	/**
+	 * Starts a new scan in the discovery phase.
+	 *
+	 * @param now the current time in milliseconds, e.g. {@link android.os.SystemClock#elapsedRealtime()}
+	 */
+	public void start(final long now) {
+		mPhase = PHASE_DISCOVERY;
+		mPhaseStart = mLastTick = now;
+		mRate = BURST_RATE; // assume discovery is in full swing until the first ticks say otherwise
+	}
+
+	/**
+	 * Sets whether the scheduler should keep scanning in the low power phase rather than ending the scan.
+	 */
+	public void setContinuous(final boolean continuous) {
+		mContinuous = continuous;
+	}
+
+	public int getPhase() {
+		return mPhase;
+	}
+
+	/**
+	 * Updates the discovery rate and moves to another phase if needed. Should be called about once a second while scanning.
+	 *
+	 * @param newDevices the number of devices found since the last call
+	 * @param now        the current time in milliseconds
+	 * @return the current phase; if it changed the scan has to be restarted with {@link #getSettings()} or stopped
+	 */
+	public int onTick(final int newDevices, final long now) {
+		final long interval = now - mLastTick;
+		mLastTick = now;
+		if (interval > 0)
+			mRate += RATE_ALPHA * (newDevices * 1000f / interval - mRate);
+
+		final long phaseDuration = now - mPhaseStart;
+		if (mPhase == PHASE_DONE || phaseDuration < MIN_PHASE_DURATION)
+			return mPhase;
+
+		if (mPhase != PHASE_DISCOVERY && mRate >= BURST_RATE) {
+			setPhase(PHASE_DISCOVERY, now);
+		} else if (newDevices > 0 && mPhase == PHASE_LOW_POWER) {
+			mPhaseStart = now; // keep listening as long as devices keep trickling in
+		} else if (mRate < SATURATED_RATE && (mPhase != PHASE_LOW_POWER || (!mContinuous && phaseDuration >= LOW_POWER_DURATION))) {
+			setPhase(mPhase + 1, now);
+		}
+		return mPhase;
+	}
+
+	/**
+	 * Returns the scan settings of the current phase.
+	 */
+	public ScanSettings getSettings() {
+		final int phase = Math.min(mPhase, PHASE_LOW_POWER);
+		final boolean offload = phase != PHASE_DISCOVERY;
+		return new ScanSettings.Builder()
+				.setScanMode(SCAN_MODES[phase]).setReportDelay(REPORT_DELAYS[phase])
+				.setUseHardwareBatchingIfSupported(offload).setUseHardwareFilteringIfSupported(offload).build();
+	}
+
+	private void setPhase(final int phase, final long now) {
+		mPhase = phase;
+		mPhaseStart = now;
+	}
+}
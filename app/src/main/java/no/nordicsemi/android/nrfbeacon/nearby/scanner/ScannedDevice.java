@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2015, Nordic Semiconductor
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE
+ * USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package no.nordicsemi.android.nrfbeacon.nearby.scanner;
+
+import android.bluetooth.BluetoothDevice;
+
+/**
+ * An immutable copy of what the device list shows for a device. Lists of these are published by the {@link ScanProcessor} and
+ * may be read from any thread.
+ */
+public final class ScannedDevice {
+	/** Stable item id of the device, see {@link DeviceListAdapter#getItemId(int)}. */
+	public final long id;
+	public final BluetoothDevice device;
+	public final String name;
+	/** Level of the RSSI image based on the filtered RSSI, in percent, or -1 if there is no RSSI. */
+	public final int rssiLevel;
+	/** The decoded Eddystone frames, one per line, or null. */
+	public final String frames;
+
+	/* package */ ScannedDevice(final long id, final BluetoothDevice device, final String name, final int rssiLevel, final String frames) {
+		this.id = id;
+		this.device = device;
+		this.name = name;
+		this.rssiLevel = rssiLevel;
+		this.frames = frames;
+	}
+}
@@ -21,6 +21,7 @@
  */
 package no.nordicsemi.android.nrfbeacon.nearby.scanner;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
@@ -42,10 +43,13 @@ import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
+import android.content.SharedPreferences;
 import android.content.pm.PackageManager;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.ParcelUuid;
+import android.os.SystemClock;
+import android.preference.PreferenceManager;
 import android.support.annotation.NonNull;
 import android.support.v4.app.ActivityCompat;
 import android.support.v4.app.DialogFragment;
@@ -60,25 +64,40 @@ import android.widget.Toast;
 
 /**
  * ScannerFragment class scan required BLE devices and shows them in a list. This class scans and filter devices with given BLE Service UUID which may be null. It contains a
- * list and a button to scan/cancel. The scanning will continue for 5 seconds and then stop.
+ * list and a button to scan/cancel. The scan settings are adjusted by a {@link ScanScheduler}, which stops the scan once no new devices are found.
+ * If continuous scanning is enabled in the settings, the scan goes on until cancelled and devices that went out of range are removed from the list.
+ * Scan results are processed off the main thread by a {@link ScanProcessor}, which updates the list at most once per frame.
+ * The results may be recorded to a scan log, and a fragment created with {@link #getInstance(UUID, File)} replays such a log instead of scanning.
  */
 public class ScannerFragment extends DialogFragment {
 	private final static String TAG = "ScannerFragment";
 
 	private final static String PARAM_UUID = "param_uuid";
 	private final static String PARAM_UUID1 = "param_uuid1";
-	private final static long SCAN_DURATION = 8000;
-	/* package */static final int NO_RSSI = -1000;
+	private final static String PARAM_REPLAY_LOG = "param_replay_log";
+	/** How often the scan scheduler is updated. */
+	private final static long SCHEDULER_TICK = 1000;
+	/** Devices not seen for this long are removed in continuous scanning. Must be well above the report delay of the low power phase. */
+	private final static long DEVICE_TIMEOUT = 15000;
+	/** Scan logs are replayed in batches as long as the report delay of the discovery phase. */
+	private final static long REPLAY_BATCH_NANOS = 1000000000L;
+	private final static String SCAN_LOG_DIRECTORY = "scans";
 
 	private final static int REQUEST_PERMISSION_REQ_CODE = 76; // any 8-bit number
 
 	private DeviceListAdapter mAdapter;
+	private ScanProcessor mProcessor;
 	private Handler mHandler = new Handler();
 	private Button mScanButton;
 	private View mPermissionRationale;
 
 	private ParcelUuid mUuid;
 	private boolean mIsScanning = false;
+	private boolean mContinuous;
+	private boolean mRecord;
+	private File mReplayLog;
+
+	private final ScanScheduler mScheduler = new ScanScheduler();
 
 	/**
 	 * Static implementation of fragment so that it keeps data when phone orientation is changed For standard BLE Service UUID, we can filter devices using normal android provided command
@@ -94,16 +113,55 @@ public class ScannerFragment extends DialogFragment {
 		return fragment;
 	}
 
+	/**
+	 * Returns a fragment that replays the given scan log at the original pace instead of scanning, to reproduce what the scanner saw in the field.
+	 */
+	public static ScannerFragment getInstance(final UUID uuid, final File replayLog) {
+		final ScannerFragment fragment = getInstance(uuid);
+		fragment.getArguments().putString(PARAM_REPLAY_LOG, replayLog.getAbsolutePath());
+		return fragment;
+	}
+
+	/**
+	 * Returns the most recent scan log recorded with the Record Scans setting, or null if there is none.
+	 */
+	public static File getLatestScanLog(final Context context) {
+		final File directory = context.getExternalFilesDir(SCAN_LOG_DIRECTORY);
+		final File[] logs = directory != null ? directory.listFiles() : null;
+		if (logs == null)
+			return null;
+
+		File latest = null;
+		for (final File log : logs) {
+			if (latest == null || log.lastModified() > latest.lastModified())
+				latest = log;
+		}
+		return latest;
+	}
+
 	@Override
 	public void onCreate(final Bundle savedInstanceState) {
 		super.onCreate(savedInstanceState);
 		final Bundle args = getArguments();
 		mUuid = args.getParcelable(PARAM_UUID);
+		final String replayLog = args.getString(PARAM_REPLAY_LOG);
+		mReplayLog = replayLog != null ? new File(replayLog) : null;
+		final SharedPreferences preferences = PreferenceManager.getDefaultSharedPreferences(getActivity());
+		mContinuous = preferences.getBoolean(getString(R.string.scanner_continuous_key), false);
+		mRecord = preferences.getBoolean(getString(R.string.scanner_record_key), false);
+		mProcessor = new ScanProcessor();
+	}
+
+	@Override
+	public void onDestroy() {
+		mProcessor.quit();
+		super.onDestroy();
 	}
 
 	@Override
 	public void onDestroyView() {
 		stopScan();
+		mProcessor.setListener(null);
 		super.onDestroyView();
 	}
 
@@ -119,6 +177,17 @@ public class ScannerFragment extends DialogFragment {
 
 		listview.setEmptyView(dialogView.findViewById(android.R.id.empty));
 		listview.setAdapter(mAdapter = new DeviceListAdapter());
+		mProcessor.setListener(new ScanProcessor.Listener() {
+			@Override
+			public void onDevicesChanged(final List<ScannedDevice> devices) {
+				mAdapter.setDevices(devices);
+			}
+
+			@Override
+			public void onReplayFinished() {
+				stopScan();
+			}
+		});
 
 		builder.setTitle(R.string.scanner_title);
 		final AlertDialog dialog = builder.setView(dialogView).create();
@@ -129,7 +198,7 @@ public class ScannerFragment extends DialogFragment {
 				dismiss();
 
 				final ScannerFragmentListener listener = (ScannerFragmentListener) getParentFragment();
-				final ExtendedBluetoothDevice device = (ExtendedBluetoothDevice) mAdapter.getItem(position);
+				final ScannedDevice device = (ScannedDevice) mAdapter.getItem(position);
 				listener.onDeviceSelected(device.device, device.name != null ? device.name : getString(R.string.not_available));
 			}
 		});
@@ -144,7 +213,7 @@ public class ScannerFragment extends DialogFragment {
 					if (mIsScanning) {
 						dialog.cancel();
 					} else {
-						if(isBleEnabled())
+						if(mReplayLog != null || isBleEnabled())
 							startScan();
 						else enableBle();
 					}
@@ -186,10 +255,19 @@ public class ScannerFragment extends DialogFragment {
 	}
 
 	/**
-	 * Scan for 5 seconds and then stop scanning when a BluetoothLE device is found then mLEScanCallback is activated This will perform regular scan for custom BLE Service UUID and then filter out
-	 * using class ScannerServiceParser
+	 * Starts scanning with the discovery settings of the {@link ScanScheduler}. When a BluetoothLE device is found then scanCallback is activated. This will perform regular scan
+	 * for custom BLE Service UUID and then filter out using class ScannerServiceParser
 	 */
 	private void startScan() {
+		if (mReplayLog != null) {
+			mProcessor.clear();
+			mAdapter.clearDevices();
+			mScanButton.setText(R.string.scanner_action_cancel);
+			mProcessor.replay(mReplayLog, 1.0f, REPLAY_BATCH_NANOS);
+			mIsScanning = true;
+			return;
+		}
+
 		// Since Android 6.0 we need to obtain either Manifest.permission.ACCESS_COARSE_LOCATION or Manifest.permission.ACCESS_FINE_LOCATION to be able to scan for
 		// Bluetooth LE devices. This is related to beacons as proximity devices.
 		// On API older than Marshmallow the following code does nothing.
@@ -208,26 +286,58 @@ public class ScannerFragment extends DialogFragment {
 		if (mPermissionRationale != null)
 			mPermissionRationale.setVisibility(View.GONE);
 
+		mProcessor.clear();
 		mAdapter.clearDevices();
 		mScanButton.setText(R.string.scanner_action_cancel);
 
+		if (mRecord) {
+			final File directory = getActivity().getExternalFilesDir(SCAN_LOG_DIRECTORY);
+			if (directory != null)
+				mProcessor.startRecording(new File(directory, "scan-" + System.currentTimeMillis() + ".log"));
+		}
+		mScheduler.setContinuous(mContinuous);
+		mScheduler.start(SystemClock.elapsedRealtime());
+		mProcessor.takeNewDevices();
+		startLeScan();
+
+		mIsScanning = true;
+		mHandler.postDelayed(mSchedulerTick, SCHEDULER_TICK);
+	}
+
+	private void startLeScan() {
 		final BluetoothLeScannerCompat scanner = BluetoothLeScannerCompat.getScanner();
-		final ScanSettings settings = new ScanSettings.Builder()
-				.setScanMode(ScanSettings.SCAN_MODE_LOW_LATENCY).setReportDelay(1000).setUseHardwareBatchingIfSupported(false).setUseHardwareFilteringIfSupported(false).build();
+		final ScanSettings settings = mScheduler.getSettings();
 		final List<ScanFilter> filters = new ArrayList<>();
 		filters.add(new ScanFilter.Builder().setServiceUuid(mUuid).build());
 		scanner.startScan(filters, settings, scanCallback);
+	}
 
-		mIsScanning = true;
-		mHandler.postDelayed(new Runnable() {
-			@Override
-			public void run() {
-				if (mIsScanning) {
-					stopScan();
-				}
+	/**
+	 * Feeds the discovery rate to the scheduler and restarts the scan with new settings, or stops it, when the scheduler changes phase.
+	 */
+	private final Runnable mSchedulerTick = new Runnable() {
+		@Override
+		public void run() {
+			if (!mIsScanning)
+				return;
+
+			final long now = SystemClock.elapsedRealtime();
+			if (mContinuous)
+				mProcessor.removeExpired(now, DEVICE_TIMEOUT);
+
+			final int oldPhase = mScheduler.getPhase();
+			final int phase = mScheduler.onTick(mProcessor.takeNewDevices(), now);
+			if (phase == ScanScheduler.PHASE_DONE) {
+				stopScan();
+				return;
 			}
-		}, SCAN_DURATION);
-	}
+			if (phase != oldPhase) {
+				BluetoothLeScannerCompat.getScanner().stopScan(scanCallback);
+				startLeScan();
+			}
+			mHandler.postDelayed(this, SCHEDULER_TICK);
+		}
+	};
 
 	/**
 	 * Stop scan if user tap Cancel button
@@ -235,11 +345,16 @@ public class ScannerFragment extends DialogFragment {
 	private void stopScan() {
 		if (mIsScanning) {
 			mScanButton.setText(R.string.scanner_action_scan);
+			mIsScanning = false;
+
+			// A replay cannot be paused, it is stopped only when the fragment is destroyed
+			if (mReplayLog != null)
+				return;
 
 			final BluetoothLeScannerCompat scanner = BluetoothLeScannerCompat.getScanner();
 			scanner.stopScan(scanCallback);
-
-			mIsScanning = false;
+			mHandler.removeCallbacks(mSchedulerTick);
+			mProcessor.stopRecording();
 		}
 	}
 
@@ -251,7 +366,7 @@ public class ScannerFragment extends DialogFragment {
 
 		@Override
 		public void onBatchScanResults(final List<ScanResult> results) {
-			mAdapter.update(results);
+			mProcessor.process(results);
 		}
 
 		@Override
@@ -263,6 +378,10 @@ public class ScannerFragment extends DialogFragment {
 	private final BroadcastReceiver mBluetoothStateChange = new BroadcastReceiver() {
 		@Override
 		public void onReceive(Context context, Intent intent) {
+			// A replayed log does not depend on the Bluetooth adapter
+			if (mReplayLog != null)
+				return;
+
 			// This will be executed only once
 			final int state = intent.getIntExtra(BluetoothAdapter.EXTRA_STATE, BluetoothAdapter.STATE_OFF);
 
@@ -270,6 +389,7 @@ public class ScannerFragment extends DialogFragment {
 				case BluetoothAdapter.STATE_TURNING_OFF:
 				case BluetoothAdapter.STATE_OFF:
 					stopScan();
+					mProcessor.clear();
 					mAdapter.clearDevices();
 					break;
 			}
@@ -40,6 +40,7 @@ import java.util.Arrays;
 
 import javax.crypto.spec.SecretKeySpec;
 
+import no.nordicsemi.android.libeddystonecore.HexCodec;
 import no.nordicsemi.android.nrfbeacon.nearby.R;
 import no.nordicsemi.android.nrfbeacon.nearby.util.ParserUtils;
 
@@ -48,7 +49,6 @@ import no.nordicsemi.android.nrfbeacon.nearby.util.ParserUtils;
  */
 public class LockStateDialogFragment extends DialogFragment {
 
-    private static final String PATTERN_LOCK_STATE = "[0-9a-fA-F]{32}";
     private static final String LOCK_STATE = "LOCK_STATE";
     private static final String UNLOCK_CODE = "UNLOCK_CODE";
     private static final String TAG = "BEACON";
@@ -184,7 +184,7 @@ public class LockStateDialogFragment extends DialogFragment {
             if(oldLockCode.isEmpty()){
                 mOldLockCode.setError("Please enter old lock code");
                 return false;
-            } else if (!oldLockCode.matches(PATTERN_LOCK_STATE)) {
+            } else if (!HexCodec.isLockCode(oldLockCode)) {
                 mOldLockCode.setError("Please enter a valid value for old lock code");
                 return false;
             }
@@ -203,7 +203,7 @@ public class LockStateDialogFragment extends DialogFragment {
                 mNewLockCode.setError("Please enter new lock code");
                 return false;
             } else {
-                if (!newLockCode.matches(PATTERN_LOCK_STATE)) {
+                if (!HexCodec.isLockCode(newLockCode)) {
                     mNewLockCode.setError("Please enter a valid value for new lock code");
                     return false;
                 }
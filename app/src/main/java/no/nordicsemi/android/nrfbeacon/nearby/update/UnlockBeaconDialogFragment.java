@@ -19,6 +19,7 @@ import javax.crypto.IllegalBlockSizeException;
 import javax.crypto.NoSuchPaddingException;
 import javax.crypto.spec.SecretKeySpec;
 
+import no.nordicsemi.android.libeddystonecore.HexCodec;
 import no.nordicsemi.android.nrfbeacon.nearby.R;
 import no.nordicsemi.android.nrfbeacon.nearby.util.ParserUtils;
 
@@ -27,7 +28,6 @@ import no.nordicsemi.android.nrfbeacon.nearby.util.ParserUtils;
  */
 public class UnlockBeaconDialogFragment extends DialogFragment {
 
-    private static final String PATTERN_TX_POWER = "[0-9a-fA-F]{32}";
     private static final String CHALLENGE = "CHALLENGE";
     private static final String UNLOCK_MESSAGE = "UNLOCK_MESSAGE";
     private static final String TAG = "BEACON";
@@ -112,7 +112,7 @@ public class UnlockBeaconDialogFragment extends DialogFragment {
         if(lockCode.isEmpty()){
             mUnlockCode.setError("Please enter the lock code to unlock the beacon");
             return false;
-        } else if (!lockCode.matches(PATTERN_TX_POWER)) {
+        } else if (!HexCodec.isLockCode(lockCode)) {
             mUnlockCode.setError("Please enter a valid value for new lock code");
             return false;
         }
@@ -44,6 +44,7 @@ import android.os.Build;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.IBinder;
+import android.preference.PreferenceManager;
 import android.provider.Settings;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
@@ -85,6 +86,7 @@ import com.squareup.okhttp.Response;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Calendar;
@@ -95,6 +97,7 @@ import java.util.UUID;
 
 import javax.crypto.spec.SecretKeySpec;
 
+import no.nordicsemi.android.libeddystonecore.EddystoneFrame;
 import no.nordicsemi.android.nrfbeacon.nearby.MainActivity;
 import no.nordicsemi.android.nrfbeacon.nearby.R;
 import no.nordicsemi.android.nrfbeacon.nearby.UpdateService;
@@ -208,7 +211,7 @@ public class UpdateFragment extends BaseFragment implements ScannerFragmentListe
     private int mCurrentLockState;
     private int mAdvancedAdvTxPower;
     private int mFrameType;
-    private EddystoneEidrGenerator generator;
+    private final EddystoneFrame mSlotFrame = new EddystoneFrame();
     private Handler mProgressDialogHandler;
     private Context mContext;
     private Project mProject;
@@ -485,122 +488,35 @@ public class UpdateFragment extends BaseFragment implements ScannerFragmentListe
     }
 
     private void updateUiWithFrameType(Intent intent) {
-        switch (mFrameType) {
-            case TYPE_UID:
-                mFrameTypeView.setText(getString(R.string.type_uid));
-                final String namespaceId = intent.getExtras().getString(UpdateService.EXTRA_NAMESPACE_ID, "");
-                final String instanceId = intent.getExtras().getString(UpdateService.EXTRA_INSTANCE_ID, "");
-                mRwAdvertisingSlot = intent.getByteArrayExtra(UpdateService.EXTRA_DATA);
-                mUidDataContainer.setVisibility(View.VISIBLE);
-                mUrlDataContainer.setVisibility(View.GONE);
-                mTlmDataContainer.setVisibility(View.GONE);
-                mEtlmDataContainer.setVisibility(View.GONE);
-                mEidDataContainer.setVisibility(View.GONE);
-                mNamespaceId.setText(namespaceId);
-                mInstanceId.setText(instanceId);
-                break;
-
-            case TYPE_URL:
-                mFrameTypeView.setText(getString(R.string.type_url));
-                final String url = intent.getExtras().getString(UpdateService.EXTRA_URL, "");
-                mRwAdvertisingSlot = intent.getByteArrayExtra(UpdateService.EXTRA_DATA);
-                mUrlDataContainer.setVisibility(View.VISIBLE);
-                mUidDataContainer.setVisibility(View.GONE);
-                mTlmDataContainer.setVisibility(View.GONE);
-                mEtlmDataContainer.setVisibility(View.GONE);
-                mEidDataContainer.setVisibility(View.GONE);
-
-                final SpannableString urlAttachment = new SpannableString(url);
-                urlAttachment.setSpan(new UnderlineSpan(), 0, url.length(), 0);
-                mUrl.setText(urlAttachment);
-                //mUrl.setText(url);
-                break;
-
-            case TYPE_TLM:
-                mEidDataContainer.setVisibility(View.GONE);
-                mUrlDataContainer.setVisibility(View.GONE);
-                mUidDataContainer.setVisibility(View.GONE);
-
-                mRwAdvertisingSlot = intent.getByteArrayExtra(UpdateService.EXTRA_DATA);
-                final boolean containsEid = mActiveSlotsTypes.contains(getString(R.string.type_eid));
-                if (containsEid) {
-                    mTlmDataContainer.setVisibility(View.GONE);
-                    mEtlmDataContainer.setVisibility(View.VISIBLE);
-                    mFrameTypeView.setText(getString(R.string.type_etlm));
-                    final String etlm = ParserUtils.bytesToHex(mRwAdvertisingSlot, 2, 12, true);
-                    final String salt = ParserUtils.bytesToHex(mRwAdvertisingSlot, 14, 2, true);
-                    final String messageIntegrityCheck = ParserUtils.bytesToHex(mRwAdvertisingSlot, 16, 2, true);
-
-                    mEtlm.setText(etlm);
-                    mEtlmSalt.setText(salt);
-                    mEtlmMessageIntCheck.setText(messageIntegrityCheck);
-                } else {
-                    mFrameTypeView.setText(getString(R.string.type_tlm));
-                    final String batteryVoltage = intent.getExtras().getString(UpdateService.EXTRA_VOLTAGE, "");
-                    final String beaconTemperature = intent.getExtras().getString(UpdateService.EXTRA_BEACON_TEMPERATURE, "");
-                    final String pduCount = intent.getExtras().getString(UpdateService.EXTRA_PDU_COUNT, "");
-                    final String timeSinceBoot = intent.getExtras().getString(UpdateService.EXTRA_TIME_SINCE_BOOT, "");
-                    final long timeSinceBootInMs = Long.valueOf(timeSinceBoot);
-                    final Calendar calendar = Calendar.getInstance();
-                    calendar.setTimeInMillis(timeSinceBootInMs);
-                    calendar.setTimeZone(TimeZone.getTimeZone("UTC"));
-                    StringBuilder builder = new StringBuilder();
-                    if (timeSinceBootInMs < 86400000L)
-                        builder.append(String.format(Locale.US, "%1$tR:%1$tS.%1$tL", calendar));
-                    else if (timeSinceBootInMs < 86400000L * 2){
-                        builder.append(String.format(Locale.US, "1 day + %1$tR:%1$tS.%1$tL", calendar));
-                    } else {
-                        final int days = (int) (timeSinceBootInMs / 86400000L);
-                        builder.append(String.format(Locale.US, "%1$d days + %2$tR:%2$tS.%2$tL", days, calendar));
-                    }
-
-                    mEtlmDataContainer.setVisibility(View.GONE);
-                    mTlmDataContainer.setVisibility(View.VISIBLE);
-                    mVoltage.setText(batteryVoltage);
-                    mTemperature.setText(beaconTemperature);
-                    mPduCount.setText(pduCount);
-                    mTimeSinceReboot.setText(builder.toString());
-                }
-                break;
-
-            case TYPE_EID:
-                mFrameTypeView.setText(getString(R.string.type_eid));
-                final String timerExponent = intent.getExtras().getString(UpdateService.EXTRA_TIMER_EXPONENT);
-                final String clockValue = intent.getExtras().getString(UpdateService.EXTRA_CLOCK_VALUE);
-                final String eid = intent.getExtras().getString(UpdateService.EXTRA_EID, "");
-                mRwAdvertisingSlot = intent.getByteArrayExtra(UpdateService.EXTRA_DATA);
+        mRwAdvertisingSlot = intent.getByteArrayExtra(UpdateService.EXTRA_DATA);
+        updateUiWithFrameType(mRwAdvertisingSlot);
+        if (mFrameType == TYPE_EID && mProgressDialog != null && mProgressDialog.isShowing()) {
+            mProgressDialog.dismiss();
+            mProgressDialogHandler.removeCallbacks(mRunnableHandler);
+        }
+    }
 
-                mEidDataContainer.setVisibility(View.VISIBLE);
-                mUrlDataContainer.setVisibility(View.GONE);
-                mUidDataContainer.setVisibility(View.GONE);
-                mTlmDataContainer.setVisibility(View.GONE);
-                mEtlmDataContainer.setVisibility(View.GONE);
-                mTimerExponent.setText(timerExponent);
-                mClockValue.setText(clockValue);
-                mEid.setText(eid);
-                if (mProgressDialog != null && mProgressDialog.isShowing()) {
-                    mProgressDialog.dismiss();
-                    mProgressDialogHandler.removeCallbacks(mRunnableHandler);
-                }
-                break;
-            case EMPTY_SLOT:
-                mFrameTypeView.setText(getString(R.string.slot_state_empty));
-                mRwAdvertisingSlot = intent.getByteArrayExtra(UpdateService.EXTRA_DATA);
+    private void updateUiWithFrameType(final byte[] readWriteAdvSlot) {
+        EddystoneFrame frame = null;
+        if (mFrameType != EMPTY_SLOT) {
+            if (readWriteAdvSlot == null || mSlotFrame.wrapSlotData(readWriteAdvSlot).getFrameType() != mFrameType) {
+                Log.w(TAG, "Malformed frame in the Read Write ADV Slot: " + ParserUtils.bytesToHex(readWriteAdvSlot, false));
+                // Do not leave the data of the previous frame on screen
+                mFrameTypeView.setText(getString(R.string.not_available));
                 mUrlDataContainer.setVisibility(View.GONE);
                 mUidDataContainer.setVisibility(View.GONE);
                 mTlmDataContainer.setVisibility(View.GONE);
                 mEtlmDataContainer.setVisibility(View.GONE);
                 mEidDataContainer.setVisibility(View.GONE);
-                break;
+                return;
+            }
+            frame = mSlotFrame;
         }
-    }
-
-    private void updateUiWithFrameType(final byte[] readWriteAdvSlot) {
         switch (mFrameType) {
             case TYPE_UID:
                 mFrameTypeView.setText(getString(R.string.type_uid));
-                final String namespaceId = ParserUtils.bytesToHex(readWriteAdvSlot, 2, 10, true);
-                final String instanceId = ParserUtils.bytesToHex(readWriteAdvSlot, 12, 6, true);
+                final String namespaceId = ParserUtils.bytesToHex(readWriteAdvSlot, 2, EddystoneFrame.NAMESPACE_ID_LENGTH, true);
+                final String instanceId = ParserUtils.bytesToHex(readWriteAdvSlot, 12, EddystoneFrame.INSTANCE_ID_LENGTH, true);
                 mUidDataContainer.setVisibility(View.VISIBLE);
                 mUrlDataContainer.setVisibility(View.GONE);
                 mTlmDataContainer.setVisibility(View.GONE);
@@ -619,51 +535,42 @@ public class UpdateFragment extends BaseFragment implements ScannerFragmentListe
                 mEtlmDataContainer.setVisibility(View.GONE);
                 mEidDataContainer.setVisibility(View.GONE);
 
-                final SpannableString urlAttachment = new SpannableString(url);
                 if(url != null) {
+                    final SpannableString urlAttachment = new SpannableString(url);
                     urlAttachment.setSpan(new UnderlineSpan(), 0, url.length(), 0);
                     mUrl.setText(urlAttachment);
                 }
-                //mUrl.setText(url);
                 break;
 
             case TYPE_TLM:
                 mEidDataContainer.setVisibility(View.GONE);
                 mUrlDataContainer.setVisibility(View.GONE);
                 mUidDataContainer.setVisibility(View.GONE);
-                final boolean containsEid = mActiveSlotsTypes.contains(getString(R.string.type_eid));
-                if(containsEid){
+                if(frame.isEncryptedTlm()){
+                    mTlmDataContainer.setVisibility(View.GONE);
                     mEtlmDataContainer.setVisibility(View.VISIBLE);
                     mFrameTypeView.setText(getString(R.string.type_etlm));
-                    final String etlm = ParserUtils.bytesToHex(readWriteAdvSlot, 2, 12, true);
-                    final String salt = ParserUtils.bytesToHex(readWriteAdvSlot, 14, 2, true);
-                    final String messageIntegrityCheck = ParserUtils.bytesToHex(readWriteAdvSlot, 16, 2, true);
-
-                    mEtlm.setText(etlm);
-                    mEtlmSalt.setText(salt);
-                    mEtlmMessageIntCheck.setText(messageIntegrityCheck);
-
-
+                    mEtlm.setText(ParserUtils.bytesToHex(readWriteAdvSlot, 2, EddystoneFrame.ENCRYPTED_TLM_LENGTH, true));
+                    mEtlmSalt.setText(String.format(Locale.US, "0x%04X", frame.getSalt()));
+                    mEtlmMessageIntCheck.setText(String.format(Locale.US, "0x%04X", frame.getMessageIntegrityCheck()));
                 } else {
                     mFrameTypeView.setText(getString(R.string.type_tlm));
+                    mEtlmDataContainer.setVisibility(View.GONE);
                     mTlmDataContainer.setVisibility(View.VISIBLE);
-                    final int voltage = ParserUtils.decodeUint16BigEndian(readWriteAdvSlot, 2);
+                    final int voltage = frame.getBatteryVoltage();
                     if (voltage > 0) {
-                        mVoltage.setText(String.valueOf(voltage));
+                        mVoltage.setText(String.valueOf(voltage) + getString(R.string.voltage_unit));
                     } else {
                         mVoltage.setText(getString(R.string.batt_voltage_unsupported));
                     }
 
-                    final float temp = ParserUtils.decode88FixedPointNotation(readWriteAdvSlot, 4);
+                    final float temp = frame.getTemperature();
                     if (temp > -128.0f)
-                        mTemperature.setText(String.valueOf(temp));
+                        mTemperature.setText(String.valueOf(temp) + getString(R.string.temperature_unit));
                     else
                         mTemperature.setText(getString(R.string.temperature_unsupported));
 
-                    final String pduCount = String.valueOf(ParserUtils.decodeUint32BigEndian(readWriteAdvSlot, 6));
-                    final String timeSinceBoot = String.valueOf(ParserUtils.decodeUint32BigEndian(readWriteAdvSlot, 10) * 100);
-
-                    final long timeSinceBootInMs = Long.valueOf(timeSinceBoot);
+                    final long timeSinceBootInMs = frame.getTimeSinceBoot() * 100;
                     final Calendar calendar = Calendar.getInstance();
                     calendar.setTimeInMillis(timeSinceBootInMs);
                     calendar.setTimeZone(TimeZone.getTimeZone("UTC"));
@@ -677,25 +584,21 @@ public class UpdateFragment extends BaseFragment implements ScannerFragmentListe
                         builder.append(String.format(Locale.US, "%1$d days + %2$tR:%2$tS.%2$tL", days, calendar));
                     }
 
-                    mPduCount.setText(pduCount);
+                    mPduCount.setText(String.valueOf(frame.getAdvertisingCount()));
                     mTimeSinceReboot.setText(builder.toString());
                 }
-
                 break;
 
             case TYPE_EID:
                 mFrameTypeView.setText(getString(R.string.type_eid));
-                final String timerExponent = String.valueOf(ParserUtils.getIntValue(readWriteAdvSlot, 1, BluetoothGattCharacteristic.FORMAT_UINT8));
-                final String clockValue = String.valueOf(ParserUtils.getIntValue(readWriteAdvSlot, 2, ParserUtils.FORMAT_UINT32_BIG_INDIAN));
-                final String eid = String.valueOf(ParserUtils.bytesToHex(readWriteAdvSlot, 6, 8, true));
                 mEidDataContainer.setVisibility(View.VISIBLE);
                 mUrlDataContainer.setVisibility(View.GONE);
                 mUidDataContainer.setVisibility(View.GONE);
                 mTlmDataContainer.setVisibility(View.GONE);
                 mEtlmDataContainer.setVisibility(View.GONE);
-                mTimerExponent.setText(timerExponent);
-                mClockValue.setText(clockValue);
-                mEid.setText(eid);
+                mTimerExponent.setText(String.valueOf(frame.getRotationPeriodExponent()));
+                mClockValue.setText(String.valueOf(frame.getClockValue()));
+                mEid.setText(ParserUtils.bytesToHex(readWriteAdvSlot, 6, EddystoneFrame.EID_LENGTH, true));
                 break;
             case EMPTY_SLOT:
                 mFrameTypeView.setText(getString(R.string.slot_state_empty));
@@ -1014,8 +917,7 @@ public class UpdateFragment extends BaseFragment implements ScannerFragmentListe
                 if (mBinder == null) {
                     if(isBleEnabled()) {
                         if(isLocationEnabled()) {
-                            final ScannerFragment scannerFragment = ScannerFragment.getInstance(EDDYSTONE_GATT_CONFIG_SERVICE_UUID);
-                            scannerFragment.show(getChildFragmentManager(), null);
+                            showScanner();
                         } else {
                             showToast(getString(R.string.enable_location_services));
                         }
@@ -1652,7 +1554,7 @@ public class UpdateFragment extends BaseFragment implements ScannerFragmentListe
                                 byte[] beaconPrivateEcdhKey = new byte[32];
                                 new Random().nextBytes(beaconPrivateEcdhKey);
                                 Log.d(TAG, "Beacon ECDH Private Key: " + ParserUtils.bytesToHex(beaconPrivateEcdhKey, 0, 32, false));
-                                generator = new EddystoneEidrGenerator(mServiceEcdhKey, beaconPrivateEcdhKey);
+                                final EddystoneEidrGenerator generator = new EddystoneEidrGenerator(mServiceEcdhKey, beaconPrivateEcdhKey);
                                 mBeaconPublicEcdhKey = generator.getBeaconPublicKey();
                                 Log.d(TAG, "Beacon ECDH Public Key: " + ParserUtils.bytesToHex(mBeaconPublicEcdhKey, 0, 32, false));
                                 byte[] identityKey = generator.getIdentityKey();
@@ -1818,8 +1720,7 @@ public class UpdateFragment extends BaseFragment implements ScannerFragmentListe
                     } else {
                         if(ensurePermission(new String [] {Manifest.permission.ACCESS_COARSE_LOCATION})) {
                             if(isLocationEnabled()) {
-                                final ScannerFragment scannerFragment = ScannerFragment.getInstance(EDDYSTONE_GATT_CONFIG_SERVICE_UUID);
-                                scannerFragment.show(getChildFragmentManager(), null);
+                                showScanner();
                             } else {
                                 showToast(getString(R.string.enable_location_services));
                             }
@@ -1862,6 +1763,18 @@ public class UpdateFragment extends BaseFragment implements ScannerFragmentListe
         startActivityForResult(enableIntent, Utils.REQUEST_ENABLE_BT);
     }
 
+    /**
+     * Shows the scanner dialog, which replays the last scan log instead of scanning if Replay Last Scan is enabled in the settings.
+     */
+    private void showScanner() {
+        final boolean replay = PreferenceManager.getDefaultSharedPreferences(getActivity()).getBoolean(getString(R.string.scanner_replay_key), false);
+        final File replayLog = replay ? ScannerFragment.getLatestScanLog(getActivity()) : null;
+        final ScannerFragment scannerFragment = replayLog != null
+                ? ScannerFragment.getInstance(EDDYSTONE_GATT_CONFIG_SERVICE_UUID, replayLog)
+                : ScannerFragment.getInstance(EDDYSTONE_GATT_CONFIG_SERVICE_UUID);
+        scannerFragment.show(getChildFragmentManager(), null);
+    }
+
     private boolean isLocationEnabled() {
         if (checkIfVersionIsMarshmallowOrAbove()) {
             int locationMode = Settings.Secure.LOCATION_MODE_OFF;
@@ -24,27 +24,20 @@ package no.nordicsemi.android.nrfbeacon.nearby.util;
 import android.bluetooth.BluetoothDevice;
 import android.bluetooth.BluetoothGattCharacteristic;
 import android.bluetooth.BluetoothGattDescriptor;
-import android.util.Base64;
 import android.util.Log;
-import android.util.SparseArray;
 import android.util.Xml;
-import android.webkit.URLUtil;
-
-import java.nio.BufferUnderflowException;
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
-import java.security.InvalidKeyException;
-import java.security.NoSuchAlgorithmException;
-import java.util.Locale;
+
 import java.util.Random;
 import java.util.UUID;
 
-import javax.crypto.BadPaddingException;
-import javax.crypto.Cipher;
-import javax.crypto.IllegalBlockSizeException;
-import javax.crypto.NoSuchPaddingException;
 import javax.crypto.spec.SecretKeySpec;
 
+import no.nordicsemi.android.libeddystonecore.AesEcbCipher;
+import no.nordicsemi.android.libeddystonecore.Base64Codec;
+import no.nordicsemi.android.libeddystonecore.EddystoneUrlDecoder;
+import no.nordicsemi.android.libeddystonecore.EddystoneUrlEncoder;
+import no.nordicsemi.android.libeddystonecore.HexCodec;
+
 public class ParserUtils {
     private static final char[] HEX_ARRAY = { '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'A', 'B', 'C', 'D', 'E', 'F' };
     public static final int FORMAT_UINT24 = 0x13;
@@ -53,44 +46,21 @@ public class ParserUtils {
     public static final int FORMAT_UINT32_BIG_INDIAN = 0x64;
 
 
-    /**
-     * URI Scheme maps a byte code into the scheme and an optional scheme specific prefix.
-     */
-    private static final SparseArray<String> URI_SCHEMES = new SparseArray<String>() {
-        {
-            put((byte) 0, "http://www.");
-            put((byte) 1, "https://www.");
-            put((byte) 2, "http://");
-            put((byte) 3, "https://");
-            put((byte) 4, "urn:uuid:"); // RFC 2141 and RFC 4122};
+    private static final String TAG = "MCP";
+
+    private static final ThreadLocal<EddystoneUrlEncoder> URL_ENCODER = new ThreadLocal<EddystoneUrlEncoder>() {
+        @Override
+        protected EddystoneUrlEncoder initialValue() {
+            return new EddystoneUrlEncoder();
         }
     };
 
-    /**
-     * Expansion strings for "http" and "https" schemes. These contain strings appearing anywhere in a
-     * URL. Restricted to Generic TLDs.
-     * <p/>
-     * Note: this is a scheme specific encoding.
-     */
-    private static final SparseArray<String> URL_CODES = new SparseArray<String>() {
-        {
-            put((byte) 0, ".com/");
-            put((byte) 1, ".org/");
-            put((byte) 2, ".edu/");
-            put((byte) 3, ".net/");
-            put((byte) 4, ".info/");
-            put((byte) 5, ".biz/");
-            put((byte) 6, ".gov/");
-            put((byte) 7, ".com");
-            put((byte) 8, ".org");
-            put((byte) 9, ".edu");
-            put((byte) 10, ".net");
-            put((byte) 11, ".info");
-            put((byte) 12, ".biz");
-            put((byte) 13, ".gov");
+    private static final ThreadLocal<EddystoneUrlDecoder> URL_DECODER = new ThreadLocal<EddystoneUrlDecoder>() {
+        @Override
+        protected EddystoneUrlDecoder initialValue() {
+            return new EddystoneUrlDecoder();
         }
     };
-    private static final String TAG = "MCP";
 
     public static String bytesToHex(final byte[] bytes, final boolean add0x) {
         if (bytes == null)
@@ -99,19 +69,7 @@ public class ParserUtils {
     }
 
     public static String bytesToHex(final byte[] bytes, final int start, final int length, final boolean add0x) {
-        if (bytes == null || bytes.length <= start || length <= 0)
-            return "";
-
-        final int maxLength = Math.min(length, bytes.length - start);
-        final char[] hexChars = new char[maxLength * 2];
-        for (int j = 0; j < maxLength; j++) {
-            final int v = bytes[start + j] & 0xFF;
-            hexChars[j * 2] = HEX_ARRAY[v >>> 4];
-            hexChars[j * 2 + 1] = HEX_ARRAY[v & 0x0F];
-        }
-        if (!add0x)
-            return new String(hexChars);
-        return "0x" + new String(hexChars);
+        return HexCodec.bytesToHex(bytes, start, length, add0x);
     }
 
     public static String bytesToAddress(final byte[] bytes, final int start) {
@@ -296,12 +254,7 @@ public class ParserUtils {
     public static int setByteArrayValue(final byte[] dest, final int offset, final String value) {
         if (value == null)
             return offset;
-
-        for (int i = 0; i < value.length(); i += 2) {
-            dest[offset + i / 2] = (byte) ((Character.digit(value.charAt(i), 16) << 4)
-                    + Character.digit(value.charAt(i + 1), 16));
-        }
-        return offset + value.length() / 2;
+        return HexCodec.hexToBytes(value, dest, offset);
     }
 
     public static int getIntValue(final byte[] source, final int offset, final int formatType) {
@@ -447,79 +400,22 @@ public class ParserUtils {
     }
 
     public static byte[] base64Decode(String s) {
-        return Base64.decode(s, Base64.DEFAULT);
+        return Base64Codec.decode(s);
     }
 
     public static String base64Encode(byte[] b) {
-        return Base64.encodeToString(b, Base64.DEFAULT).trim();
+        return Base64Codec.encode(b);
     }
 
     public static String base64Encode(String s) {
-        return base64Encode(setByteArrayValue(s));
-    }
-
-    private static byte[] setByteArrayValue(String hexString) {
-        int len = hexString.length();
-        byte[] bytes = new byte[len / 2];
-        for (int i = 0; i < len; i += 2) {
-            bytes[i / 2] = (byte) ((Character.digit(hexString.charAt(i), 16) << 4)
-                    + Character.digit(hexString.charAt(i + 1), 16));
-        }
-        return bytes;
+        return base64Encode(HexCodec.hexToBytes(s));
     }
 
     public static String decodeUri(final byte[] serviceData, final int start, final int length) {
-        if (start < 0 || serviceData.length < start + length)
-            return null;
-
-        final StringBuilder uriBuilder = new StringBuilder();
-        int offset = 0;
-        if (offset < length) {
-            byte b = serviceData[start + offset++];
-            String scheme = URI_SCHEMES.get(b);
-            if (scheme != null) {
-                uriBuilder.append(scheme);
-                if (URLUtil.isNetworkUrl(scheme)) {
-                    return decodeUrl(serviceData, start + offset, length - 1, uriBuilder);
-                } else if ("urn:uuid:".equals(scheme)) {
-                    return decodeUrnUuid(serviceData, start + offset, uriBuilder);
-                }
-            }
-            Log.w(TAG, "decodeUri unknown Uri scheme code=" + b);
-        }
-        return null;
-    }
-
-    private static String decodeUrl(final byte[] serviceData, final int start, final int length, final StringBuilder urlBuilder) {
-        int offset = 0;
-        while (offset < length) {
-            byte b = serviceData[start + offset++];
-            String code = URL_CODES.get(b);
-            if (code != null) {
-                urlBuilder.append(code);
-            } else {
-                urlBuilder.append((char) b);
-            }
-        }
-        return urlBuilder.toString();
-    }
-
-    private static String decodeUrnUuid(final byte[] serviceData, final int offset, final StringBuilder urnBuilder) {
-        ByteBuffer bb = ByteBuffer.wrap(serviceData);
-        // UUIDs are ordered as byte array, which means most significant first
-        bb.order(ByteOrder.BIG_ENDIAN);
-        long mostSignificantBytes, leastSignificantBytes;
-        try {
-            bb.position(offset);
-            mostSignificantBytes = bb.getLong();
-            leastSignificantBytes = bb.getLong();
-        } catch (BufferUnderflowException e) {
-            Log.w(TAG, "decodeUrnUuid BufferUnderflowException!");
-            return null;
-        }
-        UUID uuid = new UUID(mostSignificantBytes, leastSignificantBytes);
-        urnBuilder.append(uuid.toString());
-        return urnBuilder.toString();
+        final String uri = URL_DECODER.get().decode(serviceData, start, length);
+        if (uri == null)
+            Log.w(TAG, "decodeUri invalid Uri, scheme code=" + (start >= 0 && start < serviceData.length ? serviceData[start] : -1));
+        return uri;
     }
 
     /**
@@ -529,109 +425,14 @@ public class ParserUtils {
      * @return the Uri string with expansion codes.
      */
     public static byte[] encodeUri(String uri) {
-        if (uri.length() == 0) {
-            return new byte[0];
-        }
-        ByteBuffer bb = ByteBuffer.allocate(uri.length());
-        // UUIDs are ordered as byte array, which means most significant first
-        bb.order(ByteOrder.BIG_ENDIAN);
-        int position = 0;
-
-        // Add the byte code for the scheme or return null if none
-        Byte schemeCode = encodeUriScheme(uri);
-        if (schemeCode == null) {
-            return null;
-        }
-        String scheme = URI_SCHEMES.get(schemeCode);
-        bb.put(schemeCode);
-        position += scheme.length();
-
-        if (URLUtil.isNetworkUrl(scheme)) {
-            return encodeUrl(uri, position, bb);
-        } else if ("urn:uuid:".equals(scheme)) {
-            return encodeUrnUuid(uri, position, bb);
-        }
-        return null;
-    }
-    private static Byte encodeUriScheme(String uri) {
-        String lowerCaseUri = uri.toLowerCase(Locale.ENGLISH);
-        for (int i = 0; i < URI_SCHEMES.size(); i++) {
-            // get the key and value.
-            int key = URI_SCHEMES.keyAt(i);
-            String value = URI_SCHEMES.valueAt(i);
-            if (lowerCaseUri.startsWith(value)) {
-                return (byte) key;
-            }
-        }
-        return null;
-    }
-
-    private static byte[] encodeUrl(String url, int position, ByteBuffer bb) {
-        while (position < url.length()) {
-            byte expansion = findLongestExpansion(url, position);
-            if (expansion >= 0) {
-                bb.put(expansion);
-                position += URL_CODES.get(expansion).length();
-            } else {
-                bb.put((byte) url.charAt(position++));
-            }
-        }
-        return byteBufferToArray(bb);
-    }
-
-    private static byte[] encodeUrnUuid(String urn, int position, ByteBuffer bb) {
-        String uuidString = urn.substring(position, urn.length());
-        UUID uuid;
-        try {
-            uuid = UUID.fromString(uuidString);
-        } catch (IllegalArgumentException e) {
-            Log.w(TAG, "encodeUrnUuid invalid urn:uuid format - " + urn);
-            return null;
-        }
-        // UUIDs are ordered as byte array, which means most significant first
-        bb.order(ByteOrder.BIG_ENDIAN);
-        bb.putLong(uuid.getMostSignificantBits());
-        bb.putLong(uuid.getLeastSignificantBits());
-        return byteBufferToArray(bb);
-    }
-
-    private static byte[] byteBufferToArray(ByteBuffer bb) {
-        byte[] bytes = new byte[bb.position()];
-        bb.rewind();
-        bb.get(bytes, 0, bytes.length);
-        return bytes;
-    }
-
-    /**
-     * Finds the longest expansion from the uri at the current position.
-     *
-     * @param uriString the Uri
-     * @param pos start position
-     * @return an index in URI_MAP or 0 if none.
-     */
-    private static byte findLongestExpansion(String uriString, int pos) {
-        byte expansion = -1;
-        int expansionLength = 0;
-        for (int i = 0; i < URL_CODES.size(); i++) {
-            // get the key and value.
-            int key = URL_CODES.keyAt(i);
-            String value = URL_CODES.valueAt(i);
-            if (value.length() > expansionLength && uriString.startsWith(value, pos)) {
-                expansion = (byte) key;
-                expansionLength = value.length();
-            }
-        }
-        return expansion;
+        final byte[] encoded = URL_ENCODER.get().encode(uri);
+        if (encoded == null)
+            Log.w(TAG, "encodeUri unsupported scheme or invalid urn:uuid format - " + uri);
+        return encoded;
     }
 
     public static byte[] toByteArray(String hexString) {
-        int len = hexString.length();
-        byte[] bytes = new byte[len / 2];
-        for (int i = 0; i < len; i += 2) {
-            bytes[i / 2] = (byte) ((Character.digit(hexString.charAt(i), 16) << 4)
-                    + Character.digit(hexString.charAt(i + 1), 16));
-        }
-        return bytes;
+        return HexCodec.hexToBytes(hexString);
     }
 
     public static int decodeUint16BigEndian(final byte[] data, final int start) {
@@ -660,79 +461,15 @@ public class ParserUtils {
     public static String randomUid(int len) {
         byte[] buf = new byte[len];
         new Random().nextBytes(buf);
-        StringBuilder stringBuilder = new StringBuilder();
-        for (int i = 0; i < len; i++) {
-            stringBuilder.append(String.format("%02x", buf[i]));
-        }
-        return stringBuilder.toString();
+        return HexCodec.encode(buf, 0, len, false);
     }
 
     public static byte[] aes128Encrypt(byte[] data, SecretKeySpec keySpec) {
-        Cipher cipher;
-        try {
-            // Ignore the "ECB encryption should not be used" warning. We use exactly one block so
-            // the difference between ECB and CBC is just an IV or not. In addition our blocks are
-            // always different since they have a monotonic timestamp. Most importantly, our blocks
-            // aren't sensitive. Decrypting them means means knowing the beacon time and its rotation
-            // period. If due to ECB an attacker could find out that the beacon broadcast the same
-            // block a second time, all it could infer is that for some reason the clock of the beacon
-            // reset, which is not very helpful
-            cipher = Cipher.getInstance("AES/ECB/NoPadding");
-        } catch (NoSuchAlgorithmException | NoSuchPaddingException e) {
-            Log.e(TAG, "Error constructing cipher instance", e);
-            return null;
-        }
-
-        try {
-            cipher.init(Cipher.ENCRYPT_MODE, keySpec);
-        } catch (InvalidKeyException e) {
-            Log.e(TAG, "Error initializing cipher instance", e);
-            return null;
-        }
-
-        byte[] ret;
-        try {
-            ret = cipher.doFinal(data);
-        } catch (IllegalBlockSizeException | BadPaddingException e) {
-            Log.e(TAG, "Error executing cipher", e);
-            return null;
-        }
-
-        return ret;
+        return AesEcbCipher.encrypt(data, keySpec);
     }
 
     public static byte[] aes128decrypt(byte[] data, SecretKeySpec keySpec) {
-        Cipher cipher;
-        try {
-            // Ignore the "ECB encryption should not be used" warning. We use exactly one block so
-            // the difference between ECB and CBC is just an IV or not. In addition our blocks are
-            // always different since they have a monotonic timestamp. Most importantly, our blocks
-            // aren't sensitive. Decrypting them means means knowing the beacon time and its rotation
-            // period. If due to ECB an attacker could find out that the beacon broadcast the same
-            // block a second time, all it could infer is that for some reason the clock of the beacon
-            // reset, which is not very helpful
-            cipher = Cipher.getInstance("AES/ECB/NoPadding");
-        } catch (NoSuchAlgorithmException | NoSuchPaddingException e) {
-            Log.e(TAG, "Error constructing cipher instance", e);
-            return null;
-        }
-
-        try {
-            cipher.init(Cipher.DECRYPT_MODE, keySpec);
-        } catch (InvalidKeyException e) {
-            Log.e(TAG, "Error initializing cipher instance", e);
-            return null;
-        }
-
-        byte[] ret;
-        try {
-            ret = cipher.doFinal(data);
-        } catch (IllegalBlockSizeException | BadPaddingException e) {
-            Log.e(TAG, "Error executing cipher", e);
-            return null;
-        }
-
-        return ret;
+        return AesEcbCipher.decrypt(data, keySpec);
     }
 
     public static String parse(final byte[] bytes, final int offset, final int length, final String unit) {
@@ -0,0 +1,71 @@
+// Copyright 2015 Google Inc. All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//    http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.sample.libeddystoneeidr;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks batch scalar multiplication, which shares one field inversion across the batch.
+ * Scores are keys per second: every invocation computes {@link #BATCH_KEYS} keys, split into
+ * batches of {@code batchSize}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class Curve25519BatchBenchmark {
+  private static final int BATCH_KEYS = 4096;
+
+  @Param({ "1", "16", "256", "4096" })
+  public int batchSize;
+
+  private byte[][][] batches;
+
+  @Setup
+  public void setUp() {
+    Random random = new Random(42);
+    batches = new byte[BATCH_KEYS / batchSize][batchSize][32];
+    for (byte[][] batch : batches) {
+      for (byte[] scalar : batch) {
+        random.nextBytes(scalar);
+      }
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH_KEYS)
+  public int scalarMultBase() {
+    int sink = 0;
+    for (byte[][] batch : batches) {
+      sink += Curve25519.scalarMultBase(batch)[0][0];
+    }
+    return sink;
+  }
+}
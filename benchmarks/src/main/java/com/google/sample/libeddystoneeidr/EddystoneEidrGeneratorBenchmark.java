@@ -0,0 +1,113 @@
+// Copyright 2015 Google Inc. All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//    http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.sample.libeddystoneeidr;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Benchmarks of the EID computation steps: identity key derivation (ECDH plus HKDF), EID
+ * generation at every rotation period exponent, and the underlying AES block encryption.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EddystoneEidrGeneratorBenchmark {
+  /**
+   * The timeline of one beacon. Only the EID benchmarks use it, so only they are run for every
+   * rotation period exponent.
+   */
+  @State(Scope.Thread)
+  public static class Timeline {
+    @Param({ "0", "1", "2", "3", "4", "5", "6", "7", "8", "9", "10", "11", "12", "13", "14", "15" })
+    public int rotationPeriodExponent;
+
+    private int timestampSeconds = 0x12345678;
+
+    /**
+     * Moves to the next window, as when walking a beacon's timeline.
+     */
+    int nextWindow() {
+      timestampSeconds += 1 << rotationPeriodExponent;
+      return timestampSeconds;
+    }
+  }
+
+  private EddystoneEidrGenerator keyPairGenerator;
+  private EddystoneEidrGenerator identityKeyGenerator;
+  private SecretKeySpec keySpec;
+  private byte[] block;
+  private byte[] eidr;
+
+  @Setup
+  public void setUp() {
+    Random random = new Random(42);
+    byte[] serviceKey = new byte[32];
+    random.nextBytes(serviceKey);
+    byte[] privateKey = new byte[32];
+    random.nextBytes(privateKey);
+    keyPairGenerator = new EddystoneEidrGenerator(serviceKey, privateKey);
+
+    identityKeyGenerator = new EddystoneEidrGenerator();
+    identityKeyGenerator.setIdentityKey(keyPairGenerator.getIdentityKey());
+
+    byte[] key = new byte[16];
+    random.nextBytes(key);
+    keySpec = new SecretKeySpec(key, "AES");
+    block = new byte[16];
+    random.nextBytes(block);
+    eidr = new byte[EddystoneEidrGenerator.EIDR_LENGTH];
+  }
+
+  /**
+   * Full ECDH shared secret plus HKDF.
+   */
+  @Benchmark
+  public byte[] getIdentityKey() {
+    return keyPairGenerator.getIdentityKey();
+  }
+
+  @Benchmark
+  public byte[] getEidr(Timeline timeline) {
+    return identityKeyGenerator.getEidr(timeline.rotationPeriodExponent, timeline.nextWindow());
+  }
+
+  @Benchmark
+  public byte[] getEidrIntoBuffer(Timeline timeline) {
+    identityKeyGenerator.getEidr(timeline.rotationPeriodExponent, timeline.nextWindow(), eidr, 0);
+    return eidr;
+  }
+
+  @Benchmark
+  public byte[] aes128Encrypt() {
+    return identityKeyGenerator.aes128Encrypt(block, keySpec);
+  }
+}
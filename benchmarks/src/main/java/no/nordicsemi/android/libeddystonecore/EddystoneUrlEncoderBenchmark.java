@@ -0,0 +1,144 @@
+/*************************************************************************************************************************************************
+ * Copyright (c) 2015, Nordic Semiconductor
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE
+ * USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ************************************************************************************************************************************************/
+package no.nordicsemi.android.libeddystonecore;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.Locale;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link EddystoneUrlEncoder} with the greedy encoder that ParserUtils used before, over a fleet of generated URLs.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EddystoneUrlEncoderBenchmark {
+    private static final int FLEET_SIZE = 4096;
+    private static final String[] HOSTS = {"nordicsemi", "example", "goo.gl/", "physical-web", "a", "beacons.info"};
+    private static final String[] TLDS = {".com", ".org", ".edu", ".net", ".info", ".biz", ".gov", ".io", ".co.uk"};
+
+    private final EddystoneUrlEncoder encoder = new EddystoneUrlEncoder();
+    private String[] uris;
+
+    @Setup
+    public void setUp() {
+        final Random random = new Random(42);
+        uris = new String[FLEET_SIZE];
+        for (int i = 0; i < uris.length; i++) {
+            if (i % 16 == 0) {
+                uris[i] = "urn:uuid:" + new UUID(random.nextLong(), random.nextLong());
+                continue;
+            }
+            final StringBuilder builder = new StringBuilder(EddystoneUrlEncoder.SCHEMES[random.nextInt(4)]);
+            builder.append(HOSTS[random.nextInt(HOSTS.length)]).append(TLDS[random.nextInt(TLDS.length)]);
+            if (random.nextBoolean())
+                builder.append('/').append(Integer.toString(random.nextInt(100000), 36));
+            uris[i] = builder.toString();
+        }
+    }
+
+    @Benchmark
+    public int greedy() {
+        int total = 0;
+        for (final String uri : uris)
+            total += GreedyEncoder.encodeUri(uri).length;
+        return total;
+    }
+
+    @Benchmark
+    public int optimal() {
+        int total = 0;
+        for (final String uri : uris)
+            total += encoder.encode(uri).length;
+        return total;
+    }
+
+    @Benchmark
+    public byte[][] optimalBulk() {
+        return encoder.encodeAll(uris);
+    }
+
+    /**
+     * The encoder previously in ParserUtils, without the Android classes: the first matching scheme, then the longest code
+     * at every position found by comparing each code.
+     */
+    static final class GreedyEncoder {
+        static byte[] encodeUri(final String uri) {
+            if (uri.length() == 0)
+                return new byte[0];
+            final ByteBuffer bb = ByteBuffer.allocate(uri.length());
+            final String lowerCaseUri = uri.toLowerCase(Locale.ENGLISH);
+            int scheme = -1;
+            for (int i = 0; i < EddystoneUrlEncoder.SCHEMES.length && scheme < 0; i++) {
+                if (lowerCaseUri.startsWith(EddystoneUrlEncoder.SCHEMES[i]))
+                    scheme = i;
+            }
+            if (scheme < 0)
+                return null;
+            bb.put((byte) scheme);
+            int position = EddystoneUrlEncoder.SCHEMES[scheme].length();
+            if (scheme == 4) {
+                final UUID uuid = UUID.fromString(uri.substring(position));
+                bb.putLong(uuid.getMostSignificantBits());
+                bb.putLong(uuid.getLeastSignificantBits());
+            } else {
+                while (position < uri.length()) {
+                    byte expansion = -1;
+                    int expansionLength = 0;
+                    for (int i = 0; i < EddystoneUrlEncoder.CODES.length; i++) {
+                        final String value = EddystoneUrlEncoder.CODES[i];
+                        if (value.length() > expansionLength && uri.startsWith(value, position)) {
+                            expansion = (byte) i;
+                            expansionLength = value.length();
+                        }
+                    }
+                    if (expansion >= 0) {
+                        bb.put(expansion);
+                        position += expansionLength;
+                    } else {
+                        bb.put((byte) uri.charAt(position++));
+                    }
+                }
+            }
+            final byte[] bytes = new byte[bb.position()];
+            bb.rewind();
+            bb.get(bytes);
+            return bytes;
+        }
+    }
+}
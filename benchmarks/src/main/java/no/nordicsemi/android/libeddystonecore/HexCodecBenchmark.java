@@ -0,0 +1,112 @@
+/*************************************************************************************************************************************************
+ * Copyright (c) 2015, Nordic Semiconductor
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE
+ * USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ************************************************************************************************************************************************/
+package no.nordicsemi.android.libeddystonecore;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link HexCodec} with the code it replaced in ParserUtils and the lock code dialogs, on 16-byte values such as
+ * lock codes and instance ids.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HexCodecBenchmark {
+    private static final String PATTERN_LOCK_CODE = "[0-9a-fA-F]{32}";
+
+    private byte[] bytes;
+    private String hex;
+    private final char[] chars = new char[32];
+    private final byte[] decoded = new byte[16];
+
+    @Setup
+    public void setUp() {
+        bytes = new byte[16];
+        new Random(42).nextBytes(bytes);
+        hex = HexCodec.bytesToHex(bytes, 0, bytes.length, false);
+    }
+
+    /** ParserUtils.randomUid() formatting before. */
+    @Benchmark
+    public String encodeStringFormat() {
+        final StringBuilder stringBuilder = new StringBuilder();
+        for (int i = 0; i < bytes.length; i++) {
+            stringBuilder.append(String.format("%02x", bytes[i]));
+        }
+        return stringBuilder.toString();
+    }
+
+    @Benchmark
+    public String encode() {
+        return HexCodec.encode(bytes, 0, bytes.length, false);
+    }
+
+    @Benchmark
+    public char[] encodeIntoBuffer() {
+        HexCodec.encode(bytes, 0, bytes.length, chars, 0, false);
+        return chars;
+    }
+
+    /** ParserUtils.toByteArray() before. */
+    @Benchmark
+    public byte[] decodeCharacterDigit() {
+        final int len = hex.length();
+        final byte[] result = new byte[len / 2];
+        for (int i = 0; i < len; i += 2) {
+            result[i / 2] = (byte) ((Character.digit(hex.charAt(i), 16) << 4)
+                    + Character.digit(hex.charAt(i + 1), 16));
+        }
+        return result;
+    }
+
+    @Benchmark
+    public byte[] decodeIntoBuffer() {
+        HexCodec.decode(hex, 0, 16, decoded, 0);
+        return decoded;
+    }
+
+    /** The lock code dialogs before. */
+    @Benchmark
+    public boolean validateRegex() {
+        return hex.matches(PATTERN_LOCK_CODE);
+    }
+
+    @Benchmark
+    public boolean validate() {
+        return HexCodec.isLockCode(hex);
+    }
+}
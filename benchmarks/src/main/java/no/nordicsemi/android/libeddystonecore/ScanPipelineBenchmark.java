@@ -0,0 +1,161 @@
+/*************************************************************************************************************************************************
+ * Copyright (c) 2015, Nordic Semiconductor
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE
+ * USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ************************************************************************************************************************************************/
+package no.nordicsemi.android.libeddystonecore;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Feeds a {@link SyntheticScanStream} through the device model of the scanner, batch by batch, the way the scan processor of
+ * the app replays a scan log: every result is matched by its address, its local name and Eddystone service data are parsed
+ * from the advertising data, and it is merged into a {@link DeviceTable}, which decodes the frame and filters the RSSI. The
+ * table is sorted after every batch, and devices not seen for {@link #DEVICE_TIMEOUT} are removed once per second of stream
+ * time, as in continuous scanning.
+ * <p>
+ * {@link #throughput} reports scan results per second as the "results" counter, {@link #latency} the distribution of the
+ * batch latency, including the 99th percentile. Run with the GC profiler for the allocation per batch. See
+ * {@link ScanPipelineGate} for comparing runs.
+ * </p>
+ */
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 2)
+// A fixed heap, so that the GC pauses in the latency tail do not depend on how much memory the machine has
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Thread)
+public class ScanPipelineBenchmark {
+    /** Same as in continuous scanning in the app. */
+    private static final long DEVICE_TIMEOUT = 15000;
+    private static final long EXPIRY_INTERVAL = 1000;
+    private static final int STREAM_SECONDS = 60;
+
+    /** Beacons in range at any time. */
+    @Param({"1000", "5000"})
+    public int beacons;
+
+    /** Relative frequency of UID, URL, TLM and EID frames. */
+    @Param({"40:20:20:20"})
+    public String frameMix;
+
+    /** Standard deviation of the RSSI, in dB. */
+    @Param({"6"})
+    public float rssiNoise;
+
+    /** Share of the beacons replaced every second. */
+    @Param({"0.02"})
+    public float churn;
+
+    /** Scan results per batch; 1000 beacons at one advertisement per second fill a 0.5 s batch with 500. */
+    @Param({"500"})
+    public int batchSize;
+
+    private SyntheticScanStream mStream;
+    private DeviceTable<TrackedDevice> mTable;
+    private LongIntHashMap mIndex;
+    private final List<TrackedDevice> mExpired = new ArrayList<>();
+    private long mNextExpiry;
+
+    /**
+     * Counts the scan results processed, reported per second next to the batches per second.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters {
+        public long results;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            results = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        mStream = new SyntheticScanStream(beacons, SyntheticScanStream.parseFrameMix(frameMix), rssiNoise, churn,
+                STREAM_SECONDS, 42);
+        mTable = new DeviceTable<>();
+        mIndex = new LongIntHashMap(beacons);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public int throughput(final Counters counters) {
+        counters.results += batchSize;
+        return processBatch();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public int latency() {
+        return processBatch();
+    }
+
+    private int processBatch() {
+        final SyntheticScanStream stream = mStream;
+        final DeviceTable<TrackedDevice> table = mTable;
+        for (int i = 0; i < batchSize; i++) {
+            stream.next();
+            final byte[] data = stream.getData();
+            final int offset = stream.getDataOffset();
+            final int length = stream.getDataLength();
+            final long address = stream.getAddress();
+            final String name = AdvertisingData.getLocalName(data, offset, length);
+            final byte[] serviceData = AdvertisingData.getServiceData(data, offset, length, AdvertisingData.EDDYSTONE_SERVICE_UUID);
+
+            final int slot = mIndex.get(address);
+            TrackedDevice device = slot != LongIntHashMap.NO_VALUE ? table.get(slot) : null;
+            if (device == null) {
+                device = new TrackedDevice(address, table.nextSlot());
+                mIndex.put(address, device.slot);
+                table.add(device);
+            }
+            table.update(device, name, stream.getRssi(), stream.getTimestampNanos(), serviceData);
+        }
+        final boolean moved = table.sort();
+
+        final long now = stream.getTimestampNanos() / 1000000;
+        if (now >= mNextExpiry) {
+            table.expire(now, DEVICE_TIMEOUT, mExpired);
+            for (final TrackedDevice device : mExpired)
+                mIndex.remove(device.address, device.slot);
+            mExpired.clear();
+            mNextExpiry = now + EXPIRY_INTERVAL;
+        }
+        return moved ? table.size() : -table.size();
+    }
+}
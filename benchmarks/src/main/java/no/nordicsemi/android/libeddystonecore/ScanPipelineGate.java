@@ -0,0 +1,200 @@
+/*************************************************************************************************************************************************
+ * Copyright (c) 2015, Nordic Semiconductor
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE
+ * USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ************************************************************************************************************************************************/
+package no.nordicsemi.android.libeddystonecore;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * Runs the {@link ScanPipelineBenchmark} and compares scan results per second, the 99th percentile of the batch latency and
+ * the bytes allocated per scan result with a baseline saved on a known good commit. Exits with status 1 if any of them is
+ * worse than the baseline by more than the tolerance, so scanner changes can be checked before they are shipped.
+ * <p>
+ * Usage: {@code ScanPipelineGate <baseline file> [--save] [--tolerance 0.1]}. With {@code --save}, or if the baseline does
+ * not exist yet, the results are saved as the new baseline instead. Baselines depend on the machine, so they should be
+ * saved and compared on the same one.
+ * </p>
+ */
+public final class ScanPipelineGate {
+    private static final double DEFAULT_TOLERANCE = 0.1;
+    private static final String RESULTS_PER_SECOND = "resultsPerSecond";
+    private static final String P99_MICROS = "p99Micros";
+    private static final String BYTES_PER_RESULT = "bytesPerResult";
+    /** Secondary result of the GC profiler; the name starts with a middle dot. */
+    private static final String ALLOCATION_SUFFIX = "gc.alloc.rate.norm";
+
+    private ScanPipelineGate() {
+    }
+
+    public static void main(final String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: ScanPipelineGate <baseline file> [--save] [--tolerance 0.1]");
+            System.exit(2);
+        }
+        final File baselineFile = new File(args[0]);
+        boolean save = false;
+        double tolerance = DEFAULT_TOLERANCE;
+        for (int i = 1; i < args.length; i++) {
+            if ("--save".equals(args[i]))
+                save = true;
+            else if ("--tolerance".equals(args[i]) && i + 1 < args.length)
+                tolerance = Double.parseDouble(args[++i]);
+            else
+                throw new IllegalArgumentException("Unknown option: " + args[i]);
+        }
+
+        final Collection<RunResult> runs = new Runner(new OptionsBuilder()
+                .include(ScanPipelineBenchmark.class.getName() + "\\.")
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+        final Properties current = collect(runs);
+
+        if (save || !baselineFile.exists()) {
+            final OutputStream out = new FileOutputStream(baselineFile);
+            try {
+                current.store(out, "Scan pipeline baseline");
+            } finally {
+                out.close();
+            }
+            System.out.println("Baseline saved to " + baselineFile);
+            return;
+        }
+
+        final Properties baseline = new Properties();
+        final InputStream in = new FileInputStream(baselineFile);
+        try {
+            baseline.load(in);
+        } finally {
+            in.close();
+        }
+        final int regressions = compare(baseline, current, tolerance);
+        if (regressions > 0) {
+            System.out.println(regressions + " regression(s) against " + baselineFile);
+            System.exit(1);
+        }
+        System.out.println("No regressions against " + baselineFile);
+    }
+
+    /**
+     * Takes the metrics of every parameter combination from the runs.
+     */
+    private static Properties collect(final Collection<RunResult> runs) {
+        final Properties metrics = new Properties();
+        for (final RunResult run : runs) {
+            final BenchmarkParams params = run.getParams();
+            final String key = key(params);
+            if (params.getMode() == Mode.Throughput) {
+                final Result<?> results = run.getSecondaryResults().get("results");
+                if (results != null)
+                    metrics.setProperty(key + RESULTS_PER_SECOND, format(results.getScore()));
+                final Result<?> allocation = findAllocation(run);
+                if (allocation != null) {
+                    final int batchSize = Integer.parseInt(params.getParam("batchSize"));
+                    metrics.setProperty(key + BYTES_PER_RESULT, format(allocation.getScore() / batchSize));
+                }
+            } else if (params.getMode() == Mode.SampleTime) {
+                metrics.setProperty(key + P99_MICROS, format(run.getPrimaryResult().getStatistics().getPercentile(99)));
+            }
+        }
+        return metrics;
+    }
+
+    /**
+     * Prints every metric next to its baseline.
+     *
+     * @return the number of metrics worse than the baseline by more than the tolerance, plus the number of baseline metrics
+     * missing from the run
+     */
+    private static int compare(final Properties baseline, final Properties current, final double tolerance) {
+        final List<String> names = new ArrayList<>(current.stringPropertyNames());
+        Collections.sort(names);
+        int regressions = 0;
+        for (final String name : names) {
+            final double value = Double.parseDouble(current.getProperty(name));
+            final String baselineValue = baseline.getProperty(name);
+            if (baselineValue == null) {
+                System.out.println(String.format(Locale.ROOT, "%-80s %12.1f (no baseline)", name, value));
+                continue;
+            }
+            final double base = Double.parseDouble(baselineValue);
+            final boolean regressed;
+            if (name.endsWith(RESULTS_PER_SECOND))
+                regressed = value < base * (1 - tolerance);
+            else if (name.endsWith(BYTES_PER_RESULT))
+                // Allows for the odd byte of rounding when the baseline allocates nothing
+                regressed = value > base * (1 + tolerance) + 1;
+            else
+                regressed = value > base * (1 + tolerance);
+            if (regressed)
+                regressions++;
+            System.out.println(String.format(Locale.ROOT, "%-80s %12.1f %12.1f%s", name, value, base, regressed ? "  REGRESSION" : ""));
+        }
+
+        // A metric that is no longer reported, e.g. because the gc profiler is missing, must not pass unnoticed
+        final List<String> missing = new ArrayList<>(baseline.stringPropertyNames());
+        missing.removeAll(current.stringPropertyNames());
+        Collections.sort(missing);
+        for (final String name : missing) {
+            regressions++;
+            System.out.println(String.format(Locale.ROOT, "%-80s %12s %12s  MISSING", name, "-", baseline.getProperty(name)));
+        }
+        return regressions;
+    }
+
+    private static String key(final BenchmarkParams params) {
+        final List<String> names = new ArrayList<>(params.getParamsKeys());
+        Collections.sort(names);
+        final StringBuilder key = new StringBuilder();
+        for (final String name : names)
+            key.append(name).append('=').append(params.getParam(name)).append(',');
+        key.setLength(key.length() - 1);
+        return key.append('.').toString();
+    }
+
+    private static Result<?> findAllocation(final RunResult run) {
+        for (final String name : run.getSecondaryResults().keySet())
+            if (name.endsWith(ALLOCATION_SUFFIX))
+                return run.getSecondaryResults().get(name);
+        return null;
+    }
+
+    private static String format(final double value) {
+        return String.format(Locale.ROOT, "%.1f", value);
+    }
+}
@@ -0,0 +1,288 @@
+/*************************************************************************************************************************************************
+ * Copyright (c) 2015, Nordic Semiconductor
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE
+ * USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ************************************************************************************************************************************************/
+package no.nordicsemi.android.libeddystonecore;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * A synthetic stream of Eddystone advertisements, as seen by a scanner in a dense deployment.
+ * <p>
+ * A fixed number of beacons is in range at any time. Every beacon advertises once per second at its own phase, each time
+ * one of its UID, URL, TLM and EID frames picked at random by the given weights. UID and URL payloads stay the same, TLM
+ * frames carry a new advertising count every time and EIDs rotate every {@link #EID_ROTATION_SECONDS} seconds. The RSSI
+ * follows each beacon's distance with Gaussian noise, and every second a share of the beacons leaves and is replaced by new
+ * ones.
+ * </p>
+ * <p>
+ * The records of a few seconds are generated up front into primitive arrays, so reading the stream costs next to nothing
+ * and allocates nothing. When the end is reached the stream starts over with the timestamps moved forward, so it can be
+ * read for as long as needed.
+ * </p>
+ * Instances are not thread-safe.
+ */
+public final class SyntheticScanStream {
+    /** Indices of the frame weights. */
+    public static final int FRAME_UID = 0;
+    public static final int FRAME_URL = 1;
+    public static final int FRAME_TLM = 2;
+    public static final int FRAME_EID = 3;
+
+    /** Much shorter than real rotation periods, so that the stream contains enough rotations. */
+    private static final int EID_ROTATION_SECONDS = 10;
+    private static final long SECOND_NANOS = 1000000000L;
+    private static final int TX_POWER = -20;
+    private static final int MIN_RSSI = -100;
+    private static final int MAX_RSSI = -30;
+    private static final char[] URL_CHARACTERS = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789".toCharArray();
+    /** Flags, LE General Discoverable and BR/EDR not supported, followed by the complete list of 16-bit UUIDs: 0xFEAA. */
+    private static final byte[] AD_HEADER = {0x02, 0x01, 0x06, 0x03, 0x03, (byte) 0xAA, (byte) 0xFE};
+
+    private final int mCount;
+    private final long[] mTimestamps;
+    private final long[] mAddresses;
+    private final byte[] mRssi;
+    /** Start of the advertising data of each record in {@link #mData}, followed by the end of the last one. */
+    private final int[] mOffsets;
+    private final byte[] mData;
+    private final long mDurationNanos;
+
+    private int mPosition = -1;
+    private long mLapNanos;
+
+    // Beacons in range, indexed by their place in the advertising order
+    private final Random mRandom;
+    private final long[] mBeaconAddresses;
+    private final float[] mBeaconRssi;
+    private final byte[][] mBeaconIds;
+    private final byte[][] mBeaconUrls;
+    private final long[] mBeaconEidKeys;
+    private final int[] mBeaconAdvertisements;
+
+    /**
+     * @param beacons        the number of beacons in range at any time
+     * @param frameWeights   relative frequency of UID, URL, TLM and EID frames, see {@link #parseFrameMix(String)}
+     * @param rssiNoise      standard deviation of the RSSI, in dB
+     * @param churn          share of the beacons replaced every second, in [0, 1]
+     * @param seconds        length of the stream before it starts over
+     * @param seed           seed of the random numbers, so that runs can be compared
+     */
+    public SyntheticScanStream(final int beacons, final int[] frameWeights, final float rssiNoise, final float churn,
+                               final int seconds, final long seed) {
+        if (beacons < 1 || seconds < 1)
+            throw new IllegalArgumentException("At least one beacon and one second are needed");
+        if (frameWeights.length != 4)
+            throw new IllegalArgumentException("Weights of UID, URL, TLM and EID frames expected");
+        if (!(churn >= 0 && churn <= 1))
+            throw new IllegalArgumentException("Churn must be in [0, 1]");
+        int totalWeight = 0;
+        for (final int weight : frameWeights) {
+            if (weight < 0)
+                throw new IllegalArgumentException("Frame weights must not be negative");
+            totalWeight += weight;
+        }
+        if (totalWeight == 0)
+            throw new IllegalArgumentException("At least one frame type must have a weight");
+
+        mRandom = new Random(seed);
+        mBeaconAddresses = new long[beacons];
+        mBeaconRssi = new float[beacons];
+        mBeaconIds = new byte[beacons][16];
+        mBeaconUrls = new byte[beacons][];
+        mBeaconEidKeys = new long[beacons];
+        mBeaconAdvertisements = new int[beacons];
+        for (int i = 0; i < beacons; i++)
+            replaceBeacon(i);
+        // Beacons advertise in this order within every second
+        final long[] phases = new long[beacons];
+        for (int i = 0; i < beacons; i++)
+            phases[i] = (long) (mRandom.nextDouble() * SECOND_NANOS);
+        Arrays.sort(phases);
+
+        mCount = beacons * seconds;
+        mTimestamps = new long[mCount];
+        mAddresses = new long[mCount];
+        mRssi = new byte[mCount];
+        mOffsets = new int[mCount + 1];
+        mDurationNanos = seconds * SECOND_NANOS;
+        final ByteArrayOutputStream data = new ByteArrayOutputStream(mCount * 32);
+        float leaving = 0;
+        int record = 0;
+        for (int second = 0; second < seconds; second++) {
+            for (int i = 0; i < beacons; i++, record++) {
+                mTimestamps[record] = second * SECOND_NANOS + phases[i];
+                mAddresses[record] = mBeaconAddresses[i];
+                final long rssi = Math.round(mBeaconRssi[i] + mRandom.nextGaussian() * rssiNoise);
+                mRssi[record] = (byte) Math.max(MIN_RSSI, Math.min(MAX_RSSI, rssi));
+                mOffsets[record] = data.size();
+                writeAdvertisement(data, i, pickFrame(frameWeights, totalWeight), second);
+            }
+            leaving += beacons * churn;
+            for (; leaving >= 1; leaving--)
+                replaceBeacon(mRandom.nextInt(beacons));
+        }
+        mOffsets[mCount] = data.size();
+        mData = data.toByteArray();
+    }
+
+    /**
+     * Parses frame weights given as "UID:URL:TLM:EID", e.g. "40:20:20:20".
+     */
+    public static int[] parseFrameMix(final String mix) {
+        final String[] parts = mix.split(":");
+        if (parts.length != 4)
+            throw new IllegalArgumentException("Frame mix must be UID:URL:TLM:EID, was " + mix);
+        final int[] weights = new int[4];
+        for (int i = 0; i < 4; i++)
+            weights[i] = Integer.parseInt(parts[i].trim());
+        return weights;
+    }
+
+    /**
+     * Moves to the next record, starting over at the end of the stream.
+     */
+    public void next() {
+        if (++mPosition == mCount) {
+            mPosition = 0;
+            mLapNanos += mDurationNanos;
+        }
+    }
+
+    /** Returns the number of records before the stream starts over. */
+    public int size() {
+        return mCount;
+    }
+
+    public long getTimestampNanos() {
+        return mLapNanos + mTimestamps[mPosition];
+    }
+
+    public long getAddress() {
+        return mAddresses[mPosition];
+    }
+
+    public int getRssi() {
+        return mRssi[mPosition];
+    }
+
+    /** Returns the array holding the advertising data of all records, see {@link #getDataOffset()}. */
+    public byte[] getData() {
+        return mData;
+    }
+
+    public int getDataOffset() {
+        return mOffsets[mPosition];
+    }
+
+    public int getDataLength() {
+        return mOffsets[mPosition + 1] - mOffsets[mPosition];
+    }
+
+    /**
+     * Writes one pass over the stream to a scan log, so that the same scenario can be replayed in the app.
+     */
+    public void writeTo(final ScanLogWriter writer) throws IOException {
+        for (int i = 0; i < mCount; i++)
+            writer.append(mTimestamps[i], mAddresses[i], mRssi[i], mData, mOffsets[i], mOffsets[i + 1] - mOffsets[i]);
+        writer.flush();
+    }
+
+    private int pickFrame(final int[] weights, final int totalWeight) {
+        int value = mRandom.nextInt(totalWeight);
+        int frame = 0;
+        while (value >= weights[frame])
+            value -= weights[frame++];
+        return frame;
+    }
+
+    /**
+     * Puts a new beacon, with a new address and at a new distance, in place of the given one.
+     */
+    private void replaceBeacon(final int beacon) {
+        final Random random = mRandom;
+        mBeaconAddresses[beacon] = random.nextLong() & 0xFFFFFFFFFFFFL;
+        // Up to 30 m away, more of them far than near
+        final double distance = 0.5 + 29.5 * Math.sqrt(random.nextDouble());
+        mBeaconRssi[beacon] = (float) (TX_POWER - 41 - 20 * Math.log10(distance));
+        random.nextBytes(mBeaconIds[beacon]);
+        // https://goo.gl/ followed by 7 characters
+        final byte[] url = new byte[2 + 1 + 7 + 7];
+        url[0] = EddystoneFrame.TYPE_URL;
+        url[1] = TX_POWER;
+        url[2] = 0x03;
+        System.arraycopy("goo.gl/".getBytes(), 0, url, 3, 7);
+        for (int i = 10; i < url.length; i++)
+            url[i] = (byte) URL_CHARACTERS[random.nextInt(URL_CHARACTERS.length)];
+        mBeaconUrls[beacon] = url;
+        mBeaconEidKeys[beacon] = random.nextLong();
+        mBeaconAdvertisements[beacon] = 0;
+    }
+
+    private void writeAdvertisement(final ByteArrayOutputStream out, final int beacon, final int frame, final int second) {
+        final byte[] payload;
+        switch (frame) {
+            case FRAME_UID:
+                payload = new byte[20];
+                payload[0] = EddystoneFrame.TYPE_UID;
+                payload[1] = TX_POWER;
+                System.arraycopy(mBeaconIds[beacon], 0, payload, 2, 16);
+                break;
+            case FRAME_URL:
+                payload = mBeaconUrls[beacon];
+                break;
+            case FRAME_TLM: {
+                // 3000 mV, 22.5 degrees, advertising count and tenths of seconds since boot
+                final int count = ++mBeaconAdvertisements[beacon];
+                payload = new byte[]{EddystoneFrame.TYPE_TLM, 0x00, 0x0B, (byte) 0xB8, 0x16, (byte) 0x80,
+                        (byte) (count >>> 24), (byte) (count >>> 16), (byte) (count >>> 8), (byte) count,
+                        0, 0, (byte) (second * 10 >>> 8), (byte) (second * 10)};
+                break;
+            }
+            default: {
+                payload = new byte[10];
+                payload[0] = EddystoneFrame.TYPE_EID;
+                payload[1] = TX_POWER;
+                long eid = mix(mBeaconEidKeys[beacon] + second / EID_ROTATION_SECONDS);
+                for (int i = 9; i >= 2; i--, eid >>>= 8)
+                    payload[i] = (byte) eid;
+                break;
+            }
+        }
+        out.write(AD_HEADER, 0, AD_HEADER.length);
+        out.write(3 + payload.length);
+        out.write(AdvertisingData.TYPE_SERVICE_DATA_16_BIT);
+        out.write(AdvertisingData.EDDYSTONE_SERVICE_UUID & 0xFF);
+        out.write(AdvertisingData.EDDYSTONE_SERVICE_UUID >> 8);
+        out.write(payload, 0, payload.length);
+    }
+
+    /**
+     * SplitMix64 finalizer, a stand-in for the AES based EID computation.
+     */
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+}
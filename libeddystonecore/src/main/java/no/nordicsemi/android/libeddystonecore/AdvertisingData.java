@@ -0,0 +1,80 @@
+/*************************************************************************************************************************************************
+ * Copyright (c) 2015, Nordic Semiconductor
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE
+ * USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ************************************************************************************************************************************************/
+package no.nordicsemi.android.libeddystonecore;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Reads fields of raw Bluetooth LE advertising data, a sequence of length, type and value structures, e.g. as stored in a scan
+ * log.
+ */
+public final class AdvertisingData {
+    public static final int TYPE_SHORTENED_LOCAL_NAME = 0x08;
+    public static final int TYPE_COMPLETE_LOCAL_NAME = 0x09;
+    public static final int TYPE_SERVICE_DATA_16_BIT = 0x16;
+
+    /** The 16-bit UUID of the Eddystone service. */
+    public static final int EDDYSTONE_SERVICE_UUID = 0xFEAA;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private AdvertisingData() {
+    }
+
+    /**
+     * Returns a copy of the service data of the given 16-bit service UUID, without the UUID, or null if there is none.
+     */
+    public static byte[] getServiceData(final byte[] data, final int offset, final int length, final int uuid16) {
+        final int end = Math.min(offset + length, data.length);
+        for (int i = offset; i < end; ) {
+            final int fieldLength = data[i] & 0xFF;
+            if (fieldLength == 0 || i + 1 + fieldLength > end)
+                break;
+            if ((data[i + 1] & 0xFF) == TYPE_SERVICE_DATA_16_BIT && fieldLength >= 3
+                    && ((data[i + 2] & 0xFF) | (data[i + 3] & 0xFF) << 8) == uuid16)
+                return Arrays.copyOfRange(data, i + 4, i + 1 + fieldLength);
+            i += 1 + fieldLength;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the complete local name, or the shortened one if the complete one is missing, or null if there is neither.
+     */
+    public static String getLocalName(final byte[] data, final int offset, final int length) {
+        final int end = Math.min(offset + length, data.length);
+        String shortened = null;
+        for (int i = offset; i < end; ) {
+            final int fieldLength = data[i] & 0xFF;
+            if (fieldLength == 0 || i + 1 + fieldLength > end)
+                break;
+            final int type = data[i + 1] & 0xFF;
+            if (type == TYPE_COMPLETE_LOCAL_NAME)
+                return new String(data, i + 2, fieldLength - 1, UTF_8);
+            if (type == TYPE_SHORTENED_LOCAL_NAME && shortened == null)
+                shortened = new String(data, i + 2, fieldLength - 1, UTF_8);
+            i += 1 + fieldLength;
+        }
+        return shortened;
+    }
+}
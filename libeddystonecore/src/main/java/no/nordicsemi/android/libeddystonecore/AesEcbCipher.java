@@ -0,0 +1,133 @@
+/*************************************************************************************************************************************************
+ * Copyright (c) 2015, Nordic Semiconductor
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE
+ * USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ************************************************************************************************************************************************/
+package no.nordicsemi.android.libeddystonecore;
+
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.crypto.Cipher;
+
+/**
+ * AES-128 in ECB mode without padding, used for the single blocks of the Eddystone GATT configuration service (lock codes,
+ * identity keys) and the EID computation.
+ * <p>
+ * Creating a {@link Cipher} involves a provider lookup and is far more expensive than encrypting a block, so an instance
+ * creates its cipher once and only re-initializes it when the key or the direction changes.
+ * </p>
+ * Instances are not thread-safe. The static methods use one instance per thread.
+ */
+public final class AesEcbCipher {
+    private static final Logger LOGGER = Logger.getLogger(AesEcbCipher.class.getName());
+
+    private static final ThreadLocal<AesEcbCipher> CIPHER = new ThreadLocal<AesEcbCipher>() {
+        @Override
+        protected AesEcbCipher initialValue() {
+            return new AesEcbCipher();
+        }
+    };
+
+    private Cipher mCipher;
+    private Key mKey;
+    private int mMode;
+
+    /**
+     * Encrypts {@code data} with the cipher of the current thread.
+     *
+     * @param data the data, a multiple of 16 bytes long
+     * @return the encrypted data, or null on error
+     */
+    public static byte[] encrypt(final byte[] data, final Key key) {
+        final byte[] out = new byte[data.length];
+        return CIPHER.get().encrypt(data, 0, data.length, key, out, 0) ? out : null;
+    }
+
+    /**
+     * Decrypts {@code data} with the cipher of the current thread.
+     *
+     * @param data the data, a multiple of 16 bytes long
+     * @return the decrypted data, or null on error
+     */
+    public static byte[] decrypt(final byte[] data, final Key key) {
+        final byte[] out = new byte[data.length];
+        return CIPHER.get().decrypt(data, 0, data.length, key, out, 0) ? out : null;
+    }
+
+    /**
+     * Encrypts {@code length} bytes of {@code data}, a multiple of 16, into {@code out}.
+     *
+     * @return false on error
+     */
+    public boolean encrypt(final byte[] data, final int offset, final int length, final Key key, final byte[] out, final int outOffset) {
+        return run(Cipher.ENCRYPT_MODE, data, offset, length, key, out, outOffset);
+    }
+
+    /**
+     * Decrypts {@code length} bytes of {@code data}, a multiple of 16, into {@code out}.
+     *
+     * @return false on error
+     */
+    public boolean decrypt(final byte[] data, final int offset, final int length, final Key key, final byte[] out, final int outOffset) {
+        return run(Cipher.DECRYPT_MODE, data, offset, length, key, out, outOffset);
+    }
+
+    private boolean run(final int mode, final byte[] data, final int offset, final int length, final Key key,
+                        final byte[] out, final int outOffset) {
+        if (mCipher == null) {
+            try {
+                // Ignore the "ECB encryption should not be used" warning. We use exactly one block so
+                // the difference between ECB and CBC is just an IV or not. In addition our blocks are
+                // always different since they have a monotonic timestamp. Most importantly, our blocks
+                // aren't sensitive. Decrypting them means means knowing the beacon time and its rotation
+                // period. If due to ECB an attacker could find out that the beacon broadcast the same
+                // block a second time, all it could infer is that for some reason the clock of the beacon
+                // reset, which is not very helpful
+                mCipher = Cipher.getInstance("AES/ECB/NoPadding");
+            } catch (final GeneralSecurityException e) {
+                LOGGER.log(Level.SEVERE, "Error constructing cipher instance", e);
+                return false;
+            }
+        }
+
+        if (key != mKey || mode != mMode) {
+            try {
+                mCipher.init(mode, key);
+            } catch (final GeneralSecurityException e) {
+                mKey = null;
+                LOGGER.log(Level.SEVERE, "Error initializing cipher instance", e);
+                return false;
+            }
+            mKey = key;
+            mMode = mode;
+        }
+
+        try {
+            mCipher.doFinal(data, offset, length, out, outOffset);
+        } catch (final GeneralSecurityException e) {
+            mKey = null; // resets the cipher on the next call
+            LOGGER.log(Level.SEVERE, "Error executing cipher", e);
+            return false;
+        }
+        return true;
+    }
+}
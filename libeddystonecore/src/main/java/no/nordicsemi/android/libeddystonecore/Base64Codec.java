@@ -0,0 +1,148 @@
+/*************************************************************************************************************************************************
+ * Copyright (c) 2015, Nordic Semiconductor
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE
+ * USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ************************************************************************************************************************************************/
+package no.nordicsemi.android.libeddystonecore;
+
+import java.util.Arrays;
+
+/**
+ * Standard Base64 (RFC 4648) encoding with padding and without line breaks, as used by the Proximity Beacon API.
+ * <p>
+ * Decoding maps each character through a 128-entry table. The methods taking arrays write into caller-supplied buffers
+ * and allocate nothing.
+ * </p>
+ */
+public final class Base64Codec {
+    private static final char[] ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+    // Markers in VALUES besides the 6-bit values of the alphabet.
+    private static final byte INVALID = -1;
+    private static final byte WHITESPACE = -2;
+    private static final byte PADDING = -3;
+    private static final byte[] VALUES = new byte[128];
+
+    static {
+        Arrays.fill(VALUES, INVALID);
+        for (int i = 0; i < ALPHABET.length; i++)
+            VALUES[ALPHABET[i]] = (byte) i;
+        VALUES[' '] = VALUES['\n'] = VALUES['\r'] = VALUES['\t'] = WHITESPACE;
+        VALUES['='] = PADDING;
+    }
+
+    private Base64Codec() {
+    }
+
+    /** Returns the number of characters {@link #encode(byte[], int, int, char[], int)} writes for {@code length} bytes. */
+    public static int encodedLength(final int length) {
+        return (length + 2) / 3 * 4;
+    }
+
+    /**
+     * Encodes {@code length} bytes starting at {@code srcOffset}, with padding.
+     *
+     * @return the offset in {@code dest} after the last character written
+     */
+    public static int encode(final byte[] src, final int srcOffset, final int length, final char[] dest, int destOffset) {
+        final int end = srcOffset + length;
+        int i = srcOffset;
+        for (; i + 3 <= end; i += 3) {
+            final int bits = (src[i] & 0xFF) << 16 | (src[i + 1] & 0xFF) << 8 | (src[i + 2] & 0xFF);
+            dest[destOffset++] = ALPHABET[bits >>> 18];
+            dest[destOffset++] = ALPHABET[(bits >>> 12) & 0x3F];
+            dest[destOffset++] = ALPHABET[(bits >>> 6) & 0x3F];
+            dest[destOffset++] = ALPHABET[bits & 0x3F];
+        }
+        final int remaining = end - i;
+        if (remaining > 0) {
+            final int bits = (src[i] & 0xFF) << 16 | (remaining == 2 ? (src[i + 1] & 0xFF) << 8 : 0);
+            dest[destOffset++] = ALPHABET[bits >>> 18];
+            dest[destOffset++] = ALPHABET[(bits >>> 12) & 0x3F];
+            dest[destOffset++] = remaining == 2 ? ALPHABET[(bits >>> 6) & 0x3F] : '=';
+            dest[destOffset++] = '=';
+        }
+        return destOffset;
+    }
+
+    public static String encode(final byte[] data) {
+        final char[] chars = new char[encodedLength(data.length)];
+        encode(data, 0, data.length, chars, 0);
+        return new String(chars);
+    }
+
+    /** Returns an upper bound of the number of bytes {@code length} characters of Base64 text decode to. */
+    public static int maxDecodedLength(final int length) {
+        return (length + 3) / 4 * 3;
+    }
+
+    /**
+     * Decodes Base64 text into {@code dest}, which needs room for {@link #maxDecodedLength(int)} bytes. Whitespace is
+     * skipped and the padding is optional, but if present it must complete the final quantum of 2 or 3 characters.
+     *
+     * @return the offset in {@code dest} after the last byte written
+     * @throws IllegalArgumentException if the text is not valid Base64
+     */
+    public static int decode(final CharSequence text, final byte[] dest, int destOffset) {
+        int bits = 0;
+        int count = 0;
+        int padding = 0;
+        for (int i = 0; i < text.length(); i++) {
+            final char ch = text.charAt(i);
+            final int value = ch < 128 ? VALUES[ch] : INVALID;
+            if (value >= 0 && padding == 0) {
+                bits = bits << 6 | value;
+                if (++count == 4) {
+                    dest[destOffset++] = (byte) (bits >> 16);
+                    dest[destOffset++] = (byte) (bits >> 8);
+                    dest[destOffset++] = (byte) bits;
+                    bits = 0;
+                    count = 0;
+                }
+            } else if (value == PADDING) {
+                // Padding may only fill up the final quantum, e.g. "Zg==" or "Zm8=", not stand in for data
+                if (count < 2 || count + ++padding > 4)
+                    throw new IllegalArgumentException("Invalid Base64 padding at " + i);
+            } else if (value != WHITESPACE) {
+                throw new IllegalArgumentException("Invalid Base64 character at " + i);
+            }
+        }
+        if (count == 1 || padding > 0 && count + padding != 4)
+            throw new IllegalArgumentException("Invalid Base64 length");
+        if (count == 2) {
+            dest[destOffset++] = (byte) (bits >> 4);
+        } else if (count == 3) {
+            dest[destOffset++] = (byte) (bits >> 10);
+            dest[destOffset++] = (byte) (bits >> 2);
+        }
+        return destOffset;
+    }
+
+    /**
+     * Decodes Base64 text. Whitespace is skipped and the padding is optional.
+     *
+     * @see #decode(CharSequence, byte[], int)
+     *
+     * @throws IllegalArgumentException if the text is not valid Base64
+     */
+    public static byte[] decode(final String text) {
+        final byte[] out = new byte[maxDecodedLength(text.length())];
+        final int length = decode(text, out, 0);
+        return length == out.length ? out : Arrays.copyOf(out, length);
+    }
+}
@@ -0,0 +1,265 @@
+/*************************************************************************************************************************************************
+ * Copyright (c) 2015, Nordic Semiconductor
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE
+ * USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ************************************************************************************************************************************************/
+package no.nordicsemi.android.libeddystonecore;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The scanned devices in display order, updated with one scan result at a time.
+ * <p>
+ * Every device is given a slot, a small index reused once the device is removed, under which its RSSI filter state and its
+ * position in a {@link LruSlotList} are kept. Looking devices up by address is left to the caller, which can key a primitive
+ * map by the address and store the slot.
+ * </p>
+ * <p>
+ * The RSSI of every device is smoothed by a {@link RssiFilter} and, for Eddystone beacons advertising their Tx power, turned
+ * into a distance estimate. {@link #sort()} orders the devices by that distance, nearest first, followed by the devices of
+ * unknown distance ordered by the filtered RSSI. The order is repaired with an insertion sort, which takes a single pass when
+ * nothing moved, and a device only overtakes another one when it is clearly closer, so that two devices at a similar distance
+ * do not keep swapping places.
+ * </p>
+ * <p>
+ * The Eddystone service data of every scan result is decoded as well. A device keeps the last payload of each frame type, so
+ * a beacon repeating the same advertisement is not decoded again; only a changed payload, such as a new TLM frame or a rotated
+ * EID, is.
+ * </p>
+ * Instances are not thread-safe.
+ *
+ * @param <D> the type of the devices
+ */
+public class DeviceTable<D extends TrackedDevice> {
+    /** A device moves ahead of another one only if it is this much closer, relative to the other one's distance. */
+    private static final float DISTANCE_HYSTERESIS = 0.15f;
+    /** A device of unknown distance moves ahead of another one only if its signal is this many dB stronger. */
+    private static final float RSSI_HYSTERESIS = 3.0f;
+
+    /** The devices in display order. */
+    private final List<D> mDevices = new ArrayList<>();
+    private final List<D> mReadOnlyDevices = Collections.unmodifiableList(mDevices);
+    /** The devices indexed by {@link TrackedDevice#slot}, null for a free slot. */
+    private final List<D> mSlots = new ArrayList<>();
+    /** Slots freed by removed devices, to be reused by new ones. */
+    private int[] mFreeSlots = new int[16];
+    private int mFreeSlotCount;
+    private final LruSlotList mLastSeen = new LruSlotList();
+    private final EddystoneFrameFormatter mFormatter = new EddystoneFrameFormatter();
+    private RssiFilter mFilter = new RssiFilter(RssiFilter.MODE_KALMAN);
+
+    /**
+     * Returns the slot to give to the next device passed to {@link #add(TrackedDevice)}.
+     */
+    public int nextSlot() {
+        return mFreeSlotCount > 0 ? mFreeSlots[mFreeSlotCount - 1] : mSlots.size();
+    }
+
+    /**
+     * Adds a device at the end of the display order. Its state is set by the following call to {@link #update}.
+     *
+     * @param device a new device created with the slot returned by {@link #nextSlot()}
+     */
+    public void add(final D device) {
+        if (device.slot != nextSlot())
+            throw new IllegalArgumentException("Device must be created with the next free slot");
+        if (mFreeSlotCount > 0) {
+            mFreeSlotCount--;
+            mSlots.set(device.slot, device);
+        } else {
+            mSlots.add(device);
+        }
+        mDevices.add(device);
+    }
+
+    /**
+     * Returns the device in the given slot, or null if the slot is free.
+     */
+    public D get(final int slot) {
+        return slot < mSlots.size() ? mSlots.get(slot) : null;
+    }
+
+    /**
+     * Returns the devices in display order. The list must not be modified and changes with the table.
+     */
+    public List<D> getDevices() {
+        return mReadOnlyDevices;
+    }
+
+    public int size() {
+        return mDevices.size();
+    }
+
+    /**
+     * Merges a scan result into the state of the device. The display order is not updated.
+     *
+     * @param name           the local name, or null
+     * @param rssi           the RSSI in dBm, or {@link TrackedDevice#NO_RSSI}
+     * @param timestampNanos time of the scan result, in nanoseconds
+     * @param serviceData    the service data of the Eddystone service UUID, or null
+     */
+    public void update(final D device, final String name, final int rssi, final long timestampNanos, final byte[] serviceData) {
+        device.name = name;
+        device.rssi = rssi;
+        device.lastSeen = timestampNanos / 1000000;
+        mLastSeen.touch(device.slot);
+        updateFrames(device, serviceData);
+        updateDistance(device);
+    }
+
+    /**
+     * Restores the display order with an insertion sort, which is linear when the list is already ordered.
+     *
+     * @return true if any device moved
+     */
+    public boolean sort() {
+        final List<D> devices = mDevices;
+        boolean moved = false;
+        for (int i = 1; i < devices.size(); i++) {
+            final D device = devices.get(i);
+            int j = i;
+            while (j > 0 && precedes(device, devices.get(j - 1))) {
+                devices.set(j, devices.get(j - 1));
+                j--;
+            }
+            if (j != i) {
+                devices.set(j, device);
+                moved = true;
+            }
+        }
+        return moved;
+    }
+
+    /**
+     * Removes the devices whose last scan result is older than the timeout. Finding them takes O(1) per removed device, as the
+     * search stops at the first device seen recently enough. Their slots are freed as they are found, and the display order is
+     * then compacted in a single pass, comparing devices by identity, so expiring k of n devices costs O(k + n), and O(1) if
+     * none has expired.
+     *
+     * @param now     the current time, in milliseconds of the same clock as the scan result timestamps
+     * @param timeout the time after which a device is removed, in milliseconds
+     * @param removed receives the removed devices, may be null
+     * @return the number of devices removed
+     */
+    public int expire(final long now, final long timeout, final List<? super D> removed) {
+        int count = 0;
+        int slot;
+        while ((slot = mLastSeen.eldest()) != LruSlotList.NONE) {
+            final D device = mSlots.get(slot);
+            if (now - device.lastSeen < timeout)
+                break;
+
+            mLastSeen.remove(slot);
+            mFilter.reset(slot);
+            mSlots.set(slot, null);
+            if (mFreeSlotCount == mFreeSlots.length)
+                mFreeSlots = Arrays.copyOf(mFreeSlots, mFreeSlotCount << 1);
+            mFreeSlots[mFreeSlotCount++] = slot;
+            if (removed != null)
+                removed.add(device);
+            count++;
+        }
+        if (count > 0)
+            removeFreedDevices();
+        return count;
+    }
+
+    /**
+     * Removes all devices.
+     */
+    public void clear() {
+        mDevices.clear();
+        mSlots.clear();
+        mFreeSlotCount = 0;
+        mLastSeen.clear();
+        mFilter.clear();
+    }
+
+    /**
+     * Selects the filter used to smooth the RSSI of the devices. The filter starts over from the next scan result of each device.
+     *
+     * @param mode {@link RssiFilter#MODE_EMA} or {@link RssiFilter#MODE_KALMAN}
+     */
+    public void setRssiFilterMode(final int mode) {
+        if (mode != mFilter.getMode())
+            mFilter = new RssiFilter(mode);
+    }
+
+    /**
+     * Decodes the Eddystone frame of the scan result, unless the device advertised the same payload for that frame type before.
+     * The Tx power is taken from UID, URL and EID frames and kept while the beacon advertises frames without it, such as TLM.
+     */
+    private void updateFrames(final D device, final byte[] serviceData) {
+        if (serviceData == null || serviceData.length == 0 || (serviceData[0] & 0x0F) != 0)
+            return;
+        final int index = (serviceData[0] & 0xFF) >> 4;
+        if (index >= TrackedDevice.FRAME_TYPES)
+            return;
+        final byte[] previous = device.mFramePayloads[index];
+        if (previous != null && Arrays.equals(previous, serviceData))
+            return;
+
+        final String frame = mFormatter.format(serviceData);
+        device.mFramePayloads[index] = serviceData;
+        if (frame != null && serviceData[0] != EddystoneFrame.TYPE_TLM)
+            device.txPower = mFormatter.getFrame().getTxPower();
+        device.setFrame(index, frame);
+    }
+
+    /**
+     * Removes the devices whose slot has been freed from the display order, keeping the order of the others.
+     */
+    private void removeFreedDevices() {
+        final List<D> devices = mDevices;
+        int kept = 0;
+        for (int i = 0; i < devices.size(); i++) {
+            final D device = devices.get(i);
+            if (mSlots.get(device.slot) == device)
+                devices.set(kept++, device);
+        }
+        devices.subList(kept, devices.size()).clear();
+    }
+
+    /**
+     * Filters the RSSI of the device and estimates its distance.
+     */
+    private void updateDistance(final D device) {
+        if (device.rssi == TrackedDevice.NO_RSSI)
+            return;
+        device.filteredRssi = mFilter.add(device.slot, device.rssi);
+        device.distance = device.txPower != TrackedDevice.NO_TX_POWER
+                ? RssiFilter.estimateDistance(device.filteredRssi, device.txPower) : RssiFilter.UNKNOWN_DISTANCE;
+    }
+
+    /**
+     * Returns true if device a should be moved ahead of device b.
+     */
+    private static boolean precedes(final TrackedDevice a, final TrackedDevice b) {
+        final boolean aKnown = !Float.isNaN(a.distance);
+        final boolean bKnown = !Float.isNaN(b.distance);
+        if (aKnown != bKnown)
+            return aKnown;
+        if (aKnown)
+            return a.distance < b.distance * (1 - DISTANCE_HYSTERESIS);
+        return a.filteredRssi > b.filteredRssi + RSSI_HYSTERESIS;
+    }
+}
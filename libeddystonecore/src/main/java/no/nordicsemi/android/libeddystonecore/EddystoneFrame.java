@@ -0,0 +1,286 @@
+/*************************************************************************************************************************************************
+ * Copyright (c) 2015, Nordic Semiconductor
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE
+ * USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ************************************************************************************************************************************************/
+package no.nordicsemi.android.libeddystonecore;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Flyweight view of a single Eddystone frame held in a {@link ByteBuffer}.
+ * <p>
+ * The decoder keeps no copy of the frame. Every accessor reads the bytes it needs with absolute, big endian reads, so one
+ * instance can be re-pointed at frame after frame with {@link #wrap(ByteBuffer, int, int)} without allocating anything.
+ * The buffer's position, limit and byte order are left untouched.
+ * </p>
+ * <p>
+ * Frames are read either as advertised in the Eddystone service data, or as returned by the Read Write ADV Slot
+ * characteristic of the Eddystone GATT configuration service, see {@link #wrapSlotData(ByteBuffer, int, int)}. The two
+ * only differ for EID frames: the slot data carries the rotation period exponent and the beacon clock instead of the
+ * Tx power.
+ * </p>
+ * Instances are not thread-safe.
+ */
+public final class EddystoneFrame {
+    public static final int TYPE_UID = 0x00;
+    public static final int TYPE_URL = 0x10;
+    public static final int TYPE_TLM = 0x20;
+    public static final int TYPE_EID = 0x30;
+    /** Returned by {@link #getFrameType()} for an empty or unknown frame. */
+    public static final int TYPE_UNKNOWN = -1;
+
+    public static final int TLM_VERSION_UNENCRYPTED = 0x00;
+    public static final int TLM_VERSION_ENCRYPTED = 0x01;
+
+    public static final int NAMESPACE_ID_LENGTH = 10;
+    public static final int INSTANCE_ID_LENGTH = 6;
+    public static final int EID_LENGTH = 8;
+    public static final int ENCRYPTED_TLM_LENGTH = 12;
+
+    private static final int UID_LENGTH = 18;
+    private static final int URL_MIN_LENGTH = 3;
+    private static final int TLM_LENGTH = 14;
+    private static final int ETLM_LENGTH = 18;
+    private static final int EID_FRAME_LENGTH = 10;
+    private static final int EID_SLOT_LENGTH = 14;
+
+    private ByteBuffer mBuffer;
+    private int mOffset;
+    private int mLength;
+    private boolean mSlotData;
+    private ByteBuffer mArrayBuffer;
+
+    /**
+     * Points the decoder at an advertised frame, i.e. the service data of the Eddystone service UUID.
+     *
+     * @param buffer the buffer holding the frame
+     * @param offset the absolute index of the frame type byte
+     * @param length the length of the frame in bytes
+     * @return this decoder
+     */
+    public EddystoneFrame wrap(final ByteBuffer buffer, final int offset, final int length) {
+        if (offset < 0 || length < 0 || offset + length > buffer.limit())
+            throw new IndexOutOfBoundsException("Frame exceeds the buffer");
+        mBuffer = buffer;
+        mOffset = offset;
+        mLength = length;
+        mSlotData = false;
+        return this;
+    }
+
+    /**
+     * Points the decoder at the value of the Read Write ADV Slot characteristic.
+     *
+     * @see #wrap(ByteBuffer, int, int)
+     */
+    public EddystoneFrame wrapSlotData(final ByteBuffer buffer, final int offset, final int length) {
+        wrap(buffer, offset, length);
+        mSlotData = true;
+        return this;
+    }
+
+    /**
+     * Points the decoder at an advertised frame held in an array. The wrapping buffer is reused as long as the same array is
+     * passed in.
+     */
+    public EddystoneFrame wrap(final byte[] data) {
+        return wrap(arrayBuffer(data), 0, data.length);
+    }
+
+    /**
+     * Points the decoder at the value of the Read Write ADV Slot characteristic held in an array.
+     *
+     * @see #wrap(byte[])
+     */
+    public EddystoneFrame wrapSlotData(final byte[] data) {
+        return wrapSlotData(arrayBuffer(data), 0, data.length);
+    }
+
+    public int getLength() {
+        return mLength;
+    }
+
+    /**
+     * Returns one of the TYPE constants, or {@link #TYPE_UNKNOWN} if the frame is too short for its type.
+     */
+    public int getFrameType() {
+        if (mLength == 0)
+            return TYPE_UNKNOWN;
+        final int type = uint8(0);
+        switch (type) {
+            case TYPE_UID:
+                return mLength >= UID_LENGTH ? type : TYPE_UNKNOWN;
+            case TYPE_URL:
+                return mLength >= URL_MIN_LENGTH ? type : TYPE_UNKNOWN;
+            case TYPE_TLM:
+                return mLength >= (isEncryptedTlm() ? ETLM_LENGTH : TLM_LENGTH) ? type : TYPE_UNKNOWN;
+            case TYPE_EID:
+                return mLength >= (mSlotData ? EID_SLOT_LENGTH : EID_FRAME_LENGTH) ? type : TYPE_UNKNOWN;
+            default:
+                return TYPE_UNKNOWN;
+        }
+    }
+
+    /**
+     * Returns the calibrated Tx power at 0 m in dBm of an advertised UID, URL or EID frame.
+     */
+    public int getTxPower() {
+        return mBuffer.get(mOffset + 1);
+    }
+
+    // UID
+
+    /** Returns the first 8 of the 10 bytes of the namespace id. */
+    public long getNamespaceIdHigh() {
+        return uint64(2);
+    }
+
+    /** Returns the last 2 of the 10 bytes of the namespace id. */
+    public int getNamespaceIdLow() {
+        return uint16(10);
+    }
+
+    /** Returns the 6-byte instance id. */
+    public long getInstanceId() {
+        return ((long) uint16(12) << 32) | uint32(14);
+    }
+
+    public void getNamespaceId(final byte[] out, final int offset) {
+        copy(2, out, offset, NAMESPACE_ID_LENGTH);
+    }
+
+    public void getInstanceId(final byte[] out, final int offset) {
+        copy(12, out, offset, INSTANCE_ID_LENGTH);
+    }
+
+    // URL
+
+    /** Returns the URL scheme prefix code. */
+    public int getUrlScheme() {
+        return uint8(2);
+    }
+
+    /** Returns the length of the encoded URL following the scheme byte. */
+    public int getEncodedUrlLength() {
+        return mLength - URL_MIN_LENGTH;
+    }
+
+    /** Returns the byte at the given index of the encoded URL following the scheme byte. */
+    public int getEncodedUrlByte(final int index) {
+        return uint8(URL_MIN_LENGTH + index);
+    }
+
+    // TLM
+
+    public int getTlmVersion() {
+        return uint8(1);
+    }
+
+    public boolean isEncryptedTlm() {
+        return mLength > 1 && uint8(1) == TLM_VERSION_ENCRYPTED;
+    }
+
+    /** Returns the battery voltage in mV, or 0 if the beacon does not measure it. */
+    public int getBatteryVoltage() {
+        return uint16(2);
+    }
+
+    /** Returns the beacon temperature in 8.8 fixed point degrees Celsius, or 0x8000 if the beacon does not measure it. */
+    public int getTemperatureFixedPoint() {
+        return uint16(4);
+    }
+
+    /** Returns the beacon temperature in degrees Celsius, -128 if the beacon does not measure it. */
+    public float getTemperature() {
+        return (short) uint16(4) / 256.0f;
+    }
+
+    /** Returns the number of advertising PDUs sent since power-up or reboot. */
+    public long getAdvertisingCount() {
+        return uint32(6);
+    }
+
+    /** Returns the time since power-up or reboot in 0.1 s units. */
+    public long getTimeSinceBoot() {
+        return uint32(10);
+    }
+
+    // eTLM
+
+    public void getEncryptedTlm(final byte[] out, final int offset) {
+        copy(2, out, offset, ENCRYPTED_TLM_LENGTH);
+    }
+
+    public int getSalt() {
+        return uint16(14);
+    }
+
+    public int getMessageIntegrityCheck() {
+        return uint16(16);
+    }
+
+    // EID
+
+    /** Returns the 8-byte ephemeral identifier, most significant byte first. */
+    public long getEid() {
+        return uint64(mSlotData ? 6 : 2);
+    }
+
+    public void getEid(final byte[] out, final int offset) {
+        copy(mSlotData ? 6 : 2, out, offset, EID_LENGTH);
+    }
+
+    /** Returns the rotation period exponent. Only present in slot data. */
+    public int getRotationPeriodExponent() {
+        return uint8(1);
+    }
+
+    /** Returns the beacon time in seconds. Only present in slot data. */
+    public long getClockValue() {
+        return uint32(2);
+    }
+
+    private ByteBuffer arrayBuffer(final byte[] data) {
+        if (mArrayBuffer == null || mArrayBuffer.array() != data)
+            mArrayBuffer = ByteBuffer.wrap(data);
+        return mArrayBuffer;
+    }
+
+    private int uint8(final int index) {
+        return mBuffer.get(mOffset + index) & 0xFF;
+    }
+
+    private int uint16(final int index) {
+        return ((mBuffer.get(mOffset + index) & 0xFF) << 8) | (mBuffer.get(mOffset + index + 1) & 0xFF);
+    }
+
+    private long uint32(final int index) {
+        return ((long) uint16(index) << 16) | uint16(index + 2);
+    }
+
+    private long uint64(final int index) {
+        return (uint32(index) << 32) | uint32(index + 4);
+    }
+
+    private void copy(final int index, final byte[] out, final int offset, final int length) {
+        for (int i = 0; i < length; i++)
+            out[offset + i] = mBuffer.get(mOffset + index + i);
+    }
+}
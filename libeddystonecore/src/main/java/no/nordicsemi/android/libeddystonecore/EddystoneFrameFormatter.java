@@ -0,0 +1,126 @@
+/*************************************************************************************************************************************************
+ * Copyright (c) 2015, Nordic Semiconductor
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE
+ * USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ************************************************************************************************************************************************/
+package no.nordicsemi.android.libeddystonecore;
+
+/**
+ * Turns advertised Eddystone frames into short, human readable lines, e.g. for a list of scanned beacons.
+ * <p>
+ * UID and EID frames are shown as hex, URL frames as the decoded URL and TLM frames as the battery voltage and temperature,
+ * each after the name of the frame type. The frame, the URL decoder and the buffers are reused from call to call, so
+ * formatting a frame allocates only the returned String. URL beacons repeat the same payload, so the lines of recently seen
+ * URLs are kept, keyed by the String the decoder returned from its own cache, and returned again without allocating.
+ * </p>
+ * Instances are not thread-safe.
+ */
+public final class EddystoneFrameFormatter {
+    private static final String URL_PREFIX = "URL: ";
+    /** Number of formatted URL lines to remember, a power of two. */
+    private static final int URL_CACHE_SIZE = 16;
+
+    private final EddystoneFrame mFrame = new EddystoneFrame();
+    private final EddystoneUrlDecoder mUrlDecoder = new EddystoneUrlDecoder();
+    private final StringBuilder mBuilder = new StringBuilder(64);
+    private final byte[] mBytes = new byte[EddystoneFrame.NAMESPACE_ID_LENGTH + EddystoneFrame.INSTANCE_ID_LENGTH];
+    private final char[] mChars = new char[2 * mBytes.length];
+    // A direct mapped cache from the decoded URL, by identity, to the formatted line.
+    private final String[] mUrlKeys = new String[URL_CACHE_SIZE];
+    private final String[] mUrlLines = new String[URL_CACHE_SIZE];
+
+    /**
+     * Formats the frame held in the service data of the Eddystone service UUID.
+     *
+     * @param serviceData the frame
+     * @return the formatted frame, or null if it is not a valid Eddystone frame
+     */
+    public String format(final byte[] serviceData) {
+        final EddystoneFrame frame = mFrame.wrap(serviceData);
+        final StringBuilder builder = mBuilder;
+        builder.setLength(0);
+        switch (frame.getFrameType()) {
+            case EddystoneFrame.TYPE_UID:
+                frame.getNamespaceId(mBytes, 0);
+                frame.getInstanceId(mBytes, EddystoneFrame.NAMESPACE_ID_LENGTH);
+                builder.append("UID: ");
+                appendHex(EddystoneFrame.NAMESPACE_ID_LENGTH);
+                builder.append(' ');
+                appendHex(EddystoneFrame.INSTANCE_ID_LENGTH, EddystoneFrame.NAMESPACE_ID_LENGTH);
+                break;
+            case EddystoneFrame.TYPE_URL:
+                // The encoded URL starts with the scheme byte at index 2
+                return formatUrl(mUrlDecoder.decode(serviceData, 2, serviceData.length - 2));
+            case EddystoneFrame.TYPE_EID:
+                frame.getEid(mBytes, 0);
+                builder.append("EID: ");
+                appendHex(EddystoneFrame.EID_LENGTH);
+                break;
+            case EddystoneFrame.TYPE_TLM:
+                if (frame.isEncryptedTlm())
+                    return "eTLM";
+                builder.append("TLM:");
+                final int voltage = frame.getBatteryVoltage();
+                if (voltage != 0)
+                    builder.append(' ').append(voltage / 1000).append('.').append(voltage / 100 % 10).append(voltage / 10 % 10).append(" V");
+                final int temperature = frame.getTemperatureFixedPoint();
+                if (temperature != 0x8000) {
+                    // Tenths of a degree, rounded half up
+                    final int tenths = (int) Math.floor((short) temperature * 10 / 256.0 + 0.5);
+                    if (voltage != 0)
+                        builder.append(',');
+                    builder.append(' ');
+                    if (tenths < 0)
+                        builder.append('-');
+                    builder.append(Math.abs(tenths) / 10).append('.').append(Math.abs(tenths) % 10).append("\u00B0C");
+                }
+                break;
+            default:
+                return null;
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Returns the frame given to the last call to {@link #format(byte[])}.
+     */
+    public EddystoneFrame getFrame() {
+        return mFrame;
+    }
+
+    private String formatUrl(final String url) {
+        if (url == null)
+            return null;
+        final int slot = System.identityHashCode(url) & (URL_CACHE_SIZE - 1);
+        if (mUrlKeys[slot] != url) {
+            mUrlKeys[slot] = url;
+            mUrlLines[slot] = URL_PREFIX + url;
+        }
+        return mUrlLines[slot];
+    }
+
+    private void appendHex(final int length) {
+        appendHex(length, 0);
+    }
+
+    private void appendHex(final int length, final int offset) {
+        final int count = HexCodec.encode(mBytes, offset, length, mChars, 0, true);
+        mBuilder.append(mChars, 0, count);
+    }
+}
@@ -0,0 +1,172 @@
+/*************************************************************************************************************************************************
+ * Copyright (c) 2015, Nordic Semiconductor
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE
+ * USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ************************************************************************************************************************************************/
+package no.nordicsemi.android.libeddystonecore;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Decodes the compressed URIs of Eddystone-URL frames.
+ * <p>
+ * Each byte is decoded with a single table lookup and written straight to an {@link Appendable}, e.g. a reused
+ * {@link StringBuilder} or a {@link java.nio.CharBuffer}. {@link #decode(byte[], int, int)} additionally keeps the last
+ * decoded Strings keyed by the encoded bytes, as a beacon advertises the same URL every advertising interval.
+ * </p>
+ * A decoder is not thread-safe. Use one decoder per thread.
+ */
+public final class EddystoneUrlDecoder {
+    /** The default number of decoded URIs remembered by {@link #decode(byte[], int, int)}. */
+    public static final int DEFAULT_CACHE_SIZE = 16;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final int SCHEME_URN_UUID = 4;
+    private static final int UUID_LENGTH = 16;
+
+    // The expansion of each byte value of the URL after the scheme, or null for a literal character.
+    private static final String[] EXPANSIONS = new String[256];
+
+    static {
+        for (int i = 0; i < EddystoneUrlEncoder.CODES.length; i++)
+            EXPANSIONS[i] = EddystoneUrlEncoder.CODES[i];
+    }
+
+    // A direct mapped cache: the encoded bytes and the decoded URI in the slot given by the hash of the bytes.
+    private final byte[][] mCacheKeys;
+    private final String[] mCacheValues;
+    private final StringBuilder mBuilder = new StringBuilder(64);
+
+    public EddystoneUrlDecoder() {
+        this(DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * @param cacheSize the number of decoded URIs to remember, rounded up to a power of two, or 0 to disable the cache
+     */
+    public EddystoneUrlDecoder(final int cacheSize) {
+        if (cacheSize < 0)
+            throw new IllegalArgumentException("Cache size must not be negative");
+        final int slots = cacheSize <= 1 ? cacheSize : Integer.highestOneBit(cacheSize - 1) << 1;
+        mCacheKeys = new byte[slots][];
+        mCacheValues = new String[mCacheKeys.length];
+    }
+
+    /**
+     * Returns whether the encoded URI can be decoded: it starts with a known scheme code and a urn:uuid has all 16 bytes.
+     */
+    public static boolean isValid(final byte[] data, final int offset, final int length) {
+        if (offset < 0 || length <= 0 || data.length < offset + length)
+            return false;
+        final int scheme = data[offset] & 0xFF;
+        if (scheme == SCHEME_URN_UUID)
+            return length > UUID_LENGTH;
+        return scheme < EddystoneUrlEncoder.SCHEMES.length;
+    }
+
+    /**
+     * Decodes a URI and appends it to {@code out}.
+     *
+     * @param data   the buffer holding the encoded URI
+     * @param offset the offset of the scheme code
+     * @param length the length of the encoded URI, including the scheme code
+     * @param out    the destination
+     * @return false, without appending anything, if the URI is not valid, see {@link #isValid(byte[], int, int)}
+     * @throws IOException if {@code out} throws it
+     */
+    public boolean decode(final byte[] data, final int offset, final int length, final Appendable out) throws IOException {
+        if (!isValid(data, offset, length))
+            return false;
+        final int scheme = data[offset];
+        out.append(EddystoneUrlEncoder.SCHEMES[scheme]);
+        if (scheme == SCHEME_URN_UUID) {
+            // 8-4-4-4-12 lower case hex digits, as UUID.toString() writes them
+            for (int i = 0; i < UUID_LENGTH; i++) {
+                if (i == 4 || i == 6 || i == 8 || i == 10)
+                    out.append('-');
+                final int b = data[offset + 1 + i];
+                out.append(HEX[(b >> 4) & 0x0F]).append(HEX[b & 0x0F]);
+            }
+            return true;
+        }
+        final int end = offset + length;
+        for (int i = offset + 1; i < end; i++) {
+            final byte b = data[i];
+            final String expansion = EXPANSIONS[b & 0xFF];
+            if (expansion != null)
+                out.append(expansion);
+            else
+                out.append((char) b);
+        }
+        return true;
+    }
+
+    /**
+     * Decodes a URI. The same String is returned for the same bytes while they stay in the cache.
+     *
+     * @param data   the buffer holding the encoded URI
+     * @param offset the offset of the scheme code
+     * @param length the length of the encoded URI, including the scheme code
+     * @return the URI, or null if it is not valid, see {@link #isValid(byte[], int, int)}
+     */
+    public String decode(final byte[] data, final int offset, final int length) {
+        if (!isValid(data, offset, length))
+            return null;
+        final byte[][] keys = mCacheKeys;
+        int slot = -1;
+        if (keys.length > 0) {
+            int hash = 1;
+            for (int i = offset; i < offset + length; i++)
+                hash = 31 * hash + data[i];
+            slot = (hash ^ (hash >>> 16)) & (keys.length - 1);
+            final byte[] key = keys[slot];
+            if (key != null && key.length == length && regionEquals(key, data, offset))
+                return mCacheValues[slot];
+        }
+
+        final StringBuilder builder = mBuilder;
+        builder.setLength(0);
+        try {
+            decode(data, offset, length, builder);
+        } catch (final IOException e) {
+            throw new AssertionError(e); // StringBuilder does not throw
+        }
+        final String uri = builder.toString();
+        if (slot >= 0) {
+            keys[slot] = Arrays.copyOfRange(data, offset, offset + length);
+            mCacheValues[slot] = uri;
+        }
+        return uri;
+    }
+
+    /** Forgets all cached URIs. */
+    public void clearCache() {
+        Arrays.fill(mCacheKeys, null);
+        Arrays.fill(mCacheValues, null);
+    }
+
+    private static boolean regionEquals(final byte[] key, final byte[] data, final int offset) {
+        for (int i = 0; i < key.length; i++) {
+            if (key[i] != data[offset + i])
+                return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,214 @@
+/*************************************************************************************************************************************************
+ * Copyright (c) 2015, Nordic Semiconductor
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE
+ * USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ************************************************************************************************************************************************/
+package no.nordicsemi.android.libeddystonecore;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Encodes URIs into the compressed form used by Eddystone-URL frames.
+ * <p>
+ * The expansion codes are stored in a trie, so the codes matching at a position are found in a single walk instead of
+ * comparing every code. The encoding is chosen by dynamic programming over the URI, from the last character to the
+ * first, which gives the shortest possible encoding for the code table, including the choice between overlapping
+ * scheme prefixes such as "http://www." and "http://".
+ * </p>
+ * An encoder reuses its scratch arrays between calls and is not thread-safe. Use one encoder per thread.
+ */
+public final class EddystoneUrlEncoder {
+    /** The maximum length of an encoded URI that fits in an Eddystone-URL frame: the scheme code and 17 bytes. */
+    public static final int MAX_ENCODED_LENGTH = 18;
+
+    static final String[] SCHEMES = {"http://www.", "https://www.", "http://", "https://", "urn:uuid:"};
+    private static final int SCHEME_URN_UUID = 4;
+
+    static final String[] CODES = {".com/", ".org/", ".edu/", ".net/", ".info/", ".biz/", ".gov/",
+            ".com", ".org", ".edu", ".net", ".info", ".biz", ".gov"};
+
+    private static final int ALPHABET = 128;
+    private static final int NONE = -1;
+
+    // The trie over CODES: child node of (node, char) at node * ALPHABET + char, 0 for none, and the code ending at each node.
+    private static final int[] TRIE_NEXT;
+    private static final byte[] TRIE_CODE;
+
+    static {
+        int nodes = 1;
+        for (final String code : CODES)
+            nodes += code.length();
+        final int[] next = new int[nodes * ALPHABET];
+        final byte[] codeAt = new byte[nodes];
+        Arrays.fill(codeAt, (byte) NONE);
+        int count = 1;
+        for (int i = 0; i < CODES.length; i++) {
+            int node = 0;
+            for (int j = 0; j < CODES[i].length(); j++) {
+                final int index = node * ALPHABET + CODES[i].charAt(j);
+                if (next[index] == 0)
+                    next[index] = count++;
+                node = next[index];
+            }
+            codeAt[node] = (byte) i;
+        }
+        TRIE_NEXT = next;
+        TRIE_CODE = codeAt;
+    }
+
+    // cost[i] is the length of the shortest encoding of the URI from character i on, and step[i] the code used at i or NONE
+    // for a literal character.
+    private int[] mCost = new int[64];
+    private byte[] mStep = new byte[64];
+
+    /**
+     * Encodes a URI.
+     *
+     * @param uri the URI to encode
+     * @return the encoded URI starting with the scheme code, an empty array for an empty URI, or null if the scheme is not
+     * supported or the urn:uuid is invalid
+     */
+    public byte[] encode(final String uri) {
+        if (uri.length() == 0)
+            return new byte[0];
+        final byte[] out = new byte[Math.max(17, uri.length())];
+        final int length = encode(uri, out, 0);
+        return length < 0 ? null : Arrays.copyOf(out, length);
+    }
+
+    /**
+     * Encodes a URI into the given buffer.
+     *
+     * @param uri    the URI to encode
+     * @param out    the output buffer, with room for {@code uri.length()} bytes, and at least 17 bytes for urn:uuid, after
+     *               {@code offset}
+     * @param offset the offset of the scheme code in {@code out}
+     * @return the number of bytes written, or -1 if the scheme is not supported or the urn:uuid is invalid
+     */
+    public int encode(final String uri, final byte[] out, final int offset) {
+        if (uri.length() == 0)
+            return 0;
+        int bestScheme = NONE;
+        int bestCost = Integer.MAX_VALUE;
+        int lastScheme = NONE;
+        for (int scheme = 0; scheme < SCHEMES.length; scheme++) {
+            final String prefix = SCHEMES[scheme];
+            if (!uri.regionMatches(true, 0, prefix, 0, prefix.length()))
+                continue;
+            if (scheme == SCHEME_URN_UUID)
+                return encodeUrnUuid(uri, prefix.length(), out, offset);
+            // Costs are computed afresh per scheme: the suffixes start at different positions.
+            final int cost = computeCosts(uri, prefix.length());
+            lastScheme = scheme;
+            if (cost < bestCost) {
+                bestCost = cost;
+                bestScheme = scheme;
+            }
+        }
+        if (bestScheme == NONE)
+            return -1;
+        final int start = SCHEMES[bestScheme].length();
+        if (bestScheme != lastScheme)
+            computeCosts(uri, start);
+        out[offset] = (byte) bestScheme;
+        int position = offset + 1;
+        for (int i = start; i < uri.length(); ) {
+            final int code = mStep[i];
+            if (code == NONE) {
+                out[position++] = (byte) uri.charAt(i++);
+            } else {
+                out[position++] = (byte) code;
+                i += CODES[code].length();
+            }
+        }
+        return position - offset;
+    }
+
+    /**
+     * Encodes many URIs, e.g. for configuring a fleet of beacons.
+     *
+     * @param uris the URIs to encode
+     * @return the encoded URIs in the same order, with null entries for URIs that cannot be encoded
+     */
+    public byte[][] encodeAll(final String[] uris) {
+        final byte[][] encoded = new byte[uris.length][];
+        byte[] buffer = new byte[64];
+        for (int i = 0; i < uris.length; i++) {
+            final String uri = uris[i];
+            if (buffer.length < uri.length())
+                buffer = new byte[uri.length()];
+            final int length = encode(uri, buffer, 0);
+            encoded[i] = length < 0 ? null : Arrays.copyOf(buffer, length);
+        }
+        return encoded;
+    }
+
+    /**
+     * Fills the cost and step tables for the URI from {@code start} on.
+     *
+     * @return the length of the encoding including the scheme code
+     */
+    private int computeCosts(final String uri, final int start) {
+        final int length = uri.length();
+        if (mCost.length <= length) {
+            mCost = new int[length + 1];
+            mStep = new byte[length + 1];
+        }
+        final int[] cost = mCost;
+        final byte[] step = mStep;
+        cost[length] = 0;
+        for (int i = length - 1; i >= start; i--) {
+            int best = cost[i + 1] + 1;
+            byte bestStep = NONE;
+            int node = 0;
+            for (int j = i; j < length; j++) {
+                final char c = uri.charAt(j);
+                if (c >= ALPHABET || (node = TRIE_NEXT[node * ALPHABET + c]) == 0)
+                    break;
+                final byte code = TRIE_CODE[node];
+                if (code != NONE && cost[j + 1] + 1 <= best) {
+                    best = cost[j + 1] + 1;
+                    bestStep = code;
+                }
+            }
+            cost[i] = best;
+            step[i] = bestStep;
+        }
+        return cost[start] + 1;
+    }
+
+    private static int encodeUrnUuid(final String uri, final int start, final byte[] out, final int offset) {
+        final UUID uuid;
+        try {
+            uuid = UUID.fromString(uri.substring(start));
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+        out[offset] = (byte) SCHEME_URN_UUID;
+        putLong(out, offset + 1, uuid.getMostSignificantBits());
+        putLong(out, offset + 9, uuid.getLeastSignificantBits());
+        return 17;
+    }
+
+    private static void putLong(final byte[] out, final int offset, final long value) {
+        for (int i = 0; i < 8; i++)
+            out[offset + i] = (byte) (value >>> (56 - 8 * i));
+    }
+}
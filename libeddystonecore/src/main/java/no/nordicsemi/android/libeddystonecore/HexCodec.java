@@ -0,0 +1,212 @@
+/*************************************************************************************************************************************************
+ * Copyright (c) 2015, Nordic Semiconductor
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE
+ * USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ************************************************************************************************************************************************/
+package no.nordicsemi.android.libeddystonecore;
+
+import java.util.Arrays;
+
+/**
+ * Converts between bytes and hexadecimal strings using lookup tables.
+ * <p>
+ * Encoding writes both digits of a byte from one 512-entry table; decoding maps each character through a 128-entry table
+ * in which -1 marks anything that is not a hex digit. The methods taking arrays write into caller-supplied buffers and
+ * allocate nothing.
+ * </p>
+ */
+public final class HexCodec {
+    /** Length in bytes of the lock code of the Eddystone GATT configuration service. */
+    public static final int LOCK_CODE_LENGTH = 16;
+
+    // Upper and lower case digit pairs: the digits of byte b at [2 * b] and [2 * b + 1].
+    private static final char[] UPPER_PAIRS = pairs("0123456789ABCDEF");
+    private static final char[] LOWER_PAIRS = pairs("0123456789abcdef");
+    // The value of each ASCII hex digit, either case, or -1.
+    private static final byte[] DIGITS = new byte[128];
+
+    static {
+        Arrays.fill(DIGITS, (byte) -1);
+        for (int i = 0; i < 10; i++)
+            DIGITS['0' + i] = (byte) i;
+        for (int i = 0; i < 6; i++) {
+            DIGITS['a' + i] = (byte) (10 + i);
+            DIGITS['A' + i] = (byte) (10 + i);
+        }
+    }
+
+    private HexCodec() {
+    }
+
+    private static char[] pairs(final String digits) {
+        final char[] pairs = new char[512];
+        for (int b = 0; b < 256; b++) {
+            pairs[2 * b] = digits.charAt(b >>> 4);
+            pairs[2 * b + 1] = digits.charAt(b & 0x0F);
+        }
+        return pairs;
+    }
+
+    /**
+     * Writes two hex digits for each of {@code length} bytes starting at {@code srcOffset}.
+     *
+     * @return the offset in {@code dest} after the last digit written
+     */
+    public static int encode(final byte[] src, final int srcOffset, final int length, final char[] dest, int destOffset,
+                             final boolean upperCase) {
+        final char[] pairs = upperCase ? UPPER_PAIRS : LOWER_PAIRS;
+        for (int i = srcOffset; i < srcOffset + length; i++) {
+            final int index = (src[i] & 0xFF) << 1;
+            dest[destOffset++] = pairs[index];
+            dest[destOffset++] = pairs[index + 1];
+        }
+        return destOffset;
+    }
+
+    /**
+     * Returns the hex representation of {@code length} bytes starting at {@code srcOffset}.
+     */
+    public static String encode(final byte[] src, final int srcOffset, final int length, final boolean upperCase) {
+        final char[] chars = new char[length * 2];
+        encode(src, srcOffset, length, chars, 0, upperCase);
+        return new String(chars);
+    }
+
+    /**
+     * Returns the upper case hex representation of {@code length} bytes starting at {@code start}, optionally prefixed with
+     * "0x", or an empty string if there are no such bytes.
+     */
+    public static String bytesToHex(final byte[] bytes, final int start, final int length, final boolean add0x) {
+        if (bytes == null || bytes.length <= start || length <= 0)
+            return "";
+
+        final int maxLength = Math.min(length, bytes.length - start);
+        final int prefix = add0x ? 2 : 0;
+        final char[] hexChars = new char[prefix + maxLength * 2];
+        if (add0x) {
+            hexChars[0] = '0';
+            hexChars[1] = 'x';
+        }
+        encode(bytes, start, maxLength, hexChars, prefix, true);
+        return new String(hexChars);
+    }
+
+    /**
+     * Parses {@code byteCount} pairs of hex digits starting at {@code hexOffset} into {@code dest}.
+     *
+     * @return the offset in {@code dest} after the last byte written, or -1 if a character is not a hex digit, in which
+     * case {@code dest} may have been partly written
+     */
+    public static int decode(final CharSequence hex, int hexOffset, final int byteCount, final byte[] dest, int destOffset) {
+        for (int i = 0; i < byteCount; i++) {
+            final char high = hex.charAt(hexOffset++);
+            final char low = hex.charAt(hexOffset++);
+            final int value = (high | low) < 128 ? DIGITS[high] << 4 | DIGITS[low] : -1;
+            if (value < 0)
+                return -1;
+            dest[destOffset++] = (byte) value;
+        }
+        return destOffset;
+    }
+
+    /**
+     * Parses pairs of hex digits into {@code dest}. Characters that are not hex digits give undefined bytes; use
+     * {@link #isHex(CharSequence, int)} or {@link #decode(CharSequence, int, int, byte[], int)} to reject them.
+     *
+     * @return the offset after the last byte written
+     */
+    public static int hexToBytes(final String hex, final byte[] dest, final int offset) {
+        final int byteCount = hex.length() / 2;
+        if (decode(hex, 0, byteCount, dest, offset) < 0) {
+            // Keep the lenient behaviour of the earlier Character.digit based parser.
+            for (int i = 0; i < byteCount; i++)
+                dest[offset + i] = (byte) ((Character.digit(hex.charAt(2 * i), 16) << 4)
+                        + Character.digit(hex.charAt(2 * i + 1), 16));
+        }
+        return offset + byteCount;
+    }
+
+    /**
+     * Parses pairs of hex digits into a new array.
+     */
+    public static byte[] hexToBytes(final String hex) {
+        final byte[] bytes = new byte[hex.length() / 2];
+        hexToBytes(hex, bytes, 0);
+        return bytes;
+    }
+
+    /**
+     * Returns whether {@code text} consists of exactly {@code digitCount} hex digits of either case.
+     */
+    public static boolean isHex(final CharSequence text, final int digitCount) {
+        if (text == null || text.length() != digitCount)
+            return false;
+        int invalid = 0;
+        for (int i = 0; i < digitCount; i++) {
+            final char c = text.charAt(i);
+            // DIGITS is -1 for non-digits, so the sign bit collects any invalid character without a branch per digit.
+            invalid |= c < 128 ? DIGITS[c] : -1;
+        }
+        return invalid >= 0;
+    }
+
+    /**
+     * Returns whether {@code text} is a valid lock code: 32 hex digits of either case.
+     */
+    public static boolean isLockCode(final CharSequence text) {
+        return isHex(text, LOCK_CODE_LENGTH * 2);
+    }
+
+    /**
+     * Parses a Bluetooth device address in the "00:11:22:AA:BB:CC" format into the low 48 bits of a long, e.g. to use
+     * the address as a primitive map key.
+     *
+     * @return the address, or -1 if {@code address} is not in that format
+     */
+    public static long parseAddress(final CharSequence address) {
+        if (address == null || address.length() != 17)
+            return -1;
+        long value = 0;
+        int invalid = 0;
+        for (int i = 0; i < 17; i += 3) {
+            final char high = address.charAt(i);
+            final char low = address.charAt(i + 1);
+            if ((high | low) >= 128 || (i < 15 && address.charAt(i + 2) != ':'))
+                return -1;
+            invalid |= DIGITS[high] | DIGITS[low];
+            value = value << 8 | DIGITS[high] << 4 | DIGITS[low];
+        }
+        return invalid < 0 ? -1 : value;
+    }
+
+    /**
+     * Formats the low 48 bits of a long as an upper case Bluetooth device address, the inverse of {@link #parseAddress(CharSequence)}.
+     */
+    public static String formatAddress(final long address) {
+        final char[] chars = new char[17];
+        for (int i = 0; i < 6; i++) {
+            final int index = (int) (address >>> (40 - 8 * i) & 0xFF) << 1;
+            chars[3 * i] = UPPER_PAIRS[index];
+            chars[3 * i + 1] = UPPER_PAIRS[index + 1];
+            if (i < 5)
+                chars[3 * i + 2] = ':';
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,174 @@
+/*************************************************************************************************************************************************
+ * Copyright (c) 2015, Nordic Semiconductor
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE
+ * USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ************************************************************************************************************************************************/
+package no.nordicsemi.android.libeddystonecore;
+
+import java.util.Arrays;
+
+/**
+ * An open-addressing hash map from primitive {@code long} keys to non-negative {@code int} values, such as device
+ * addresses or EIDs to slots. Uses linear probing with backward-shift deletion, so no tombstones are left behind and
+ * lookups never box their keys.
+ * <p>
+ * Instances are not thread-safe.
+ * </p>
+ */
+public final class LongIntHashMap {
+    /** Returned by {@link #get(long)} when the key is not present. Also marks a free slot. */
+    public static final int NO_VALUE = -1;
+
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] mKeys;
+    private int[] mValues;
+    private int mMask;
+    private int mSize;
+
+    /**
+     * @param expectedSize the number of entries the map should hold without resizing
+     */
+    public LongIntHashMap(final int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * Returns the value mapped to {@code key} or {@link #NO_VALUE} if there is none.
+     */
+    public int get(final long key) {
+        int slot = slotOf(key);
+        int value;
+        while ((value = mValues[slot]) != NO_VALUE) {
+            if (mKeys[slot] == key)
+                return value;
+            slot = (slot + 1) & mMask;
+        }
+        return NO_VALUE;
+    }
+
+    /**
+     * Maps {@code key} to {@code value}, replacing any previous mapping.
+     *
+     * @param value a non-negative value
+     * @return the previous value or {@link #NO_VALUE}
+     */
+    public int put(final long key, final int value) {
+        if (value < 0)
+            throw new IllegalArgumentException("Values must be non-negative");
+        if ((mSize + 1) << 1 > mValues.length)
+            rehash(mValues.length << 1);
+        int slot = slotOf(key);
+        int previous;
+        while ((previous = mValues[slot]) != NO_VALUE) {
+            if (mKeys[slot] == key) {
+                mValues[slot] = value;
+                return previous;
+            }
+            slot = (slot + 1) & mMask;
+        }
+        mKeys[slot] = key;
+        mValues[slot] = value;
+        mSize++;
+        return NO_VALUE;
+    }
+
+    /**
+     * Removes the mapping for {@code key}, but only if it is currently mapped to {@code value}.
+     *
+     * @return true if the mapping was removed
+     */
+    public boolean remove(final long key, final int value) {
+        int slot = slotOf(key);
+        int current;
+        while ((current = mValues[slot]) != NO_VALUE) {
+            if (mKeys[slot] == key) {
+                if (current != value)
+                    return false;
+                shiftBack(slot);
+                mSize--;
+                return true;
+            }
+            slot = (slot + 1) & mMask;
+        }
+        return false;
+    }
+
+    public void clear() {
+        Arrays.fill(mValues, NO_VALUE);
+        mSize = 0;
+    }
+
+    /**
+     * Closes the gap at {@code free} by moving later entries of the same probe run backwards.
+     */
+    private void shiftBack(int free) {
+        int slot = free;
+        while (true) {
+            slot = (slot + 1) & mMask;
+            if (mValues[slot] == NO_VALUE)
+                break;
+            final int home = slotOf(mKeys[slot]);
+            // The entry may only move if its home slot is not cyclically within (free, slot]
+            final boolean staysPut = free <= slot
+                    ? free < home && home <= slot
+                    : free < home || home <= slot;
+            if (staysPut)
+                continue;
+            mKeys[free] = mKeys[slot];
+            mValues[free] = mValues[slot];
+            free = slot;
+        }
+        mValues[free] = NO_VALUE;
+    }
+
+    private void rehash(final int capacity) {
+        final long[] oldKeys = mKeys;
+        final int[] oldValues = mValues;
+        allocate(capacity);
+        mSize = 0;
+        for (int i = 0; i < oldValues.length; i++)
+            if (oldValues[i] != NO_VALUE)
+                put(oldKeys[i], oldValues[i]);
+    }
+
+    private void allocate(final int capacity) {
+        mKeys = new long[capacity];
+        mValues = new int[capacity];
+        Arrays.fill(mValues, NO_VALUE);
+        mMask = capacity - 1;
+    }
+
+    private int slotOf(final long key) {
+        final long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mMask;
+    }
+
+    private static int capacityFor(final int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        // Keep the load factor at or below 1/2
+        while (capacity < (long) expectedSize << 1)
+            capacity <<= 1;
+        return capacity;
+    }
+}
@@ -0,0 +1,121 @@
+/*************************************************************************************************************************************************
+ * Copyright (c) 2015, Nordic Semiconductor
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE
+ * USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ************************************************************************************************************************************************/
+package no.nordicsemi.android.libeddystonecore;
+
+import java.util.Arrays;
+
+/**
+ * A doubly linked list of slots ordered by the time they were last touched, least recently touched first.
+ * <p>
+ * Slots are small non-negative indices chosen by the caller, as used by {@link RssiFilter}. The links are kept in primitive
+ * arrays indexed by slot, so touching, removing and taking the eldest slot are all O(1) and allocate nothing. This makes
+ * it cheap to expire devices that have not been seen for a while: as long as the eldest one is stale, remove it.
+ * </p>
+ * Instances are not thread-safe.
+ */
+public final class LruSlotList {
+    /** Returned by {@link #eldest()} when the list is empty. */
+    public static final int NONE = -1;
+
+    private int[] mPrevious;
+    private int[] mNext;
+    private boolean[] mLinked;
+    private int mHead = NONE;
+    private int mTail = NONE;
+    private int mSize;
+
+    public LruSlotList() {
+        mPrevious = new int[16];
+        mNext = new int[16];
+        mLinked = new boolean[16];
+    }
+
+    /**
+     * Moves the slot to the end of the list, adding it if needed.
+     */
+    public void touch(final int slot) {
+        if (slot >= mLinked.length) {
+            final int capacity = Math.max(slot + 1, mLinked.length << 1);
+            mPrevious = Arrays.copyOf(mPrevious, capacity);
+            mNext = Arrays.copyOf(mNext, capacity);
+            mLinked = Arrays.copyOf(mLinked, capacity);
+        }
+        if (mLinked[slot]) {
+            if (slot == mTail)
+                return;
+            unlink(slot);
+        }
+        mLinked[slot] = true;
+        mPrevious[slot] = mTail;
+        mNext[slot] = NONE;
+        if (mTail != NONE)
+            mNext[mTail] = slot;
+        else
+            mHead = slot;
+        mTail = slot;
+        mSize++;
+    }
+
+    /**
+     * Removes the slot from the list. Does nothing if it is not in the list.
+     */
+    public void remove(final int slot) {
+        if (slot < mLinked.length && mLinked[slot])
+            unlink(slot);
+    }
+
+    /**
+     * Returns the least recently touched slot, or {@link #NONE} if the list is empty.
+     */
+    public int eldest() {
+        return mHead;
+    }
+
+    public boolean contains(final int slot) {
+        return slot < mLinked.length && mLinked[slot];
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    public void clear() {
+        Arrays.fill(mLinked, false);
+        mHead = mTail = NONE;
+        mSize = 0;
+    }
+
+    private void unlink(final int slot) {
+        final int previous = mPrevious[slot];
+        final int next = mNext[slot];
+        if (previous != NONE)
+            mNext[previous] = next;
+        else
+            mHead = next;
+        if (next != NONE)
+            mPrevious[next] = previous;
+        else
+            mTail = previous;
+        mLinked[slot] = false;
+        mSize--;
+    }
+}
@@ -0,0 +1,165 @@
+/*************************************************************************************************************************************************
+ * Copyright (c) 2015, Nordic Semiconductor
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE
+ * USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ************************************************************************************************************************************************/
+package no.nordicsemi.android.libeddystonecore;
+
+import java.util.Arrays;
+
+/**
+ * Smooths the RSSI of many devices at once and estimates their distance.
+ * <p>
+ * Every device is given a slot, a small index chosen by the caller, and its filter state is kept in primitive arrays indexed
+ * by that slot, so filtering a scan result neither allocates nor looks anything up. Two filters are available: an exponential
+ * moving average, and a one-dimensional Kalman filter that follows a stationary signal more closely and still reacts when
+ * a device moves. The first sample of a slot is taken as is.
+ * </p>
+ * Instances are not thread-safe.
+ */
+public final class RssiFilter {
+    public static final int MODE_EMA = 0;
+    public static final int MODE_KALMAN = 1;
+
+    /** Returned by {@link #estimateDistance(float, int)} when the distance is unknown. */
+    public static final float UNKNOWN_DISTANCE = Float.NaN;
+
+    /** Weight of a new sample in the moving average. */
+    public static final float DEFAULT_EMA_ALPHA = 0.25f;
+    /** Variance added to the Kalman estimate per sample, in dB^2, i.e. how fast the true RSSI is expected to change. */
+    public static final float DEFAULT_PROCESS_NOISE = 0.5f;
+    /** Variance of a single RSSI sample, in dB^2. */
+    public static final float DEFAULT_MEASUREMENT_NOISE = 16f;
+
+    /** Eddystone frames advertise the Tx power at 0 m; this is the free space path loss of the first meter at 2.4 GHz. */
+    private static final int PATH_LOSS_AT_1_M = 41;
+    /** Path loss exponent, 2 in free space and somewhat higher indoors. */
+    private static final float PATH_LOSS_EXPONENT = 2.0f;
+
+    private final int mMode;
+    private final float mAlpha;
+    private final float mProcessNoise;
+    private final float mMeasurementNoise;
+
+    private float[] mEstimates;
+    /** Variance of the Kalman estimate; 0 for a slot without samples. Unused by the moving average. */
+    private float[] mVariances;
+    private boolean[] mInitialized;
+
+    /**
+     * Creates a filter using the default parameters of the given mode.
+     *
+     * @param mode {@link #MODE_EMA} or {@link #MODE_KALMAN}
+     */
+    public RssiFilter(final int mode) {
+        this(mode, DEFAULT_EMA_ALPHA, DEFAULT_PROCESS_NOISE, DEFAULT_MEASUREMENT_NOISE);
+    }
+
+    /**
+     * @param mode             {@link #MODE_EMA} or {@link #MODE_KALMAN}
+     * @param alpha            weight of a new sample in the moving average, in (0, 1]
+     * @param processNoise     Kalman process noise in dB^2
+     * @param measurementNoise Kalman measurement noise in dB^2
+     */
+    public RssiFilter(final int mode, final float alpha, final float processNoise, final float measurementNoise) {
+        if (mode != MODE_EMA && mode != MODE_KALMAN)
+            throw new IllegalArgumentException("Unknown filter mode: " + mode);
+        if (!(alpha > 0 && alpha <= 1))
+            throw new IllegalArgumentException("Alpha must be in (0, 1]");
+        if (!(processNoise > 0 && measurementNoise > 0))
+            throw new IllegalArgumentException("Noise variances must be positive");
+        mMode = mode;
+        mAlpha = alpha;
+        mProcessNoise = processNoise;
+        mMeasurementNoise = measurementNoise;
+        mEstimates = new float[16];
+        mVariances = new float[16];
+        mInitialized = new boolean[16];
+    }
+
+    public int getMode() {
+        return mMode;
+    }
+
+    /**
+     * Adds a sample to the given slot, growing the arrays if needed.
+     *
+     * @param slot the slot of the device, not negative
+     * @param rssi the received signal strength in dBm
+     * @return the filtered RSSI
+     */
+    public float add(final int slot, final int rssi) {
+        if (slot >= mEstimates.length) {
+            final int capacity = Math.max(slot + 1, mEstimates.length << 1);
+            mEstimates = Arrays.copyOf(mEstimates, capacity);
+            mVariances = Arrays.copyOf(mVariances, capacity);
+            mInitialized = Arrays.copyOf(mInitialized, capacity);
+        }
+        if (!mInitialized[slot]) {
+            mInitialized[slot] = true;
+            mVariances[slot] = mMeasurementNoise;
+            return mEstimates[slot] = rssi;
+        }
+
+        final float estimate = mEstimates[slot];
+        if (mMode == MODE_EMA)
+            return mEstimates[slot] = estimate + mAlpha * (rssi - estimate);
+
+        final float variance = mVariances[slot] + mProcessNoise;
+        final float gain = variance / (variance + mMeasurementNoise);
+        mVariances[slot] = (1 - gain) * variance;
+        return mEstimates[slot] = estimate + gain * (rssi - estimate);
+    }
+
+    /**
+     * Returns the filtered RSSI of the given slot, or {@link Float#NaN} if no samples were added to it.
+     */
+    public float get(final int slot) {
+        return slot < mEstimates.length && mInitialized[slot] ? mEstimates[slot] : Float.NaN;
+    }
+
+    /**
+     * Forgets the samples of the given slot, so it can be given to another device.
+     */
+    public void reset(final int slot) {
+        if (slot < mInitialized.length)
+            mInitialized[slot] = false;
+    }
+
+    /**
+     * Forgets the samples of all slots.
+     */
+    public void clear() {
+        Arrays.fill(mInitialized, false);
+    }
+
+    /**
+     * Estimates the distance to a device with the log-distance path loss model.
+     *
+     * @param rssi           the (filtered) received signal strength in dBm
+     * @param txPowerAt0m    the calibrated Tx power at 0 m as advertised in Eddystone UID, URL and EID frames
+     * @return the distance in meters, or {@link #UNKNOWN_DISTANCE} if the RSSI is not a number
+     */
+    public static float estimateDistance(final float rssi, final int txPowerAt0m) {
+        if (Float.isNaN(rssi))
+            return UNKNOWN_DISTANCE;
+        final float pathLoss = txPowerAt0m - PATH_LOSS_AT_1_M - rssi;
+        return (float) Math.pow(10, pathLoss / (10 * PATH_LOSS_EXPONENT));
+    }
+}
@@ -0,0 +1,160 @@
+/*************************************************************************************************************************************************
+ * Copyright (c) 2015, Nordic Semiconductor
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE
+ * USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ************************************************************************************************************************************************/
+package no.nordicsemi.android.libeddystonecore;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Reads a scan log written by {@link ScanLogWriter}, one record at a time.
+ * <p>
+ * The fields of the current record are returned by the getters until the next call to {@link #next()}. The advertising data
+ * is read into a buffer that is reused from record to record, so reading a log allocates nothing per record. A record cut
+ * short at the end of the log, e.g. because the app was killed while recording, is ignored.
+ * </p>
+ * Instances are not thread-safe.
+ */
+public final class ScanLogReader implements Closeable {
+    private final InputStream mIn;
+    private byte[] mData = new byte[64];
+    private int mDataLength;
+    private long mTimestamp;
+    private long mAddress;
+    private int mRssi;
+
+    /**
+     * Reads and validates the log header.
+     *
+     * @throws IOException if the stream is not a scan log
+     */
+    public ScanLogReader(final InputStream in) throws IOException {
+        mIn = new BufferedInputStream(in, 8192);
+        int magic = 0;
+        for (int i = 0; i < 4; i++)
+            magic = (magic << 8) | readByte();
+        if (magic != ScanLogWriter.MAGIC)
+            throw new IOException("Not a scan log");
+        final int version = readByte();
+        if (version != ScanLogWriter.VERSION)
+            throw new IOException("Unsupported scan log version " + version);
+    }
+
+    /**
+     * Reads the next record.
+     *
+     * @return false at the end of the log
+     */
+    public boolean next() throws IOException {
+        final int first = mIn.read();
+        if (first < 0)
+            return false;
+        try {
+            final long recordLength = readVarint(first);
+            final long zigZag = readVarint(readByte());
+            final long delta = (zigZag >>> 1) ^ -(zigZag & 1);
+            long address = 0;
+            for (int i = 0; i < 6; i++)
+                address = (address << 8) | readByte();
+            final int rssi = (byte) readByte();
+
+            final long dataLength = recordLength - varintLength(zigZag) - 7;
+            if (dataLength < 0 || dataLength > Integer.MAX_VALUE - 8)
+                throw new IOException("Corrupt scan log record");
+            if (dataLength > mData.length)
+                mData = Arrays.copyOf(mData, (int) Math.max(dataLength, mData.length * 2L));
+            int read = 0;
+            while (read < dataLength) {
+                final int count = mIn.read(mData, read, (int) dataLength - read);
+                if (count < 0)
+                    throw new EOFException();
+                read += count;
+            }
+
+            mTimestamp += delta;
+            mAddress = address;
+            mRssi = rssi;
+            mDataLength = (int) dataLength;
+            return true;
+        } catch (final EOFException e) {
+            return false;
+        }
+    }
+
+    public long getTimestampNanos() {
+        return mTimestamp;
+    }
+
+    /** Returns the 48-bit device address. */
+    public long getAddress() {
+        return mAddress;
+    }
+
+    public int getRssi() {
+        return mRssi;
+    }
+
+    /** Returns the buffer holding the advertising data of the current record, starting at index 0. */
+    public byte[] getData() {
+        return mData;
+    }
+
+    public int getDataLength() {
+        return mDataLength;
+    }
+
+    @Override
+    public void close() throws IOException {
+        mIn.close();
+    }
+
+    private int readByte() throws IOException {
+        final int b = mIn.read();
+        if (b < 0)
+            throw new EOFException();
+        return b;
+    }
+
+    private long readVarint(int b) throws IOException {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            if (shift > 63)
+                throw new IOException("Corrupt scan log record");
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+            b = readByte();
+        }
+    }
+
+    private static int varintLength(long value) {
+        int length = 1;
+        while ((value & ~0x7FL) != 0) {
+            value >>>= 7;
+            length++;
+        }
+        return length;
+    }
+}
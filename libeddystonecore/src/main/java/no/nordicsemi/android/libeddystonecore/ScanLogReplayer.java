@@ -0,0 +1,101 @@
+/*************************************************************************************************************************************************
+ * Copyright (c) 2015, Nordic Semiconductor
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE
+ * USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ************************************************************************************************************************************************/
+package no.nordicsemi.android.libeddystonecore;
+
+import java.io.IOException;
+
+/**
+ * Feeds the records of a scan log to a {@link Listener}, either at the original pace, sped up, or as fast as possible.
+ * <p>
+ * Records are grouped in batches spanning at most {@code batchNanos} of log time, the way the scanner reports batched results,
+ * and the listener is told when a batch ends. When pacing, the replayer sleeps before each batch until it is due.
+ * </p>
+ */
+public final class ScanLogReplayer {
+    /** Speed that replays the log without waiting. */
+    public static final float AS_FAST_AS_POSSIBLE = 0;
+
+    public interface Listener {
+        /**
+         * Called for every record of the log.
+         *
+         * @param data the advertising data, valid until this method returns
+         */
+        void onScanResult(long timestampNanos, long address, int rssi, byte[] data, int length);
+
+        /**
+         * Called after the last record of a batch.
+         */
+        void onBatchEnd();
+    }
+
+    private final ScanLogReader mReader;
+    private final float mSpeed;
+    private final long mBatchNanos;
+
+    /**
+     * @param reader     the log
+     * @param speed      how much faster than recorded to replay the log, 1 for the original pace, or {@link #AS_FAST_AS_POSSIBLE}
+     * @param batchNanos the longest time span of a batch, in nanoseconds of log time
+     */
+    public ScanLogReplayer(final ScanLogReader reader, final float speed, final long batchNanos) {
+        if (speed < 0 || Float.isNaN(speed))
+            throw new IllegalArgumentException("Speed must not be negative");
+        if (batchNanos <= 0)
+            throw new IllegalArgumentException("Batch duration must be positive");
+        mReader = reader;
+        mSpeed = speed;
+        mBatchNanos = batchNanos;
+    }
+
+    /**
+     * Replays the rest of the log on the calling thread.
+     *
+     * @return the number of records replayed
+     * @throws InterruptedException if the thread was interrupted while waiting for a batch to become due
+     */
+    public long replay(final Listener listener) throws IOException, InterruptedException {
+        final ScanLogReader reader = mReader;
+        if (!reader.next())
+            return 0;
+
+        final long logStart = reader.getTimestampNanos();
+        final long wallStart = System.nanoTime();
+        long count = 0;
+        boolean more = true;
+        while (more) {
+            final long batchStart = reader.getTimestampNanos();
+            if (mSpeed != AS_FAST_AS_POSSIBLE) {
+                final long due = wallStart + (long) ((batchStart - logStart) / (double) mSpeed);
+                final long wait = due - System.nanoTime();
+                if (wait > 0)
+                    Thread.sleep(wait / 1000000, (int) (wait % 1000000));
+            }
+            do {
+                listener.onScanResult(reader.getTimestampNanos(), reader.getAddress(), reader.getRssi(), reader.getData(), reader.getDataLength());
+                count++;
+            } while ((more = reader.next()) && reader.getTimestampNanos() - batchStart < mBatchNanos);
+            listener.onBatchEnd();
+        }
+        return count;
+    }
+}
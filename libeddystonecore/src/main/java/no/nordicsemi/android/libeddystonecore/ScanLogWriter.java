@@ -0,0 +1,109 @@
+/*************************************************************************************************************************************************
+ * Copyright (c) 2015, Nordic Semiconductor
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE
+ * USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ************************************************************************************************************************************************/
+package no.nordicsemi.android.libeddystonecore;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Appends scan results to a compact binary log, to be read back with {@link ScanLogReader}.
+ * <p>
+ * The log starts with the magic "SCNL" and a version byte. Each record is prefixed with its length as an unsigned varint,
+ * followed by the timestamp as the zig-zag varint difference to the timestamp of the previous record, the 6-byte device
+ * address, the RSSI as a signed byte and the raw advertising data. Timestamps are in nanoseconds, as returned by
+ * ScanResult.getTimestampNanos(). A typical record of a beacon takes about 40 bytes.
+ * </p>
+ * The writer is buffered; call {@link #flush()} or {@link #close()} to write the buffered records. Instances are not thread-safe.
+ */
+public final class ScanLogWriter implements Closeable, Flushable {
+    static final int MAGIC = 0x53434E4C; // "SCNL"
+    static final int VERSION = 1;
+    /** Address, RSSI and at most two 10-byte varints. */
+    static final int MAX_RECORD_HEADER = 6 + 1 + 10 + 10;
+
+    private final OutputStream mOut;
+    private final byte[] mHeader = new byte[MAX_RECORD_HEADER];
+    private long mLastTimestamp;
+
+    /**
+     * Writes the log header to the stream.
+     */
+    public ScanLogWriter(final OutputStream out) throws IOException {
+        mOut = new BufferedOutputStream(out, 8192);
+        mOut.write(new byte[] { (byte) (MAGIC >>> 24), (byte) (MAGIC >>> 16), (byte) (MAGIC >>> 8), (byte) MAGIC, VERSION });
+    }
+
+    /**
+     * Appends a scan result.
+     *
+     * @param timestampNanos the time the result was received, in nanoseconds
+     * @param address        the 48-bit device address, see {@link HexCodec#parseAddress(CharSequence)}
+     * @param rssi           the received signal strength in dBm
+     * @param data           the buffer holding the raw advertising data, may be null if length is 0
+     * @param offset         the offset of the advertising data
+     * @param length         the length of the advertising data
+     */
+    public void append(final long timestampNanos, final long address, final int rssi, final byte[] data, final int offset, final int length)
+            throws IOException {
+        final byte[] header = mHeader;
+        final long delta = timestampNanos - mLastTimestamp;
+        mLastTimestamp = timestampNanos;
+        int position = writeVarint(header, 0, (delta << 1) ^ (delta >> 63));
+        for (int shift = 40; shift >= 0; shift -= 8)
+            header[position++] = (byte) (address >>> shift);
+        header[position++] = (byte) rssi;
+
+        final int lengthPosition = position;
+        final int lengthBytes = writeVarint(header, lengthPosition, position + length) - lengthPosition;
+        mOut.write(header, lengthPosition, lengthBytes);
+        mOut.write(header, 0, position);
+        if (length > 0)
+            mOut.write(data, offset, length);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        mOut.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        mOut.close();
+    }
+
+    /**
+     * Writes the value as an unsigned varint, 7 bits per byte, least significant first.
+     *
+     * @return the position after the last byte written
+     */
+    private static int writeVarint(final byte[] buffer, int position, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+        return position;
+    }
+}
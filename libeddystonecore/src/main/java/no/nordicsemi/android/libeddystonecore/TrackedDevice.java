@@ -0,0 +1,89 @@
+/*************************************************************************************************************************************************
+ * Copyright (c) 2015, Nordic Semiconductor
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE
+ * USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ************************************************************************************************************************************************/
+package no.nordicsemi.android.libeddystonecore;
+
+/**
+ * The state of a scanned device kept by a {@link DeviceTable}: the last scan result, the decoded Eddystone frames, the
+ * filtered RSSI and the estimated distance.
+ * <p>
+ * Subclasses add whatever the platform needs to address the device. Instances are owned by the table and must only be
+ * modified by it.
+ * </p>
+ */
+public class TrackedDevice {
+    /** Value of {@link #txPower} until an Eddystone frame with the Tx power was received. */
+    public static final int NO_TX_POWER = Integer.MIN_VALUE;
+    /** Value of {@link #rssi} for a scan result without an RSSI. */
+    public static final int NO_RSSI = -1000;
+    /** UID, URL, TLM and EID, indexed by the frame type shifted right by 4 bits. */
+    public static final int FRAME_TYPES = 4;
+
+    /** The 48-bit address as parsed by {@link HexCodec#parseAddress(CharSequence)}, or -1. */
+    public final long address;
+    /** Index of the device in the table, reused once the device has been removed. */
+    public final int slot;
+    public String name;
+    public int rssi;
+    /** The calibrated Tx power at 0 m advertised in Eddystone frames, or {@link #NO_TX_POWER}. */
+    public int txPower = NO_TX_POWER;
+    public float filteredRssi;
+    /** Estimated distance in meters, or {@link Float#NaN} if unknown. */
+    public float distance = Float.NaN;
+    /** The decoded Eddystone frames of the device, one per line in the order UID, URL, TLM, EID, or null if none were received. */
+    public String frames;
+    /** Time of the last scan result, in milliseconds. */
+    public long lastSeen;
+
+    /** The last payload and the decoded text of each Eddystone frame type. */
+    final byte[][] mFramePayloads = new byte[FRAME_TYPES][];
+    private final String[] mDecodedFrames = new String[FRAME_TYPES];
+
+    /**
+     * @param address the 48-bit address, or -1 if it could not be parsed
+     * @param slot    the slot given by {@link DeviceTable#nextSlot()}
+     */
+    public TrackedDevice(final long address, final int slot) {
+        this.address = address;
+        this.slot = slot;
+    }
+
+    /**
+     * Sets the decoded text of a frame type and rebuilds {@link #frames} if the text has changed. TLM counters change
+     * with every frame while the decoded text usually does not.
+     */
+    void setFrame(final int index, final String frame) {
+        final String previous = mDecodedFrames[index];
+        if (frame == null ? previous == null : frame.equals(previous))
+            return;
+        mDecodedFrames[index] = frame;
+        StringBuilder builder = null;
+        for (final String decoded : mDecodedFrames) {
+            if (decoded == null)
+                continue;
+            if (builder == null)
+                builder = new StringBuilder(decoded);
+            else
+                builder.append('\n').append(decoded);
+        }
+        frames = builder != null ? builder.toString() : null;
+    }
+}
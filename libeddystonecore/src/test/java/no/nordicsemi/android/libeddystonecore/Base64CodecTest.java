@@ -0,0 +1,84 @@
+/*************************************************************************************************************************************************
+ * Copyright (c) 2015, Nordic Semiconductor
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE
+ * USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ************************************************************************************************************************************************/
+package no.nordicsemi.android.libeddystonecore;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+
+/**
+ * Unit tests for the Base64Codec class.
+ */
+public class Base64CodecTest extends TestCase {
+    // RFC 4648 section 10
+    private static final String[] PLAIN = {"", "f", "fo", "foo", "foob", "fooba", "foobar"};
+    private static final String[] ENCODED = {"", "Zg==", "Zm8=", "Zm9v", "Zm9vYg==", "Zm9vYmE=", "Zm9vYmFy"};
+
+    public void testRfc4648Vectors() throws Exception {
+        for (int i = 0; i < PLAIN.length; i++) {
+            final byte[] bytes = PLAIN[i].getBytes("US-ASCII");
+            assertEquals(ENCODED[i], Base64Codec.encode(bytes));
+            assertTrue(Arrays.equals(bytes, Base64Codec.decode(ENCODED[i])));
+        }
+    }
+
+    public void testDecodeSkipsWhitespaceAndMissingPadding() throws Exception {
+        assertTrue(Arrays.equals("foob".getBytes("US-ASCII"), Base64Codec.decode(" Zm9v\nYg")));
+        try {
+            Base64Codec.decode("Zm9v!");
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            Base64Codec.decode("Z");
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    public void testRejectsMisplacedPadding() {
+        final String[] invalid = {"AAAA==", "AAAA=", "====", "Zg=", "Zg===", "Zm8==", "Z===", "Zg==Zg==", "Zg=A", "=Zg="};
+        for (final String text : invalid) {
+            try {
+                Base64Codec.decode(text);
+                fail(text);
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+        assertEquals(1, Base64Codec.decode("Zg= =").length);
+        assertEquals(3, Base64Codec.decode("AAAA").length);
+    }
+
+    public void testBuffers() throws Exception {
+        final byte[] bytes = "foobar".getBytes("US-ASCII");
+        final char[] chars = new char[2 + Base64Codec.encodedLength(4)];
+        assertEquals(chars.length, Base64Codec.encode(bytes, 1, 4, chars, 2));
+        assertEquals("b29iYQ==", new String(chars, 2, 8));
+
+        final byte[] decoded = new byte[1 + Base64Codec.maxDecodedLength(8)];
+        assertEquals(5, Base64Codec.decode("b29iYQ==", decoded, 1));
+        assertTrue(Arrays.equals("ooba".getBytes("US-ASCII"), Arrays.copyOfRange(decoded, 1, 5)));
+    }
+}
@@ -0,0 +1,135 @@
+/*************************************************************************************************************************************************
+ * Copyright (c) 2015, Nordic Semiconductor
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE
+ * USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ************************************************************************************************************************************************/
+package no.nordicsemi.android.libeddystonecore;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Unit tests for the DeviceTable class.
+ */
+public class DeviceTableTest extends TestCase {
+    private static final long MILLIS = 1000000L;
+
+    private final DeviceTable<TrackedDevice> mTable = new DeviceTable<>();
+
+    public void testFramesDecodedOncePerPayload() {
+        final TrackedDevice device = add(1);
+        final byte[] uid = new byte[20];
+        uid[1] = -20;
+        for (int i = 0; i < 16; i++)
+            uid[2 + i] = (byte) (0xA0 + i);
+        mTable.update(device, "Beacon", -61, 0, uid);
+        assertEquals("UID: A0A1A2A3A4A5A6A7A8A9 AAABACADAEAF", device.frames);
+        assertEquals(-20, device.txPower);
+        assertEquals(1.0f, device.distance, 0.01f);
+
+        // The same payload again is not decoded, so the text is not rebuilt either
+        final String frames = device.frames;
+        mTable.update(device, "Beacon", -61, MILLIS, uid.clone());
+        assertSame(frames, device.frames);
+
+        // TLM frames do not carry the Tx power
+        final byte[] tlm = {0x20, 0x00, 0x0B, (byte) 0xC4, (byte) 0xFA, (byte) 0x80, 0, 0, 0, 1, 0, 0, 0, 2};
+        mTable.update(device, null, -61, 2 * MILLIS, tlm);
+        assertEquals("UID: A0A1A2A3A4A5A6A7A8A9 AAABACADAEAF\nTLM: 3.01 V, -5.5\u00B0C", device.frames);
+        assertEquals(-20, device.txPower);
+        assertNull(device.name);
+        assertEquals(2, device.lastSeen);
+
+        // New TLM counters that decode to the same text keep the text
+        final String withTlm = device.frames;
+        final byte[] nextTlm = tlm.clone();
+        nextTlm[9] = 2;
+        nextTlm[13] = 3;
+        mTable.update(device, null, -61, 3 * MILLIS, nextTlm);
+        assertSame(withTlm, device.frames);
+
+        // Not an Eddystone frame
+        mTable.update(device, null, TrackedDevice.NO_RSSI, 4 * MILLIS, new byte[]{0x05, 0});
+        assertEquals(frames + "\nTLM: 3.01 V, -5.5\u00B0C", device.frames);
+        assertEquals(1.0f, device.distance, 0.01f);
+    }
+
+    public void testSortByDistance() {
+        final byte[] uid = new byte[20];
+        uid[1] = -20;
+        final TrackedDevice unknown = add(1);
+        mTable.update(unknown, null, -40, 0, null);
+        final TrackedDevice far = add(2);
+        mTable.update(far, null, -71, 0, uid);
+        final TrackedDevice near = add(3);
+        mTable.update(near, null, -61, 0, uid);
+        final TrackedDevice similar = add(4);
+        mTable.update(similar, null, -70, 0, uid);
+
+        assertTrue(mTable.sort());
+        assertSame(near, mTable.getDevices().get(0));
+        // Only slightly closer than the far device, so it does not overtake it
+        assertSame(far, mTable.getDevices().get(1));
+        assertSame(similar, mTable.getDevices().get(2));
+        assertSame(unknown, mTable.getDevices().get(3));
+        assertFalse(mTable.sort());
+    }
+
+    public void testExpireReusesSlots() {
+        for (int i = 0; i < 10; i++)
+            mTable.update(add(i), null, -60, i * 1000 * MILLIS, null);
+        mTable.update(mTable.get(0), null, -60, 20000 * MILLIS, null);
+
+        final List<TrackedDevice> removed = new ArrayList<>();
+        assertEquals(5, mTable.expire(20000, 15000, removed));
+        assertEquals(5, removed.size());
+        assertEquals(1, removed.get(0).slot);
+        assertEquals(5, mTable.size());
+        // The remaining devices keep their display order
+        final int[] slots = {0, 6, 7, 8, 9};
+        for (int i = 0; i < slots.length; i++)
+            assertSame(mTable.get(slots[i]), mTable.getDevices().get(i));
+        assertNull(mTable.get(1));
+        assertNotNull(mTable.get(0));
+
+        final TrackedDevice device = add(42);
+        assertTrue(device.slot >= 1 && device.slot <= 5);
+        assertSame(device, mTable.get(device.slot));
+        assertEquals(0, mTable.expire(20000, 15000, null));
+
+        try {
+            mTable.add(new TrackedDevice(43, device.slot));
+            fail();
+        } catch (final IllegalArgumentException e) {
+            // expected
+        }
+
+        mTable.clear();
+        assertEquals(0, mTable.size());
+        assertEquals(0, mTable.nextSlot());
+    }
+
+    private TrackedDevice add(final long address) {
+        final TrackedDevice device = new TrackedDevice(address, mTable.nextSlot());
+        mTable.add(device);
+        return device;
+    }
+}
@@ -0,0 +1,75 @@
+/*************************************************************************************************************************************************
+ * Copyright (c) 2015, Nordic Semiconductor
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE
+ * USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ************************************************************************************************************************************************/
+package no.nordicsemi.android.libeddystonecore;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for the EddystoneFrameFormatter class.
+ */
+public class EddystoneFrameFormatterTest extends TestCase {
+    private final EddystoneFrameFormatter mFormatter = new EddystoneFrameFormatter();
+
+    public void testUid() {
+        final byte[] frame = new byte[20];
+        frame[1] = -20;
+        for (int i = 0; i < 16; i++)
+            frame[2 + i] = (byte) (0xA0 + i);
+        assertEquals("UID: A0A1A2A3A4A5A6A7A8A9 AAABACADAEAF", mFormatter.format(frame));
+        assertEquals(-20, mFormatter.getFrame().getTxPower());
+    }
+
+    public void testUrl() {
+        final byte[] frame = {0x10, -10, 0x03, 'e', 'x', 'a', 'm', 'p', 'l', 'e', 0x07};
+        assertEquals("URL: https://example.com", mFormatter.format(frame));
+        assertSame(mFormatter.format(frame), mFormatter.format(frame.clone()));
+    }
+
+    public void testEid() {
+        final byte[] frame = {0x30, -4, 1, 2, 3, 4, 5, 6, 7, (byte) 0xFF};
+        assertEquals("EID: 01020304050607FF", mFormatter.format(frame));
+    }
+
+    public void testTlm() {
+        // 3012 mV, -5.5 degrees
+        final byte[] frame = {0x20, 0x00, 0x0B, (byte) 0xC4, (byte) 0xFA, (byte) 0x80, 0, 0, 0, 1, 0, 0, 0, 2};
+        assertEquals("TLM: 3.01 V, -5.5\u00B0C", mFormatter.format(frame));
+
+        // Neither measured
+        frame[2] = frame[3] = 0;
+        frame[4] = (byte) 0x80;
+        frame[5] = 0;
+        assertEquals("TLM:", mFormatter.format(frame));
+
+        final byte[] encrypted = new byte[18];
+        encrypted[0] = 0x20;
+        encrypted[1] = 0x01;
+        assertEquals("eTLM", mFormatter.format(encrypted));
+    }
+
+    public void testInvalid() {
+        assertNull(mFormatter.format(new byte[0]));
+        assertNull(mFormatter.format(new byte[] {0x00, 0x00, 0x01}));
+        assertNull(mFormatter.format(new byte[] {0x40, 0x00, 0x01}));
+        assertNull(mFormatter.format(new byte[] {0x10, 0x00, 0x0F, 'a'}));
+    }
+}
@@ -0,0 +1,173 @@
+/*************************************************************************************************************************************************
+ * Copyright (c) 2015, Nordic Semiconductor
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE
+ * USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ************************************************************************************************************************************************/
+package no.nordicsemi.android.libeddystonecore;
+
+import junit.framework.TestCase;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Unit tests for the EddystoneFrame class.
+ */
+public class EddystoneFrameTest extends TestCase {
+    private final EddystoneFrame mFrame = new EddystoneFrame();
+
+    public void testFrameTypeLengths() {
+        assertType(EddystoneFrame.TYPE_UNKNOWN, new byte[0]);
+        assertType(EddystoneFrame.TYPE_UNKNOWN, new byte[]{0x40, 0, 0});
+
+        assertType(EddystoneFrame.TYPE_UID, frame(EddystoneFrame.TYPE_UID, 18));
+        assertType(EddystoneFrame.TYPE_UID, frame(EddystoneFrame.TYPE_UID, 20)); // with the reserved bytes
+        assertType(EddystoneFrame.TYPE_UNKNOWN, frame(EddystoneFrame.TYPE_UID, 17));
+
+        assertType(EddystoneFrame.TYPE_URL, frame(EddystoneFrame.TYPE_URL, 3));
+        assertType(EddystoneFrame.TYPE_UNKNOWN, frame(EddystoneFrame.TYPE_URL, 2));
+
+        assertType(EddystoneFrame.TYPE_TLM, frame(EddystoneFrame.TYPE_TLM, 14));
+        assertType(EddystoneFrame.TYPE_UNKNOWN, frame(EddystoneFrame.TYPE_TLM, 13));
+
+        final byte[] etlm = frame(EddystoneFrame.TYPE_TLM, 18);
+        etlm[1] = EddystoneFrame.TLM_VERSION_ENCRYPTED;
+        assertType(EddystoneFrame.TYPE_TLM, etlm);
+        assertType(EddystoneFrame.TYPE_UNKNOWN, Arrays.copyOf(etlm, 17));
+        assertType(EddystoneFrame.TYPE_UNKNOWN, Arrays.copyOf(etlm, 14)); // long enough for a plain TLM only
+    }
+
+    public void testEidFrameVersusSlotData() {
+        final byte[] eid = frame(EddystoneFrame.TYPE_EID, 10);
+        assertEquals(EddystoneFrame.TYPE_EID, mFrame.wrap(eid).getFrameType());
+        assertEquals(EddystoneFrame.TYPE_UNKNOWN, mFrame.wrap(Arrays.copyOf(eid, 9)).getFrameType());
+        // The slot data carries the rotation period exponent and the clock, so 10 bytes are not enough
+        assertEquals(EddystoneFrame.TYPE_UNKNOWN, mFrame.wrapSlotData(eid).getFrameType());
+        assertEquals(EddystoneFrame.TYPE_EID, mFrame.wrapSlotData(frame(EddystoneFrame.TYPE_EID, 14)).getFrameType());
+        assertEquals(EddystoneFrame.TYPE_UNKNOWN, mFrame.wrapSlotData(frame(EddystoneFrame.TYPE_EID, 13)).getFrameType());
+
+        // Other frame types are the same in both forms
+        assertEquals(EddystoneFrame.TYPE_UID, mFrame.wrapSlotData(frame(EddystoneFrame.TYPE_UID, 18)).getFrameType());
+    }
+
+    public void testUid() {
+        final byte[] uid = new byte[20];
+        uid[1] = -20;
+        for (int i = 0; i < 16; i++)
+            uid[2 + i] = (byte) (0xA0 + i);
+        mFrame.wrap(uid);
+        assertEquals(-20, mFrame.getTxPower());
+        assertEquals(0xA0A1A2A3A4A5A6A7L, mFrame.getNamespaceIdHigh());
+        assertEquals(0xA8A9, mFrame.getNamespaceIdLow());
+        assertEquals(0xAAABACADAEAFL, mFrame.getInstanceId());
+
+        final byte[] ids = new byte[1 + EddystoneFrame.NAMESPACE_ID_LENGTH + EddystoneFrame.INSTANCE_ID_LENGTH];
+        mFrame.getNamespaceId(ids, 1);
+        mFrame.getInstanceId(ids, 1 + EddystoneFrame.NAMESPACE_ID_LENGTH);
+        assertTrue(Arrays.equals(Arrays.copyOfRange(uid, 2, 18), Arrays.copyOfRange(ids, 1, ids.length)));
+    }
+
+    public void testUrl() {
+        final byte[] url = {0x10, (byte) 0xF6, 0x03, 'n', 'o', 'r', 'd', 'i', 'c', 0x07};
+        mFrame.wrap(url);
+        assertEquals(EddystoneFrame.TYPE_URL, mFrame.getFrameType());
+        assertEquals(-10, mFrame.getTxPower());
+        assertEquals(3, mFrame.getUrlScheme());
+        assertEquals(7, mFrame.getEncodedUrlLength());
+        assertEquals('n', mFrame.getEncodedUrlByte(0));
+        assertEquals(0x07, mFrame.getEncodedUrlByte(6));
+    }
+
+    public void testTlm() {
+        final byte[] tlm = {0x20, 0x00, 0x0B, (byte) 0xC4, (byte) 0xFA, (byte) 0x80, 0x01, 0x02, 0x03, 0x04, (byte) 0xFF, 0, 0, 0x10};
+        mFrame.wrap(tlm);
+        assertFalse(mFrame.isEncryptedTlm());
+        assertEquals(EddystoneFrame.TLM_VERSION_UNENCRYPTED, mFrame.getTlmVersion());
+        assertEquals(3012, mFrame.getBatteryVoltage());
+        assertEquals(0xFA80, mFrame.getTemperatureFixedPoint());
+        assertEquals(-5.5f, mFrame.getTemperature(), 0.0f);
+        assertEquals(0x01020304L, mFrame.getAdvertisingCount());
+        assertEquals(0xFF000010L, mFrame.getTimeSinceBoot());
+    }
+
+    public void testEncryptedTlm() {
+        final byte[] etlm = new byte[18];
+        etlm[0] = EddystoneFrame.TYPE_TLM;
+        etlm[1] = EddystoneFrame.TLM_VERSION_ENCRYPTED;
+        for (int i = 0; i < EddystoneFrame.ENCRYPTED_TLM_LENGTH; i++)
+            etlm[2 + i] = (byte) i;
+        etlm[14] = 0x12;
+        etlm[15] = 0x34;
+        etlm[16] = (byte) 0xAB;
+        etlm[17] = (byte) 0xCD;
+        mFrame.wrap(etlm);
+        assertTrue(mFrame.isEncryptedTlm());
+        final byte[] encrypted = new byte[EddystoneFrame.ENCRYPTED_TLM_LENGTH];
+        mFrame.getEncryptedTlm(encrypted, 0);
+        assertTrue(Arrays.equals(Arrays.copyOfRange(etlm, 2, 14), encrypted));
+        assertEquals(0x1234, mFrame.getSalt());
+        assertEquals(0xABCD, mFrame.getMessageIntegrityCheck());
+    }
+
+    public void testEid() {
+        final byte[] eid = {0x30, (byte) 0xEC, 1, 2, 3, 4, 5, 6, 7, (byte) 0x88};
+        mFrame.wrap(eid);
+        assertEquals(-20, mFrame.getTxPower());
+        assertEquals(0x0102030405060788L, mFrame.getEid());
+
+        final byte[] slot = {0x30, 12, 0x00, 0x01, 0x00, 0x02, 1, 2, 3, 4, 5, 6, 7, (byte) 0x88};
+        mFrame.wrapSlotData(slot);
+        assertEquals(12, mFrame.getRotationPeriodExponent());
+        assertEquals(0x00010002L, mFrame.getClockValue());
+        assertEquals(0x0102030405060788L, mFrame.getEid());
+        final byte[] out = new byte[EddystoneFrame.EID_LENGTH];
+        mFrame.getEid(out, 0);
+        assertTrue(Arrays.equals(Arrays.copyOfRange(slot, 6, 14), out));
+    }
+
+    public void testWrapLeavesBufferUntouched() {
+        final ByteBuffer buffer = ByteBuffer.allocate(32).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put(4, (byte) EddystoneFrame.TYPE_TLM).putShort(6, (short) 0x0BC4);
+        buffer.position(3).limit(24);
+        mFrame.wrap(buffer, 4, 14);
+        assertEquals(EddystoneFrame.TYPE_TLM, mFrame.getFrameType());
+        assertEquals(14, mFrame.getLength());
+        assertEquals(0xC40B, mFrame.getBatteryVoltage()); // absolute big endian reads
+        assertEquals(3, buffer.position());
+        assertEquals(24, buffer.limit());
+        assertEquals(ByteOrder.LITTLE_ENDIAN, buffer.order());
+        try {
+            mFrame.wrap(buffer, 12, 14);
+            fail("A frame beyond the limit must be rejected");
+        } catch (final IndexOutOfBoundsException e) {
+            // expected
+        }
+    }
+
+    private void assertType(final int type, final byte[] data) {
+        assertEquals(type, mFrame.wrap(data).getFrameType());
+    }
+
+    private static byte[] frame(final int type, final int length) {
+        final byte[] data = new byte[length];
+        data[0] = (byte) type;
+        return data;
+    }
+}
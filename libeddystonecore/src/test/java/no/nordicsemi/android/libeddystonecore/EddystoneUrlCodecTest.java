@@ -0,0 +1,72 @@
+/*************************************************************************************************************************************************
+ * Copyright (c) 2015, Nordic Semiconductor
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE
+ * USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ************************************************************************************************************************************************/
+package no.nordicsemi.android.libeddystonecore;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+
+/**
+ * Unit tests for the EddystoneUrlEncoder and EddystoneUrlDecoder classes.
+ */
+public class EddystoneUrlCodecTest extends TestCase {
+
+    public void testEncodeUsesCodesAndShortestScheme() {
+        final EddystoneUrlEncoder encoder = new EddystoneUrlEncoder();
+        assertTrue(Arrays.equals(new byte[]{0, 'n', 'o', 'r', 'd', 'i', 'c', 's', 'e', 'm', 'i', 0},
+                encoder.encode("http://www.nordicsemi.com/")));
+        assertTrue(Arrays.equals(new byte[]{3, 'g', 'o', 'o', '.', 'g', 'l', '/', 'x'}, encoder.encode("HTTPS://goo.gl/x")));
+        assertTrue(Arrays.equals(new byte[]{2, 'a', 4, 'b', 7}, encoder.encode("http://a.info/b.com")));
+        assertEquals(0, encoder.encode("").length);
+        assertNull(encoder.encode("ftp://example.com"));
+        assertNull(encoder.encode("urn:uuid:not-a-uuid"));
+    }
+
+    public void testRoundTrip() {
+        final EddystoneUrlEncoder encoder = new EddystoneUrlEncoder();
+        final EddystoneUrlDecoder decoder = new EddystoneUrlDecoder();
+        final String[] uris = {"http://www.nordicsemi.com/", "https://goo.gl/S6zT6P", "http://a.org/b.gov/c.edu",
+                "urn:uuid:0f0e0d0c-0b0a-0908-0706-050403020100"};
+        final byte[][] encoded = encoder.encodeAll(uris);
+        for (int i = 0; i < uris.length; i++) {
+            assertEquals(uris[i], decoder.decode(encoded[i], 0, encoded[i].length));
+        }
+        assertEquals(17, encoded[3].length);
+    }
+
+    public void testDecodeIntoAppendableAndCache() throws Exception {
+        final EddystoneUrlDecoder decoder = new EddystoneUrlDecoder();
+        final byte[] frame = {0x10, (byte) 0xEB, 2, 'a', 7, 'x'};
+        final StringBuilder builder = new StringBuilder("> ");
+        assertTrue(decoder.decode(frame, 2, 4, builder));
+        assertEquals("> http://a.comx", builder.toString());
+
+        final String uri = decoder.decode(frame, 2, 4);
+        assertEquals("http://a.comx", uri);
+        assertSame(uri, decoder.decode(frame.clone(), 2, 4));
+
+        assertNull(decoder.decode(new byte[]{9, 'a'}, 0, 2));
+        assertNull(decoder.decode(new byte[]{4, 1, 2}, 0, 3));
+        assertFalse(decoder.decode(new byte[]{9, 'a'}, 0, 2, builder));
+        assertEquals("> http://a.comx", builder.toString());
+    }
+}
@@ -0,0 +1,75 @@
+/*************************************************************************************************************************************************
+ * Copyright (c) 2015, Nordic Semiconductor
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE
+ * USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ************************************************************************************************************************************************/
+package no.nordicsemi.android.libeddystonecore;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+
+/**
+ * Unit tests for the HexCodec class.
+ */
+public class HexCodecTest extends TestCase {
+
+    public void testHex() {
+        final byte[] bytes = {0x00, 0x1F, (byte) 0xA0, (byte) 0xFF};
+        assertEquals("0x001FA0FF", HexCodec.bytesToHex(bytes, 0, 4, true));
+        assertEquals("1FA0", HexCodec.bytesToHex(bytes, 1, 2, false));
+        assertEquals("", HexCodec.bytesToHex(bytes, 4, 1, false));
+        assertTrue(Arrays.equals(bytes, HexCodec.hexToBytes("001fa0FF")));
+    }
+
+    public void testBuffers() {
+        final char[] hex = new char[6];
+        assertEquals(6, HexCodec.encode(new byte[]{(byte) 0xAB, 0x01, (byte) 0xFE}, 0, 3, hex, 0, false));
+        assertEquals("ab01fe", new String(hex));
+        final byte[] parsed = new byte[3];
+        assertEquals(3, HexCodec.decode("xxAb01fE", 2, 3, parsed, 0));
+        assertTrue(Arrays.equals(new byte[]{(byte) 0xAB, 0x01, (byte) 0xFE}, parsed));
+        assertEquals(-1, HexCodec.decode("0g", 0, 1, parsed, 0));
+    }
+
+    public void testLockCode() {
+        assertTrue(HexCodec.isLockCode("FFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFF"));
+        assertTrue(HexCodec.isLockCode("0123456789abcdefABCDEF0123456789"));
+        assertFalse(HexCodec.isLockCode("FFFFFFFFFFFFFFFFFFFFFFFFFFFFFFF"));
+        assertFalse(HexCodec.isLockCode("FFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFF"));
+        assertFalse(HexCodec.isLockCode("FFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFG"));
+        assertFalse(HexCodec.isLockCode("FFFFFFFFFFFFFFFFFFFFFFFFFFFFFFF\u0660"));
+        assertFalse(HexCodec.isLockCode(null));
+    }
+
+    public void testParseAddress() {
+        assertEquals(0x0011228899FFL, HexCodec.parseAddress("00:11:22:88:99:FF"));
+        assertEquals(0xFFFFFFFFFFFFL, HexCodec.parseAddress("ff:ff:ff:ff:ff:ff"));
+        assertEquals(-1, HexCodec.parseAddress("00:11:22:88:99:FG"));
+        assertEquals(-1, HexCodec.parseAddress("00-11-22-88-99-FF"));
+        assertEquals(-1, HexCodec.parseAddress("00:11:22:88:99:F"));
+        assertEquals(-1, HexCodec.parseAddress(null));
+    }
+
+    public void testFormatAddress() {
+        assertEquals("00:11:22:88:99:FF", HexCodec.formatAddress(0x0011228899FFL));
+        assertEquals("FF:FF:FF:FF:FF:FF", HexCodec.formatAddress(0xFFFFFFFFFFFFL));
+        assertEquals("00:00:00:00:00:00", HexCodec.formatAddress(0L));
+    }
+}
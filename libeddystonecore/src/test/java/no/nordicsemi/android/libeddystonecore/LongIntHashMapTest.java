@@ -0,0 +1,99 @@
+/*************************************************************************************************************************************************
+ * Copyright (c) 2015, Nordic Semiconductor
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE
+ * USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ************************************************************************************************************************************************/
+package no.nordicsemi.android.libeddystonecore;
+
+import junit.framework.TestCase;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Unit tests for the LongIntHashMap class.
+ */
+public class LongIntHashMapTest extends TestCase {
+
+    public void testPutGetReplace() {
+        final LongIntHashMap map = new LongIntHashMap(4);
+        assertEquals(LongIntHashMap.NO_VALUE, map.get(42L));
+        assertEquals(LongIntHashMap.NO_VALUE, map.put(42L, 1));
+        assertEquals(LongIntHashMap.NO_VALUE, map.put(-42L, 0));
+        assertEquals(1, map.put(42L, 7));
+        assertEquals(2, map.size());
+        assertEquals(7, map.get(42L));
+        assertEquals(0, map.get(-42L));
+        try {
+            map.put(1L, -1);
+            fail("Negative values must be rejected");
+        } catch (final IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    public void testRemoveOnlyMatchingValue() {
+        final LongIntHashMap map = new LongIntHashMap(4);
+        map.put(5L, 3);
+        assertFalse(map.remove(5L, 4));
+        assertFalse(map.remove(6L, 3));
+        assertEquals(3, map.get(5L));
+        assertTrue(map.remove(5L, 3));
+        assertEquals(0, map.size());
+        assertEquals(LongIntHashMap.NO_VALUE, map.get(5L));
+    }
+
+    public void testGrowAndRemoveAgainstHashMap() {
+        final LongIntHashMap map = new LongIntHashMap(0);
+        final Map<Long, Integer> expected = new HashMap<>();
+        final Random random = new Random(1);
+        // A small key range forces long probe runs, so removals exercise the backward shift
+        for (int i = 0; i < 20000; i++) {
+            final long key = random.nextInt(512);
+            final int value = random.nextInt(4);
+            if (random.nextBoolean()) {
+                final Integer previous = expected.put(key, value);
+                assertEquals(previous == null ? LongIntHashMap.NO_VALUE : previous, map.put(key, value));
+            } else {
+                final boolean removes = Integer.valueOf(value).equals(expected.get(key));
+                if (removes)
+                    expected.remove(key);
+                assertEquals(removes, map.remove(key, value));
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        for (long key = 0; key < 512; key++) {
+            final Integer value = expected.get(key);
+            assertEquals(value == null ? LongIntHashMap.NO_VALUE : value, map.get(key));
+        }
+    }
+
+    public void testClear() {
+        final LongIntHashMap map = new LongIntHashMap(16);
+        for (int i = 0; i < 16; i++)
+            map.put(i, i);
+        map.clear();
+        assertEquals(0, map.size());
+        for (int i = 0; i < 16; i++)
+            assertEquals(LongIntHashMap.NO_VALUE, map.get(i));
+        map.put(3L, 9);
+        assertEquals(9, map.get(3L));
+    }
+}
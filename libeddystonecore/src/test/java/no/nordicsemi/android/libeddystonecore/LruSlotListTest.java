@@ -0,0 +1,75 @@
+/*************************************************************************************************************************************************
+ * Copyright (c) 2015, Nordic Semiconductor
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE
+ * USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ************************************************************************************************************************************************/
+package no.nordicsemi.android.libeddystonecore;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for the LruSlotList class.
+ */
+public class LruSlotListTest extends TestCase {
+
+    public void testOrder() {
+        final LruSlotList list = new LruSlotList();
+        assertEquals(LruSlotList.NONE, list.eldest());
+        list.touch(2);
+        list.touch(0);
+        list.touch(40);
+        assertEquals(3, list.size());
+        assertEquals(2, list.eldest());
+
+        list.touch(2);
+        assertEquals(0, list.eldest());
+        list.touch(2); // already the most recent
+        list.remove(0);
+        assertFalse(list.contains(0));
+        assertEquals(40, list.eldest());
+        list.remove(40);
+        assertEquals(2, list.eldest());
+        list.remove(2);
+        assertEquals(0, list.size());
+        assertEquals(LruSlotList.NONE, list.eldest());
+        list.remove(7); // never added
+    }
+
+    public void testExpireInTouchOrder() {
+        final LruSlotList list = new LruSlotList();
+        for (int i = 0; i < 100; i++)
+            list.touch((i * 37) % 100);
+        for (int i = 0; i < 100; i += 2)
+            list.touch((i * 37) % 100);
+        for (int i = 1; i < 100; i += 2) {
+            assertEquals((i * 37) % 100, list.eldest());
+            list.remove(list.eldest());
+        }
+        for (int i = 0; i < 100; i += 2) {
+            assertEquals((i * 37) % 100, list.eldest());
+            list.remove(list.eldest());
+        }
+        assertEquals(0, list.size());
+
+        list.touch(5);
+        list.clear();
+        assertEquals(LruSlotList.NONE, list.eldest());
+        assertFalse(list.contains(5));
+    }
+}
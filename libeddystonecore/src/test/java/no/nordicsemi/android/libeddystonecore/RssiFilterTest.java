@@ -0,0 +1,88 @@
+/*************************************************************************************************************************************************
+ * Copyright (c) 2015, Nordic Semiconductor
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE
+ * USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ************************************************************************************************************************************************/
+package no.nordicsemi.android.libeddystonecore;
+
+import junit.framework.TestCase;
+
+import java.util.Random;
+
+/**
+ * Unit tests for the RssiFilter class.
+ */
+public class RssiFilterTest extends TestCase {
+
+    public void testFirstSampleIsTakenAsIs() {
+        for (final int mode : new int[] {RssiFilter.MODE_EMA, RssiFilter.MODE_KALMAN}) {
+            final RssiFilter filter = new RssiFilter(mode);
+            assertTrue(Float.isNaN(filter.get(3)));
+            assertEquals(-70f, filter.add(3, -70));
+            assertEquals(-70f, filter.get(3));
+            filter.reset(3);
+            assertTrue(Float.isNaN(filter.get(3)));
+            assertEquals(-50f, filter.add(3, -50));
+        }
+    }
+
+    public void testEma() {
+        final RssiFilter filter = new RssiFilter(RssiFilter.MODE_EMA, 0.5f, 1f, 1f);
+        filter.add(0, -80);
+        assertEquals(-70f, filter.add(0, -60));
+        assertEquals(-65f, filter.add(0, -60));
+    }
+
+    public void testSlotsAreIndependentAndGrow() {
+        final RssiFilter filter = new RssiFilter(RssiFilter.MODE_KALMAN);
+        filter.add(0, -40);
+        filter.add(100, -90);
+        assertEquals(-40f, filter.get(0));
+        assertEquals(-90f, filter.get(100));
+        filter.clear();
+        assertTrue(Float.isNaN(filter.get(0)));
+        assertTrue(Float.isNaN(filter.get(100)));
+    }
+
+    public void testFiltersReduceNoise() {
+        final Random random = new Random(3);
+        final RssiFilter ema = new RssiFilter(RssiFilter.MODE_EMA);
+        final RssiFilter kalman = new RssiFilter(RssiFilter.MODE_KALMAN);
+        double rawError = 0, emaError = 0, kalmanError = 0;
+        for (int i = 0; i < 1000; i++) {
+            final int rssi = (int) Math.round(-70 + 4 * random.nextGaussian());
+            final float e = ema.add(0, rssi);
+            final float k = kalman.add(0, rssi);
+            if (i >= 100) {
+                rawError += (rssi + 70) * (rssi + 70);
+                emaError += (e + 70) * (e + 70);
+                kalmanError += (k + 70) * (k + 70);
+            }
+        }
+        assertTrue(emaError < rawError / 3);
+        assertTrue(kalmanError < emaError);
+    }
+
+    public void testEstimateDistance() {
+        // Tx power at 0 m of -20 dBm is -61 dBm at 1 m.
+        assertEquals(1f, RssiFilter.estimateDistance(-61f, -20), 1e-4f);
+        assertEquals(10f, RssiFilter.estimateDistance(-81f, -20), 1e-3f);
+        assertTrue(Float.isNaN(RssiFilter.estimateDistance(Float.NaN, -20)));
+    }
+}
@@ -0,0 +1,132 @@
+/*************************************************************************************************************************************************
+ * Copyright (c) 2015, Nordic Semiconductor
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE
+ * USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ************************************************************************************************************************************************/
+package no.nordicsemi.android.libeddystonecore;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Unit tests for the ScanLogWriter, ScanLogReader, ScanLogReplayer and AdvertisingData classes.
+ */
+public class ScanLogTest extends TestCase {
+    // Flags, complete local name "nRF", Eddystone URL service data for "https://example.com"
+    private static final byte[] ADVERTISEMENT = {
+            0x02, 0x01, 0x06,
+            0x04, 0x09, 'n', 'R', 'F',
+            0x0E, 0x16, (byte) 0xAA, (byte) 0xFE, 0x10, (byte) 0xEE, 0x03, 'e', 'x', 'a', 'm', 'p', 'l', 'e', 0x07
+    };
+
+    public void testRoundTrip() throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final ScanLogWriter writer = new ScanLogWriter(out);
+        writer.append(5000000000L, 0xC0FFEE123456L, -60, ADVERTISEMENT, 0, ADVERTISEMENT.length);
+        writer.append(4000000000L, 0x000000000001L, -127, null, 0, 0); // timestamps may go back within a batch
+        final byte[] big = new byte[300];
+        big[299] = 42;
+        writer.append(6000000000L, 0xFFFFFFFFFFFFL, 20, big, 0, big.length);
+        writer.close();
+
+        final ScanLogReader reader = new ScanLogReader(new ByteArrayInputStream(out.toByteArray()));
+        assertTrue(reader.next());
+        assertEquals(5000000000L, reader.getTimestampNanos());
+        assertEquals(0xC0FFEE123456L, reader.getAddress());
+        assertEquals(-60, reader.getRssi());
+        assertTrue(Arrays.equals(ADVERTISEMENT, Arrays.copyOf(reader.getData(), reader.getDataLength())));
+
+        assertTrue(reader.next());
+        assertEquals(4000000000L, reader.getTimestampNanos());
+        assertEquals(1L, reader.getAddress());
+        assertEquals(-127, reader.getRssi());
+        assertEquals(0, reader.getDataLength());
+
+        assertTrue(reader.next());
+        assertEquals(6000000000L, reader.getTimestampNanos());
+        assertEquals(0xFFFFFFFFFFFFL, reader.getAddress());
+        assertEquals(20, reader.getRssi());
+        assertEquals(300, reader.getDataLength());
+        assertEquals(42, reader.getData()[299]);
+        assertFalse(reader.next());
+    }
+
+    public void testTruncatedRecordIsIgnored() throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final ScanLogWriter writer = new ScanLogWriter(out);
+        writer.append(1, 2, -50, ADVERTISEMENT, 0, ADVERTISEMENT.length);
+        writer.append(2, 3, -50, ADVERTISEMENT, 0, ADVERTISEMENT.length);
+        writer.close();
+        final byte[] log = out.toByteArray();
+
+        final ScanLogReader reader = new ScanLogReader(new ByteArrayInputStream(log, 0, log.length - 5));
+        assertTrue(reader.next());
+        assertFalse(reader.next());
+
+        try {
+            new ScanLogReader(new ByteArrayInputStream(new byte[] {'S', 'C', 'N', 'X', 1}));
+            fail();
+        } catch (final IOException e) {
+            // expected
+        }
+    }
+
+    public void testReplayBatches() throws Exception {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final ScanLogWriter writer = new ScanLogWriter(out);
+        final long second = 1000000000L;
+        final long[] timestamps = {0, second / 2, second, 3 * second, 3 * second + 1};
+        for (int i = 0; i < timestamps.length; i++)
+            writer.append(timestamps[i], i, -50, ADVERTISEMENT, 0, ADVERTISEMENT.length);
+        writer.close();
+
+        final List<String> events = new ArrayList<>();
+        final ScanLogReplayer replayer = new ScanLogReplayer(new ScanLogReader(new ByteArrayInputStream(out.toByteArray())),
+                ScanLogReplayer.AS_FAST_AS_POSSIBLE, second);
+        final long count = replayer.replay(new ScanLogReplayer.Listener() {
+            @Override
+            public void onScanResult(final long timestampNanos, final long address, final int rssi, final byte[] data, final int length) {
+                events.add(String.valueOf(address));
+            }
+
+            @Override
+            public void onBatchEnd() {
+                events.add("|");
+            }
+        });
+        assertEquals(5, count);
+        assertEquals(Arrays.asList("0", "1", "|", "2", "|", "3", "4", "|"), events);
+    }
+
+    public void testAdvertisingData() {
+        final byte[] serviceData = AdvertisingData.getServiceData(ADVERTISEMENT, 0, ADVERTISEMENT.length, AdvertisingData.EDDYSTONE_SERVICE_UUID);
+        assertEquals("URL: https://example.com", new EddystoneFrameFormatter().format(serviceData));
+        assertNull(AdvertisingData.getServiceData(ADVERTISEMENT, 0, ADVERTISEMENT.length, 0xFEAB));
+        assertEquals("nRF", AdvertisingData.getLocalName(ADVERTISEMENT, 0, ADVERTISEMENT.length));
+        assertNull(AdvertisingData.getLocalName(ADVERTISEMENT, 0, 3));
+        // A field running past the end is ignored
+        assertNull(AdvertisingData.getServiceData(ADVERTISEMENT, 0, ADVERTISEMENT.length - 1, AdvertisingData.EDDYSTONE_SERVICE_UUID));
+    }
+}
@@ -0,0 +1,60 @@
+// Copyright 2015 Google Inc. All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//    http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sample.libeddystoneeidr;
+
+import android.test.AndroidTestCase;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Unit tests for the Curve25519 class.
+ */
+public class Curve25519Test extends AndroidTestCase {
+
+  public void testBatchMatchesSingle() {
+    Random random = new Random(42);
+    byte[][] scalars = new byte[17][32];
+    byte[][] points = new byte[17][32];
+    for (int i = 0; i < scalars.length; i++) {
+      random.nextBytes(scalars[i]);
+      random.nextBytes(points[i]);
+      points[i][31] &= 0x7f;
+    }
+    // A point whose ladder ends with z = 0 must not spoil the rest of the batch.
+    Arrays.fill(points[5], (byte) 0);
+
+    byte[][] expected = new byte[scalars.length][];
+    for (int i = 0; i < scalars.length; i++) {
+      expected[i] = Curve25519.scalarMult(scalars[i].clone(), points[i]);
+    }
+    byte[][] actual = Curve25519.scalarMult(scalars, points);
+    for (int i = 0; i < scalars.length; i++) {
+      assertTrue("Mismatch at " + i, Arrays.equals(expected[i], actual[i]));
+    }
+  }
+
+  public void testBatchBase() {
+    byte[][] scalars = new byte[3][32];
+    for (int i = 0; i < scalars.length; i++) {
+      scalars[i][0] = (byte) (i + 1);
+    }
+    byte[][] actual = Curve25519.scalarMultBase(scalars);
+    for (int i = 0; i < scalars.length; i++) {
+      assertTrue(Arrays.equals(Curve25519.scalarMultBase(scalars[i].clone()), actual[i]));
+    }
+    assertEquals(0, Curve25519.scalarMultBase(new byte[0][]).length);
+  }
+}
@@ -0,0 +1,100 @@
+// Copyright 2015 Google Inc. All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//    http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sample.libeddystoneeidr;
+
+import android.test.AndroidTestCase;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Unit tests for the EidProvisioner class.
+ */
+public class EidProvisionerTest extends AndroidTestCase {
+
+  private static final String SERVICE_PUBLIC_KEY =
+      "00112233445566778899aabbccddeeff00112233445566778899aabbccddeeff";
+
+  public void testKnownPrivateKey() throws Exception {
+    final byte[][] result = new byte[3][];
+    EidProvisioner provisioner = new EidProvisioner(toByteArray(SERVICE_PUBLIC_KEY), 2);
+    try {
+      provisioner.provision(
+          new byte[][] {
+              toByteArray("5028d027aab146c78da0ef60d1c71bf49e60e7b876359cac1e5ed7848c8b3544") },
+          new EidProvisioner.Listener() {
+            @Override
+            public void onKeysProvisioned(int index, byte[] beaconPrivateKey,
+                byte[] beaconPublicKey, byte[] identityKey) {
+              result[0] = beaconPrivateKey;
+              result[1] = beaconPublicKey;
+              result[2] = identityKey;
+            }
+
+            @Override
+            public void onProvisioningFailed(int index) {
+              fail();
+            }
+          });
+    } finally {
+      provisioner.shutdown();
+    }
+    assertTrue(Arrays.equals(toByteArray(
+        "265aabc27a7f5a040674ebbc43c8888da368024f07979805aa81ff67e9dd573f"), result[1]));
+    assertTrue(Arrays.equals(toByteArray("2fcc73b2346d15adb806ea799431d3c0"), result[2]));
+  }
+
+  public void testRandomBatchMatchesGenerator() throws Exception {
+    final byte[] serviceKey = toByteArray(SERVICE_PUBLIC_KEY);
+    final AtomicInteger provisioned = new AtomicInteger();
+    final boolean[] seen = new boolean[50];
+    EidProvisioner provisioner = new EidProvisioner(serviceKey, 4);
+    try {
+      provisioner.provision(seen.length, new EidProvisioner.Listener() {
+        @Override
+        public void onKeysProvisioned(int index, byte[] beaconPrivateKey, byte[] beaconPublicKey,
+            byte[] identityKey) {
+          EddystoneEidrGenerator generator =
+              new EddystoneEidrGenerator(serviceKey, beaconPrivateKey);
+          assertTrue(Arrays.equals(generator.getBeaconPublicKey(), beaconPublicKey));
+          assertTrue(Arrays.equals(generator.getIdentityKey(), identityKey));
+          synchronized (seen) {
+            assertFalse(seen[index]);
+            seen[index] = true;
+          }
+          provisioned.incrementAndGet();
+        }
+
+        @Override
+        public void onProvisioningFailed(int index) {
+          fail();
+        }
+      });
+    } finally {
+      provisioner.shutdown();
+    }
+    assertEquals(seen.length, provisioned.get());
+  }
+
+  private byte[] toByteArray(String hexString) {
+    int len = hexString.length();
+    byte[] bytes = new byte[len / 2];
+    for (int i = 0; i < len; i += 2) {
+      bytes[i / 2] = (byte) ((Character.digit(hexString.charAt(i), 16) << 4)
+          + Character.digit(hexString.charAt(i + 1), 16));
+    }
+    return bytes;
+  }
+}
@@ -0,0 +1,130 @@
+// Copyright 2015 Google Inc. All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//    http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sample.libeddystoneeidr;
+
+import android.test.AndroidTestCase;
+
+/**
+ * Unit tests for the EidResolver class.
+ */
+public class EidResolverTest extends AndroidTestCase {
+
+  private static final int TIMESTAMP_SECONDS = 305419896;  // 0x12345678
+  private static final int ROTATION_PERIOD_EXPONENT = 12;
+
+  public void testResolvesKnownVector() {
+    EidResolver resolver = new EidResolver();
+    int first = resolver.addBeacon(toByteArray("2fcc73b2346d15adb806ea799431d3c0"),
+        ROTATION_PERIOD_EXPONENT);
+    int second = resolver.addBeacon(toByteArray("8d6979d8b8f61b96f47660c457e2a492"),
+        ROTATION_PERIOD_EXPONENT);
+    resolver.refresh(TIMESTAMP_SECONDS);
+
+    assertEquals(first, resolver.resolve(toByteArray("3d9120f528cc1496"), 0));
+    assertEquals(second, resolver.resolve(toByteArray("bc75d7ffcf53a3ad"), 0));
+    assertEquals(EidResolver.NOT_FOUND, resolver.resolve(toByteArray("0000000000000000"), 0));
+  }
+
+  public void testAdjacentWindowsAndRollOver() {
+    byte[] identityKey = toByteArray("044d6ee9421f36c7c90264fc3230750f");
+    EddystoneEidrGenerator generator = new EddystoneEidrGenerator();
+    generator.setIdentityKey(identityKey);
+    int period = 1 << ROTATION_PERIOD_EXPONENT;
+
+    EidResolver resolver = new EidResolver(1);
+    int beacon = resolver.addBeacon(identityKey, ROTATION_PERIOD_EXPONENT);
+    resolver.refresh(TIMESTAMP_SECONDS);
+
+    long previous = eid(generator, TIMESTAMP_SECONDS - period);
+    long next = eid(generator, TIMESTAMP_SECONDS + period);
+    long afterNext = eid(generator, TIMESTAMP_SECONDS + 2 * period);
+    assertEquals(beacon, resolver.resolve(previous));
+    assertEquals(beacon, resolver.resolve(next));
+    assertEquals(EidResolver.NOT_FOUND, resolver.resolve(afterNext));
+
+    resolver.refresh(TIMESTAMP_SECONDS + period);
+    assertEquals(EidResolver.NOT_FOUND, resolver.resolve(previous));
+    assertEquals(beacon, resolver.resolve(afterNext));
+
+    resolver.refresh(TIMESTAMP_SECONDS + 10 * period);
+    assertEquals(EidResolver.NOT_FOUND, resolver.resolve(next));
+    assertEquals(beacon, resolver.resolve(eid(generator, TIMESTAMP_SECONDS + 10 * period)));
+  }
+
+  public void testDriftToleranceAndClockOffset() {
+    byte[] identityKey = toByteArray("044d6ee9421f36c7c90264fc3230750f");
+    EddystoneEidrGenerator generator = new EddystoneEidrGenerator();
+    generator.setIdentityKey(identityKey);
+    int period = 1 << ROTATION_PERIOD_EXPONENT;
+
+    EidResolver resolver = new EidResolver(1, 3);
+    int beacon = resolver.addBeacon(identityKey, ROTATION_PERIOD_EXPONENT);
+    assertEquals(0, resolver.getClockOffset(beacon));
+    resolver.refresh(TIMESTAMP_SECONDS);
+
+    assertEquals(beacon, resolver.resolve(eid(generator, TIMESTAMP_SECONDS - 3 * period)));
+    assertEquals(-3 * period, resolver.getClockOffset(beacon));
+    assertEquals(beacon, resolver.resolve(eid(generator, TIMESTAMP_SECONDS + 2 * period)));
+    assertEquals(2 * period, resolver.getClockOffset(beacon));
+    assertEquals(EidResolver.NOT_FOUND,
+        resolver.resolve(eid(generator, TIMESTAMP_SECONDS + 4 * period)));
+
+    // Advancing by less than the ring size keeps the windows that are still in range.
+    resolver.refresh(TIMESTAMP_SECONDS + 5 * period);
+    assertEquals(EidResolver.NOT_FOUND,
+        resolver.resolve(eid(generator, TIMESTAMP_SECONDS + period)));
+    assertEquals(beacon, resolver.resolve(eid(generator, TIMESTAMP_SECONDS + 2 * period)));
+    assertEquals(-3 * period, resolver.getClockOffset(beacon));
+    assertEquals(beacon, resolver.resolve(eid(generator, TIMESTAMP_SECONDS + 8 * period)));
+    assertEquals(3 * period, resolver.getClockOffset(beacon));
+
+    resolver.refresh(TIMESTAMP_SECONDS + 3 * period);
+    assertEquals(beacon, resolver.resolve(eid(generator, TIMESTAMP_SECONDS)));
+    assertEquals(-3 * period, resolver.getClockOffset(beacon));
+    assertEquals(EidResolver.NOT_FOUND,
+        resolver.resolve(eid(generator, TIMESTAMP_SECONDS + 7 * period)));
+  }
+
+  public void testManyBeacons() {
+    EidResolver resolver = new EidResolver(4);
+    byte[][] keys = new byte[100][16];
+    for (int i = 0; i < keys.length; i++) {
+      keys[i][0] = (byte) i;
+      keys[i][15] = (byte) (i * 7);
+      resolver.addBeacon(keys[i], i % 16);
+    }
+    resolver.refresh(TIMESTAMP_SECONDS);
+    for (int i = 0; i < keys.length; i++) {
+      EddystoneEidrGenerator generator = new EddystoneEidrGenerator();
+      generator.setIdentityKey(keys[i]);
+      assertEquals(i, resolver.resolve(
+          EidResolver.toLong(generator.getEidr(i % 16, TIMESTAMP_SECONDS), 0)));
+    }
+  }
+
+  private long eid(EddystoneEidrGenerator generator, int timestampSeconds) {
+    return EidResolver.toLong(generator.getEidr(ROTATION_PERIOD_EXPONENT, timestampSeconds), 0);
+  }
+
+  private byte[] toByteArray(String hexString) {
+    int len = hexString.length();
+    byte[] bytes = new byte[len / 2];
+    for (int i = 0; i < len; i += 2) {
+      bytes[i / 2] = (byte) ((Character.digit(hexString.charAt(i), 16) << 4)
+          + Character.digit(hexString.charAt(i + 1), 16));
+    }
+    return bytes;
+  }
+}
@@ -0,0 +1,149 @@
+// Copyright 2015 Google Inc. All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//    http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sample.libeddystoneeidr;
+
+import android.test.AndroidTestCase;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.Random;
+
+/**
+ * Unit tests for the EidTable and EidTableWriter classes.
+ */
+public class EidTableTest extends AndroidTestCase {
+
+  private static final int ROTATION_PERIOD_EXPONENT = 12;
+
+  public void testAppendAndReopen() throws Exception {
+    File path = File.createTempFile("eids", ".tbl");
+    try {
+      byte[] identityKey = new byte[16];
+      identityKey[0] = 1;
+      int period = 1 << ROTATION_PERIOD_EXPONENT;
+      EidTableWriter writer = new EidTableWriter(path);
+      assertEquals(10, writer.addWindows(42, identityKey, ROTATION_PERIOD_EXPONENT, 0,
+          9 * period));
+      writer.close();
+
+      writer = new EidTableWriter(path);
+      assertEquals(5, writer.addWindows(42, identityKey, ROTATION_PERIOD_EXPONENT, 10 * period,
+          14 * period + 1));
+      writer.close();
+
+      EddystoneEidrGenerator generator = new EddystoneEidrGenerator();
+      generator.setIdentityKey(identityKey);
+      EidTable table = new EidTable(path);
+      try {
+        assertEquals(2, table.getSegmentCount());
+        assertEquals(15, table.getEntryCount());
+        assertEquals(14 * period, table.getMaxTimestamp());
+        EidTable.Entry entry = new EidTable.Entry();
+        for (int window = 0; window < 15; window++) {
+          byte[] eid = generator.getEidr(ROTATION_PERIOD_EXPONENT, window * period + 7);
+          assertEquals(42, table.lookup(eid, 0));
+          assertTrue(table.lookup(EidResolver.toLong(eid, 0), entry));
+          assertEquals(window * period, entry.timestampSeconds);
+        }
+        assertEquals(EidTable.NOT_FOUND, table.lookup(0L));
+      } finally {
+        table.close();
+      }
+    } finally {
+      path.delete();
+    }
+  }
+
+  public void testSortedLookupAndIncompleteSegment() throws Exception {
+    File path = File.createTempFile("eids", ".tbl");
+    try {
+      Random random = new Random(7);
+      long[] eids = new long[5000];
+      EidTableWriter writer = new EidTableWriter(path);
+      for (int i = 0; i < eids.length; i++) {
+        eids[i] = random.nextLong();
+        writer.add(eids[i], i, i);
+      }
+      writer.close();
+
+      // A segment header promising more records than the file holds.
+      RandomAccessFile file = new RandomAccessFile(path, "rw");
+      file.seek(file.length());
+      file.writeInt(100);
+      file.writeLong(0);
+      file.close();
+
+      EidTable table = new EidTable(path);
+      try {
+        assertEquals(1, table.getSegmentCount());
+        for (int i = 0; i < eids.length; i++) {
+          assertEquals(i, table.lookup(eids[i]));
+        }
+      } finally {
+        table.close();
+      }
+
+      long length = path.length();
+      new EidTableWriter(path).close();
+      assertTrue(path.length() < length);
+    } finally {
+      path.delete();
+    }
+  }
+
+  public void testCompaction() throws Exception {
+    File path = File.createTempFile("eids", ".tbl");
+    try {
+      EidTableWriter writer = new EidTableWriter(path);
+      for (int segment = 0; segment < EidTableWriter.MAX_SEGMENTS; segment++) {
+        for (int i = 0; i < 100; i++) {
+          writer.add(segment * 100 + i, segment, i);
+        }
+        writer.flush();
+      }
+      assertEquals(EidTableWriter.MAX_SEGMENTS, writer.getSegmentCount());
+      EidTable before = new EidTable(path);
+
+      // EID 5 is added again, the newer record has to win.
+      writer.add(5, 99, 0);
+      writer.add(-1L, 100, 0);
+      writer.flush();
+      assertEquals(1, writer.getSegmentCount());
+      writer.add(-2L, 101, 0);
+      writer.close();
+      assertFalse(new File(path.getPath() + ".tmp").exists());
+
+      EidTable table = new EidTable(path);
+      try {
+        assertEquals(2, table.getSegmentCount());
+        assertEquals(EidTableWriter.MAX_SEGMENTS * 100 + 2, table.getEntryCount());
+        assertEquals(99, table.lookup(5));
+        assertEquals(100, table.lookup(-1L));
+        assertEquals(101, table.lookup(-2L));
+        for (int eid = 6; eid < EidTableWriter.MAX_SEGMENTS * 100; eid++) {
+          assertEquals(eid / 100, table.lookup(eid));
+        }
+        // A table opened before the compaction keeps reading the old records.
+        assertEquals(EidTableWriter.MAX_SEGMENTS, before.getSegmentCount());
+        assertEquals(0, before.lookup(5));
+      } finally {
+        table.close();
+        before.close();
+      }
+    } finally {
+      path.delete();
+    }
+  }
+}
@@ -0,0 +1,72 @@
+// Copyright 2015 Google Inc. All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//    http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sample.libeddystoneeidr;
+
+import android.test.AndroidTestCase;
+
+import java.util.Arrays;
+
+/**
+ * Unit tests for EddystoneEidrGenerator.getEidrs() and its cache of temporary keys.
+ */
+public class EidrWindowsTest extends AndroidTestCase {
+
+  private static final int TIMESTAMP_SECONDS = 305419896;  // 0x12345678
+  private static final int ROTATION_PERIOD_EXPONENT = 12;
+
+  /**
+   * Verifies that EIDs generated for a range of windows, which spans a temporary key epoch
+   * boundary, match the ones computed one by one.
+   */
+  public void testEidrsForWindows() {
+    EddystoneEidrGenerator eidrGenerator = new EddystoneEidrGenerator();
+    eidrGenerator.setIdentityKey(toByteArray("2fcc73b2346d15adb806ea799431d3c0"));
+    int period = 1 << ROTATION_PERIOD_EXPONENT;
+    int from = TIMESTAMP_SECONDS - 20 * period;
+    int to = TIMESTAMP_SECONDS + 20 * period;
+
+    byte[] eidrs = new byte[41 * EddystoneEidrGenerator.EIDR_LENGTH];
+    assertEquals(41, eidrGenerator.getEidrs(ROTATION_PERIOD_EXPONENT, from, to, eidrs, 0));
+    for (int i = 0; i < 41; i++) {
+      assertTrue(Arrays.equals(eidrGenerator.getEidr(ROTATION_PERIOD_EXPONENT, from + i * period),
+          Arrays.copyOfRange(eidrs, i * 8, i * 8 + 8)));
+    }
+    assertTrue(Arrays.equals(toByteArray("3d9120f528cc1496"), Arrays.copyOfRange(eidrs, 160, 168)));
+  }
+
+  /**
+   * Verifies that going back to an earlier epoch after the cached one does not reuse the cached
+   * temporary key.
+   */
+  public void testEpochChangeBackAndForth() {
+    EddystoneEidrGenerator eidrGenerator = new EddystoneEidrGenerator();
+    eidrGenerator.setIdentityKey(toByteArray("2fcc73b2346d15adb806ea799431d3c0"));
+    byte[] eidr = eidrGenerator.getEidr(ROTATION_PERIOD_EXPONENT, TIMESTAMP_SECONDS);
+    eidrGenerator.getEidr(ROTATION_PERIOD_EXPONENT, TIMESTAMP_SECONDS + (1 << 16));
+    assertTrue(Arrays.equals(eidr,
+        eidrGenerator.getEidr(ROTATION_PERIOD_EXPONENT, TIMESTAMP_SECONDS)));
+    assertTrue(Arrays.equals(toByteArray("3d9120f528cc1496"), eidr));
+  }
+
+  private byte[] toByteArray(String hexString) {
+    int len = hexString.length();
+    byte[] bytes = new byte[len / 2];
+    for (int i = 0; i < len; i += 2) {
+      bytes[i / 2] = (byte) ((Character.digit(hexString.charAt(i), 16) << 4)
+          + Character.digit(hexString.charAt(i + 1), 16));
+    }
+    return bytes;
+  }
+}
@@ -0,0 +1,65 @@
+// Copyright 2015 Google Inc. All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//    http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sample.libeddystoneeidr;
+
+import android.test.AndroidTestCase;
+
+/**
+ * Unit tests for the EtlmDecoder class.
+ */
+public class EtlmDecoderTest extends AndroidTestCase {
+
+  private static final String IDENTITY_KEY = "00112233445566778899aabbccddeeff";
+  // 3000 mV, 23.5 degrees, 12345 PDUs and 123456 deciseconds at beacon time 0x12345678, K = 10,
+  // salt 0xabcd.
+  private static final String FRAME = "20015af4f6d33bf003983d6d3eb0abcd385e";
+  private static final int TIMESTAMP = 0x12345678;
+
+  public void testDecode() {
+    EtlmDecoder decoder = new EtlmDecoder(toByteArray(IDENTITY_KEY), 10);
+    EtlmDecoder.Telemetry telemetry = decoder.decode(toByteArray(FRAME), TIMESTAMP);
+    assertNotNull(telemetry);
+    assertEquals(3000, telemetry.batteryVoltage);
+    assertEquals(23.5f, telemetry.temperature, 0f);
+    assertEquals(12345, telemetry.advertisingCount);
+    assertEquals(123456, telemetry.timeSinceBoot);
+
+    // Any time within the same rotation window gives the same nonce.
+    assertNotNull(decoder.decode(toByteArray(FRAME), TIMESTAMP | 0x3ff));
+  }
+
+  public void testRejectsInvalidFrames() {
+    EtlmDecoder decoder = new EtlmDecoder(toByteArray(IDENTITY_KEY), 10);
+    byte[] frame = toByteArray(FRAME);
+    assertNull(decoder.decode(frame, TIMESTAMP + (1 << 10)));
+
+    for (int i = 0; i < frame.length; i++) {
+      frame[i] ^= 0x01;
+      assertNull("Accepted frame tampered at " + i, decoder.decode(frame, TIMESTAMP));
+      frame[i] ^= 0x01;
+    }
+    assertNull(new EtlmDecoder(new byte[16], 10).decode(frame, TIMESTAMP));
+  }
+
+  private byte[] toByteArray(String hexString) {
+    int len = hexString.length();
+    byte[] bytes = new byte[len / 2];
+    for (int i = 0; i < len; i += 2) {
+      bytes[i / 2] = (byte) ((Character.digit(hexString.charAt(i), 16) << 4)
+          + Character.digit(hexString.charAt(i + 1), 16));
+    }
+    return bytes;
+  }
+}
@@ -0,0 +1,83 @@
+// Copyright 2015 Google Inc. All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//    http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package com.google.sample.libeddystoneeidr;
+
+import android.test.AndroidTestCase;
+
+import java.util.Arrays;
+
+/**
+ * Unit tests for the HkdfSha256 class and the identity key derivation built on it.
+ */
+public class HkdfSha256Test extends AndroidTestCase {
+
+  private static final String SERVICE_PUBLIC_KEY =
+      "00112233445566778899aabbccddeeff00112233445566778899aabbccddeeff";
+  private static final String BEACON_PRIVATE_KEY =
+      "5028d027aab146c78da0ef60d1c71bf49e60e7b876359cac1e5ed7848c8b3544";
+
+  // RFC 5869, test case 1.
+  public void testRfc5869Basic() {
+    byte[] ikm = new byte[22];
+    Arrays.fill(ikm, (byte) 0x0b);
+    byte[] salt = toByteArray("000102030405060708090a0b0c");
+    byte[] info = toByteArray("f0f1f2f3f4f5f6f7f8f9");
+    byte[] prk = new byte[HkdfSha256.HASH_LENGTH];
+    assertTrue(HkdfSha256.extract(salt, 0, salt.length, ikm, 0, ikm.length, prk, 0));
+    assertTrue(Arrays.equals(
+        toByteArray("077709362c2e32df0ddc3f0dc47bba6390b6c73bb50f9c3122ec844ad7c2b3e5"), prk));
+
+    byte[] okm = new byte[44];
+    assertTrue(HkdfSha256.expand(prk, 0, info, 0, info.length, okm, 1, 42));
+    assertTrue(Arrays.equals(toByteArray("00"
+        + "3cb25f25faacd57a90434f64d0362f2a2d2d0a90cf1a5a4c5db02d56ecc4c5bf34007208d5b887185865"
+        + "00"), okm));
+  }
+
+  // RFC 5869, test case 3: empty salt and info.
+  public void testRfc5869EmptySaltAndInfo() {
+    byte[] ikm = new byte[22];
+    Arrays.fill(ikm, (byte) 0x0b);
+    byte[] prk = new byte[HkdfSha256.HASH_LENGTH];
+    assertTrue(HkdfSha256.extract(new byte[0], 0, 0, ikm, 0, ikm.length, prk, 0));
+    byte[] okm = new byte[42];
+    assertTrue(HkdfSha256.expand(prk, 0, new byte[0], 0, 0, okm, 0, okm.length));
+    assertTrue(Arrays.equals(toByteArray(
+        "8da4e775a563c18f715f802a063c5a31b8a11f5c5ee1879ec3454e5f3c738d2d9d201395faa4b61a96c8"),
+        okm));
+  }
+
+  public void testIdentityKey() {
+    byte[] beaconKey = toByteArray(BEACON_PRIVATE_KEY);
+    EddystoneEidrGenerator generator =
+        new EddystoneEidrGenerator(toByteArray(SERVICE_PUBLIC_KEY), beaconKey);
+    assertTrue(Arrays.equals(toByteArray("2fcc73b2346d15adb806ea799431d3c0"),
+        generator.getIdentityKey()));
+    assertTrue(Arrays.equals(
+        toByteArray("265aabc27a7f5a040674ebbc43c8888da368024f07979805aa81ff67e9dd573f"),
+        generator.getBeaconPublicKey()));
+  }
+
+  private byte[] toByteArray(String hexString) {
+    int len = hexString.length();
+    byte[] bytes = new byte[len / 2];
+    for (int i = 0; i < len; i += 2) {
+      bytes[i / 2] = (byte) ((Character.digit(hexString.charAt(i), 16) << 4)
+          + Character.digit(hexString.charAt(i + 1), 16));
+    }
+    return bytes;
+  }
+}
@@ -51,6 +51,14 @@ class Curve25519 {
     return scalarMult(n, BASE_POINT);
   }
 
+  /**
+   * Same as {@link #scalarMultBase(byte[])}, reusing the temporaries of {@code workspace}.
+   */
+  static byte[] scalarMultBase(byte[] n, Polynomial25519.Workspace workspace) {
+    toPrivateKey(n);
+    return scalarMult(n, BASE_POINT, workspace);
+  }
+
   /**
    * Returns the x coordinates of the point nQ, where Q is a point with x coordinate equal to q.
    *
@@ -58,15 +66,108 @@ class Curve25519 {
    * secret paired with q.
    */
   public static byte[] scalarMult(byte[] n, byte[] q) {
+    return scalarMult(n, q, new Polynomial25519.Workspace());
+  }
+
+  /**
+   * Same as {@link #scalarMult(byte[], byte[])}, reusing the temporaries of {@code workspace}.
+   * Callers computing many keys on one thread should keep a workspace per thread.
+   */
+  static byte[] scalarMult(byte[] n, byte[] q, Polynomial25519.Workspace workspace) {
     if (n.length != 32 || q.length != 32) {
       throw new IllegalArgumentException("All keys must be exactly 32 bytes long.");
     }
     toPrivateKey(n);
     Polynomial25519 qPolynomial = new Polynomial25519(q);
-    Polynomial25519.Montgomery m = Polynomial25519.multiple(n, qPolynomial);
-    Polynomial25519 reciprocal = m.z.reciprocal();
-    reciprocal.mult(m.x);
-    return reciprocal.toBytes();
+    Polynomial25519.Montgomery m = Polynomial25519.multiple(n, qPolynomial, workspace);
+    Polynomial25519 result = workspace.result;
+    result.setReciprocal(m.z, workspace);
+    result.mult(m.x);
+    return result.toBytes();
+  }
+
+  /**
+   * Batch version of {@link #scalarMult(byte[], byte[])}: returns the x coordinates of the points
+   * n[i]Q[i], where Q[i] is a point with x coordinate equal to q[i].
+   *
+   * <p>Every ladder ends with a division by its z coordinate. Instead of inverting each z
+   * separately, all of them are inverted together with Montgomery's simultaneous inversion, which
+   * costs a single field inversion plus 3(N - 1) multiplications.
+   */
+  public static byte[][] scalarMult(byte[][] n, byte[][] q) {
+    return scalarMult(n, q, new Polynomial25519.Workspace());
+  }
+
+  /**
+   * Batch version of {@link #scalarMultBase(byte[])}.
+   */
+  public static byte[][] scalarMultBase(byte[][] n) {
+    return scalarMultBase(n, new Polynomial25519.Workspace());
+  }
+
+  /**
+   * Same as {@link #scalarMultBase(byte[][])}, reusing the temporaries of {@code workspace}.
+   */
+  static byte[][] scalarMultBase(byte[][] n, Polynomial25519.Workspace workspace) {
+    byte[][] q = new byte[n.length][];
+    Arrays.fill(q, BASE_POINT);
+    return scalarMult(n, q, workspace);
+  }
+
+  /**
+   * Same as {@link #scalarMult(byte[][], byte[][])}, reusing the temporaries of
+   * {@code workspace}.
+   */
+  static byte[][] scalarMult(byte[][] n, byte[][] q, Polynomial25519.Workspace workspace) {
+    if (n.length != q.length) {
+      throw new IllegalArgumentException("Every scalar needs exactly one point.");
+    }
+    int count = n.length;
+    byte[][] output = new byte[count][];
+    if (count == 0) {
+      return output;
+    }
+
+    Polynomial25519[] x = new Polynomial25519[count];
+    Polynomial25519[] z = new Polynomial25519[count];
+    for (int i = 0; i < count; i++) {
+      if (n[i].length != 32 || q[i].length != 32) {
+        throw new IllegalArgumentException("All keys must be exactly 32 bytes long.");
+      }
+      toPrivateKey(n[i]);
+      Polynomial25519.Montgomery m =
+          Polynomial25519.multiple(n[i], new Polynomial25519(q[i]), workspace);
+      x[i] = new Polynomial25519(m.x);
+      z[i] = new Polynomial25519(m.z);
+      if (z[i].isZero()) {
+        // The single version would invert zero to zero, giving a zero result. Keep that
+        // behaviour without zeroing the product of all the other z coordinates.
+        x[i].set(0);
+        z[i].set(1);
+      }
+    }
+
+    // prefix[i] = z[0] * ... * z[i]
+    Polynomial25519[] prefix = new Polynomial25519[count];
+    prefix[0] = z[0];
+    for (int i = 1; i < count; i++) {
+      prefix[i] = Polynomial25519.mult(prefix[i - 1], z[i]);
+    }
+
+    // inverse = 1 / (z[0] * ... * z[i]), walking i down to 0.
+    Polynomial25519 inverse = workspace.result;
+    inverse.setReciprocal(prefix[count - 1], workspace);
+    for (int i = count - 1; i > 0; i--) {
+      x[i].mult(prefix[i - 1]);
+      x[i].mult(inverse);                              // x[i] / z[i]
+      inverse.mult(z[i]);
+    }
+    x[0].mult(inverse);
+
+    for (int i = 0; i < count; i++) {
+      output[i] = x[i].toBytes();
+    }
+    return output;
   }
 
   /**
@@ -85,11 +186,18 @@ class Curve25519 {
    * <p>It is a responsibility of the caller to make sure to use the correct form whenever
    * necessary.
    *
+   * <p>Multiplications and squarings work in place: the product is computed into a spare set of
+   * limbs owned by the result, which is then swapped with the current one. Together with the
+   * preallocated {@link Workspace} this keeps a scalar multiplication free of per-step
+   * allocations.
+   *
    * <p>See the paper [1] Curve25519: new Diffie-Hellman speed records at
    * http://cr.yp.to/ecdh/curve25519-20060209.pdf for more information
    */
   /* @VisibleForTesting */ static class Polynomial25519 {
     private long[] c = new long[19];
+    // Receives products before being swapped with c.
+    private long[] spare = new long[19];
 
     /**
      * An element of F_{2^255-19} in the "Montgomery" form, i.e. the element corresponding to (x, z)
@@ -107,6 +215,43 @@ class Curve25519 {
       public Montgomery(Montgomery m) {
         this(m.x, m.z);
       }
+
+      public Montgomery() {
+        this.x = new Polynomial25519();
+        this.z = new Polynomial25519();
+      }
+
+      public void set(long x, long z) {
+        this.x.set(x);
+        this.z.set(z);
+      }
+    }
+
+    /**
+     * Preallocated temporaries for one scalar multiplication, i.e. one Montgomery ladder followed
+     * by one reciprocal. A workspace may be reused for any number of sequential operations, but
+     * must not be shared between threads.
+     */
+    static final class Workspace {
+      // Ladder state, rolling between index 0 and 1 at every step.
+      private final Montgomery[] nq = { new Montgomery(), new Montgomery() };
+      private final Montgomery[] nqpq = { new Montgomery(), new Montgomery() };
+      // Temporaries of a single ladder step.
+      private final Montgomery qprime = new Montgomery();
+      private final Montgomery pprime = new Montgomery();
+      private final Polynomial25519 t = new Polynomial25519();
+      // Temporaries of the reciprocal, named after the exponent they hold.
+      private final Polynomial25519 z2 = new Polynomial25519();
+      private final Polynomial25519 z9 = new Polynomial25519();
+      private final Polynomial25519 z11 = new Polynomial25519();
+      private final Polynomial25519 z2FiveZero = new Polynomial25519();
+      private final Polynomial25519 z2TenZero = new Polynomial25519();
+      private final Polynomial25519 z2TwentyZero = new Polynomial25519();
+      private final Polynomial25519 z2FiftyZero = new Polynomial25519();
+      private final Polynomial25519 z2HundredZero = new Polynomial25519();
+      private final Polynomial25519 t0 = new Polynomial25519();
+      // Free for the caller to hold the final result.
+      final Polynomial25519 result = new Polynomial25519();
     }
 
     public Polynomial25519() {}
@@ -125,9 +270,7 @@ class Curve25519 {
      * @param other A reduced degree polynomial.
      */
     public Polynomial25519(Polynomial25519 other) {
-      for (int i = 0; i < 10; i++) {
-        c[i] = other.c[i];
-      }
+      set(other);
     }
 
     /**
@@ -222,6 +365,25 @@ class Curve25519 {
       output[start + 3] = (byte) ((c[idx] >> 24) & 0xff);
     }
 
+    /**
+     * Returns whether the element is zero, i.e. whether the polynomial evaluates to a multiple of
+     * 2^255 - 19.
+     * "This" must be a reduced degree, reduced coefficients polynomial.
+     */
+    public boolean isZero() {
+      byte[] bytes = new Polynomial25519(this).toBytes();
+      boolean zero = true;
+      // toBytes() does not subtract the prime itself, so also compare with its representation.
+      boolean prime = (bytes[0] & 0xff) == 0xed && bytes[31] == 0x7f;
+      for (int i = 0; i < 32; i++) {
+        zero &= bytes[i] == 0;
+        if (i > 0 && i < 31) {
+          prime &= bytes[i] == (byte) 0xff;
+        }
+      }
+      return zero || prime;
+    }
+
     /**
      * Clears the high-degree part of the polynomial, trusting the caller that that part is not
      * used.
@@ -276,14 +438,21 @@ class Curve25519 {
      *     in the reduced degree form.
      */
     public static Montgomery multiple(byte[] n, Polynomial25519 q) {
-      Montgomery nqpq[] = new Montgomery[] {
-          new Montgomery(new Polynomial25519(q), new Polynomial25519(1)),
-          new Montgomery(new Polynomial25519(0), new Polynomial25519(1))
-      };
-      Montgomery nq[] = new Montgomery[] {
-          new Montgomery(new Polynomial25519(1), new Polynomial25519(0)),
-          new Montgomery(new Polynomial25519(0), new Polynomial25519(1))
-      };
+      return multiple(n, q, new Workspace());
+    }
+
+    /**
+     * Same as {@link #multiple(byte[], Polynomial25519)}, but works on the preallocated
+     * {@code workspace}. The returned value is owned by the workspace.
+     */
+    static Montgomery multiple(byte[] n, Polynomial25519 q, Workspace workspace) {
+      Montgomery[] nqpq = workspace.nqpq;
+      Montgomery[] nq = workspace.nq;
+      nqpq[0].x.set(q);
+      nqpq[0].z.set(1);
+      nqpq[1].set(0, 1);
+      nq[0].set(1, 0);
+      nq[1].set(0, 1);
 
       int rollIdx = 0;
       for (int i = 0; i < 32; i++) {
@@ -295,7 +464,7 @@ class Curve25519 {
           swapConditional(nq[rollIdx % 2].z, nqpq[rollIdx % 2].z, bit);
 
           montgomery(nq[rollIdx % 2], nqpq[rollIdx % 2], q,
-              nq[(rollIdx + 1) % 2], nqpq[(rollIdx + 1) % 2]);
+              nq[(rollIdx + 1) % 2], nqpq[(rollIdx + 1) % 2], workspace);
 
           swapConditional(nq[(rollIdx + 1) % 2].x, nqpq[(rollIdx + 1) % 2].x, bit);
           swapConditional(nq[(rollIdx + 1) % 2].z, nqpq[(rollIdx + 1) % 2].z, bit);
@@ -307,6 +476,25 @@ class Curve25519 {
       return nq[rollIdx % 2];
     }
 
+    /**
+     * Copies other into the object.
+     * After, "this" is of reduced degree.
+     * @param other A reduced degree polynomial.
+     */
+    public void set(Polynomial25519 other) {
+      System.arraycopy(other.c, 0, c, 0, 10);
+    }
+
+    /**
+     * Sets the object to a small integer.
+     * After, "this" is of reduced degree and of reduced coefficients.
+     * @param x An integer less than 2^26 in absolute value.
+     */
+    public void set(long x) {
+      Arrays.fill(c, 0, 10, 0);
+      c[0] = x;
+    }
+
     /**
      * Adds other to the object.
      * Before, "this" must be of reduced degree.
@@ -348,7 +536,30 @@ class Curve25519 {
      * Non-static version of {@code mult}.
      */
     public void mult(Polynomial25519 other) {
-      c = Polynomial25519.innerMult(c, other.c);
+      setProduct(this, other);
+    }
+
+    /**
+     * Sets the object to the product of a and b. Either may be "this".
+     * After, "this" is of reduced degree, reduced coefficients.
+     * @param a A reduced degree, reduced coefficients polynomial.
+     * @param b A reduced degree, reduced coefficients polynomial.
+     */
+    public void setProduct(Polynomial25519 a, Polynomial25519 b) {
+      Polynomial25519.innerMult(a.c, b.c, spare);
+      swapLimbs();
+      reduceDegree();
+      reduceCoefficients();
+    }
+
+    /**
+     * Sets the object to the square of a, which may be "this".
+     * After, "this" is of reduced degree, reduced coefficients.
+     * @param a A reduced degree, reduced coefficients polynomial.
+     */
+    public void setSquare(Polynomial25519 a) {
+      Polynomial25519.innerSquare(a.c, spare);
+      swapLimbs();
       reduceDegree();
       reduceCoefficients();
     }
@@ -361,9 +572,7 @@ class Curve25519 {
      */
     public static Polynomial25519 mult(Polynomial25519 a, Polynomial25519 b) {
       Polynomial25519 output = new Polynomial25519();
-      output.c = Polynomial25519.innerMult(a.c, b.c);
-      output.reduceDegree();
-      output.reduceCoefficients();
+      output.setProduct(a, b);
       return output;
     }
 
@@ -374,9 +583,7 @@ class Curve25519 {
      */
     public static Polynomial25519 square(Polynomial25519 a) {
       Polynomial25519 output = new Polynomial25519();
-      output.c = Polynomial25519.innerSquare(a.c);
-      output.reduceDegree();
-      output.reduceCoefficients();
+      output.setSquare(a);
       return output;
     }
 
@@ -386,9 +593,18 @@ class Curve25519 {
      * After, "this" is of reduced degree, reduced coefficients.
      */
     public void square() {
-      c = Polynomial25519.innerSquare(c);
-      reduceDegree();
-      reduceCoefficients();
+      setSquare(this);
+    }
+
+    /**
+     * Squares this polynomial {@code times} times in a row.
+     * Before, "this" must be of reduced degree, reduced coefficients.
+     * After, "this" is of reduced degree, reduced coefficients.
+     */
+    private void square(int times) {
+      for (int i = 0; i < times; i++) {
+        setSquare(this);
+      }
     }
 
     /**
@@ -396,7 +612,24 @@ class Curve25519 {
      * "This" must be a reduced degree, reduced coefficient polynomial.
      */
     public Polynomial25519 reciprocal() {
-      return innerReciprocal(this);
+      Polynomial25519 output = new Polynomial25519();
+      output.setReciprocal(this, new Workspace());
+      return output;
+    }
+
+    /**
+     * Sets the object to the reciprocal of z, using the temporaries of {@code workspace}.
+     * "z" must be a reduced degree, reduced coefficient polynomial, and must not be "this" nor
+     * one of the workspace temporaries other than its result.
+     */
+    public void setReciprocal(Polynomial25519 z, Workspace workspace) {
+      innerReciprocal(z, this, workspace);
+    }
+
+    private void swapLimbs() {
+      long[] tmp = c;
+      c = spare;
+      spare = tmp;
     }
 
     /**
@@ -461,12 +694,16 @@ class Curve25519 {
      * @param qpp Output Q+P, in reduced degree, reduced coefficients form.
      */
     private static void montgomery(Montgomery q, Montgomery p, Polynomial25519 qmp,
-                                   Montgomery qpq, Montgomery qpp) {
-      Montgomery qprime = new Montgomery(q);
+                                   Montgomery qpq, Montgomery qpp, Workspace workspace) {
+      Montgomery qprime = workspace.qprime;
+      qprime.x.set(q.x);
+      qprime.z.set(q.z);
       qprime.x.sum(q.z);                               // q'.x = q.x + q.z
       qprime.z.diff(q.x);                              // q'.z = q.z - q.x
 
-      Montgomery pprime = new Montgomery(p);
+      Montgomery pprime = workspace.pprime;
+      pprime.x.set(p.x);
+      pprime.z.set(p.z);
       pprime.x.sum(p.z);                               // p'.x = p.x + p.z
       pprime.z.diff(p.x);                              // p'.z = p.z - p.x
 
@@ -476,8 +713,8 @@ class Curve25519 {
       qprime.x.square();                               // q'.x **= 2
       qprime.z.square();                               // q'.z **= 2
 
-      qpp.x = new Polynomial25519(pprime.x);
-      qpp.z = new Polynomial25519(pprime.z);
+      qpp.x.set(pprime.x);
+      qpp.z.set(pprime.z);
       qpp.x.sum(pprime.z);                             // (q+p).x = p'.x + p'.z
       qpp.z.diff(pprime.x);                            // (q+p).z = p'.z - p'.x
 
@@ -485,12 +722,12 @@ class Curve25519 {
       qpp.z.square();                                  // (q+p).z **= 2
       qpp.z.mult(qmp);                                 // (q+p).z *= (q-p)
 
-      qpq.x = new Polynomial25519(qprime.x);
-      qpq.z = new Polynomial25519(qprime.x);
-      qpq.x.mult(qprime.z);                            // (2q).x = q'.x * q'.z
+      qpq.x.setProduct(qprime.x, qprime.z);            // (2q).x = q'.x * q'.z
+      qpq.z.set(qprime.x);
       qpq.z.diff(qprime.z);                            // (2q).z = q'.x - q'.z
 
-      Polynomial25519 t = new Polynomial25519(qpq.z);
+      Polynomial25519 t = workspace.t;
+      t.set(qpq.z);
       qpq.z.mult(121665);                              // (2q).z *= (A - 2) / 4
       qpq.z.sum(qprime.x);                             // (2q).z += q'.x
       qpq.z.mult(t);                                   // (2q).z += t
@@ -501,10 +738,9 @@ class Curve25519 {
      * Returns a polynomial corresponding to the multiplication of the two polynomials in input.
      * @param a A reduced degree, reduced coefficients polynomial.
      * @param b A reduced degree, reduced coefficients polynomial.
-     * @return The product polynomial.
+     * @param output Receives the product polynomial. Must not be a or b.
      */
-    private static long[] innerMult(long[] a, long[] b) {
-      long[] output = new long[19];
+    private static void innerMult(long[] a, long[] b, long[] output) {
       output[0] =
           b[0] * a[0];
       output[1] =
@@ -624,16 +860,14 @@ class Curve25519 {
               + b[9] * a[8];
       output[18] =
           b[9] * a[9] * 2;
-      return output;
     }
 
     /**
      * Returns a polynomial corresponding to the square of the input polynomial.
      * @param a A reduced degree, reduced coefficients polynomial.
-     * @return The squared polynomial.
+     * @param output Receives the squared polynomial. Must not be a.
      */
-    private static long[] innerSquare(long[] a) {
-      long[] output = new long[19];
+    private static void innerSquare(long[] a, long[] output) {
       output[0] =
           a[0] * a[0];
       output[1] =
@@ -707,91 +941,60 @@ class Curve25519 {
           a[8] * a[9] * 2;
       output[18] =
           a[9] * a[9] * 2;
-      return output;
     }
 
     /**
      * Computes the reciprocal of the input by elevating to the (2^255 - 19) - 2 efficiently.
-     * "This" must be a reduced degree, reduced coefficient polynomial.
+     * "z" must be a reduced degree, reduced coefficient polynomial.
      */
-    private static Polynomial25519 innerReciprocal(Polynomial25519 z) {
+    private static void innerReciprocal(Polynomial25519 z, Polynomial25519 output,
+                                        Workspace workspace) {
       // In the comment we wrote the exponent of the input.
-      // TODO: can avoid t1?
-      /* 2 */ Polynomial25519 z2 = Polynomial25519.square(z);
-      /* 4 */ Polynomial25519 t1 = Polynomial25519.square(z2);
-      /* 8 */ Polynomial25519 t0 = Polynomial25519.square(t1);
-      /* 9 */ Polynomial25519 z9 = Polynomial25519.mult(t0, z);
-      /* 11 */ Polynomial25519 z11 = Polynomial25519.mult(z9, z2);
-      /* 22 */ t0 = Polynomial25519.square(z11);
-      /* 31 = 2^5 - 2^0 */ Polynomial25519 z2FiveZero = Polynomial25519.mult(t0, z9);
-
-      /* 2^6 - 2^1 */ t0 = Polynomial25519.square(z2FiveZero);
-      /* 2^7 - 2^2 */ t1 = Polynomial25519.square(t0);
-      /* 2^8 - 2^3 */ t0 = Polynomial25519.square(t1);
-      /* 2^9 - 2^4 */ t1 = Polynomial25519.square(t0);
-      /* 2^10 - 2^5 */ t0 = Polynomial25519.square(t1);
-      /* 2^10 - 2^0 */ Polynomial25519 z2TenZero = Polynomial25519.mult(t0, z2FiveZero);
-
-      /* 2^11 - 2^1 */ t0 = Polynomial25519.square(z2TenZero);
-      /* 2^12 - 2^2 */ t1 = Polynomial25519.square(t0);
-      /* 2^20 - 2^10 */
-      for (int i = 2; i < 10; i += 2) {
-        t0 = Polynomial25519.square(t1);
-        t1 = Polynomial25519.square(t0);
-      }
-      /* 2^20 - 2^0 */ Polynomial25519 z2TwentyZero = Polynomial25519.mult(t1, z2TenZero);
-
-      /* 2^21 - 2^1 */ t0 = Polynomial25519.square(z2TwentyZero);
-      /* 2^22 - 2^2 */ t1 = Polynomial25519.square(t0);
-      /* 2^40 - 2^20 */
-      for (int i = 2; i < 20; i += 2) {
-        t0 = Polynomial25519.square(t1);
-        t1 = Polynomial25519.square(t0);
-      }
-      /* 2^40 - 2^0 */ t0 = Polynomial25519.mult(t1, z2TwentyZero);
-
-      /* 2^41 - 2^1 */ t1 = Polynomial25519.square(t0);
-      /* 2^42 - 2^2 */ t0 = Polynomial25519.square(t1);
-      /* 2^50 - 2^10 */
-      for (int i = 2; i < 10; i += 2) {
-        t1 = Polynomial25519.square(t0);
-        t0 = Polynomial25519.square(t1);
-      }
-      /* 2^50 - 2^0 */ Polynomial25519 z2FiftyZero = Polynomial25519.mult(t0, z2TenZero);
-
-      /* 2^51 - 2^1 */ t0 = Polynomial25519.square(z2FiftyZero);
-      /* 2^52 - 2^2 */ t1 = Polynomial25519.square(t0);
-      /* 2^100 - 2^50 */
-      for (int i = 2; i < 50; i += 2) {
-        t0 = Polynomial25519.square(t1);
-        t1 = Polynomial25519.square(t0);
-      }
-      /* 2^100 - 2^0 */ Polynomial25519 z2HundredZero = Polynomial25519.mult(t1, z2FiftyZero);
-
-      /* 2^101 - 2^1 */ t1 = Polynomial25519.square(z2HundredZero);
-      /* 2^102 - 2^2 */ t0 = Polynomial25519.square(t1);
-      /* 2^200 - 2^100 */
-      for (int i = 2; i < 100; i += 2) {
-        t1 = Polynomial25519.square(t0);
-        t0 = Polynomial25519.square(t1);
-      }
-      /* 2^200 - 2^0 */ t1 = Polynomial25519.mult(t0, z2HundredZero);
-
-      /* 2^201 - 2^1 */ t0 = Polynomial25519.square(t1);
-      /* 2^202 - 2^2 */ t1 = Polynomial25519.square(t0);
-      /* 2^250 - 2^50 */
-      for (int i = 2; i < 50; i += 2) {
-        t0 = Polynomial25519.square(t1);
-        t1 = Polynomial25519.square(t0);
-      }
-      /* 2^250 - 2^0 */ t0 = Polynomial25519.mult(t1, z2FiftyZero);
-
-      /* 2^251 - 2^1 */ t1 = Polynomial25519.square(t0);
-      /* 2^252 - 2^2 */ t0 = Polynomial25519.square(t1);
-      /* 2^253 - 2^3 */ t1 = Polynomial25519.square(t0);
-      /* 2^254 - 2^4 */ t0 = Polynomial25519.square(t1);
-      /* 2^255 - 2^5 */ t1 = Polynomial25519.square(t0);
-      /* 2^255 - 21 */ return Polynomial25519.mult(t1, z11);
+      Polynomial25519 t0 = workspace.t0;
+      /* 2 */ Polynomial25519 z2 = workspace.z2;
+      z2.setSquare(z);
+      /* 8 */ t0.setSquare(z2);
+      t0.square();
+      /* 9 */ Polynomial25519 z9 = workspace.z9;
+      z9.setProduct(t0, z);
+      /* 11 */ Polynomial25519 z11 = workspace.z11;
+      z11.setProduct(z9, z2);
+      /* 22 */ t0.setSquare(z11);
+      /* 31 = 2^5 - 2^0 */ Polynomial25519 z2FiveZero = workspace.z2FiveZero;
+      z2FiveZero.setProduct(t0, z9);
+
+      /* 2^10 - 2^5 */ t0.set(z2FiveZero);
+      t0.square(5);
+      /* 2^10 - 2^0 */ Polynomial25519 z2TenZero = workspace.z2TenZero;
+      z2TenZero.setProduct(t0, z2FiveZero);
+
+      /* 2^20 - 2^10 */ t0.set(z2TenZero);
+      t0.square(10);
+      /* 2^20 - 2^0 */ Polynomial25519 z2TwentyZero = workspace.z2TwentyZero;
+      z2TwentyZero.setProduct(t0, z2TenZero);
+
+      /* 2^40 - 2^20 */ t0.set(z2TwentyZero);
+      t0.square(20);
+      /* 2^40 - 2^0 */ t0.mult(z2TwentyZero);
+
+      /* 2^50 - 2^10 */ t0.square(10);
+      /* 2^50 - 2^0 */ Polynomial25519 z2FiftyZero = workspace.z2FiftyZero;
+      z2FiftyZero.setProduct(t0, z2TenZero);
+
+      /* 2^100 - 2^50 */ t0.set(z2FiftyZero);
+      t0.square(50);
+      /* 2^100 - 2^0 */ Polynomial25519 z2HundredZero = workspace.z2HundredZero;
+      z2HundredZero.setProduct(t0, z2FiftyZero);
+
+      /* 2^200 - 2^100 */ t0.set(z2HundredZero);
+      t0.square(100);
+      /* 2^200 - 2^0 */ t0.mult(z2HundredZero);
+
+      /* 2^250 - 2^50 */ t0.square(50);
+      /* 2^250 - 2^0 */ t0.mult(z2FiftyZero);
+
+      /* 2^255 - 2^5 */ t0.square(5);
+      /* 2^255 - 21 */ output.setProduct(t0, z11);
     }
 
   }
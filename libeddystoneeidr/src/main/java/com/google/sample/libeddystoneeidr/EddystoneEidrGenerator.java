@@ -14,31 +14,38 @@
 
 package com.google.sample.libeddystoneeidr;
 
-import android.util.Log;
-
 import java.nio.ByteBuffer;
-import java.security.InvalidKeyException;
-import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
 import java.util.UUID;
 
-import javax.crypto.BadPaddingException;
-import javax.crypto.Cipher;
-import javax.crypto.IllegalBlockSizeException;
-import javax.crypto.Mac;
-import javax.crypto.NoSuchPaddingException;
 import javax.crypto.spec.SecretKeySpec;
 
+import no.nordicsemi.android.libeddystonecore.AesEcbCipher;
+import no.nordicsemi.android.libeddystonecore.HexCodec;
+
 
 /**
  * A sample implementation of Eddystone EIDR computation.
  */
 public class EddystoneEidrGenerator {
-  private static final String TAG = EddystoneEidrGenerator.class.getSimpleName();
-
   public static final int MIN_ROTATION_PERIOD_EXPONENT = 0;
   public static final int MAX_ROTATION_PERIOD_EXPONENT = 15;
 
+  /** Length of an ephemeral identifier in bytes. */
+  public static final int EIDR_LENGTH = 8;
+
+  /**
+   * Per-thread AES context. Creating a Cipher instance involves a provider lookup and is far more
+   * expensive than the single block we encrypt with it, so each thread keeps its own instance
+   * together with the scratch blocks used on the hot path.
+   */
+  private static final ThreadLocal<AesContext> AES_CONTEXT = new ThreadLocal<AesContext>() {
+    @Override
+    protected AesContext initialValue() {
+      return new AesContext();
+    }
+  };
+
   // The server's public ECDH Curve25519 key. Must be 32 bytes.
   private byte[] serviceEcdhPublicKey;
 
@@ -51,6 +58,13 @@ public class EddystoneEidrGenerator {
   // In some test scenarios we may want to broadcast EIDs from a known Identity Key.
   private byte[] beaconIdentityKey;
 
+  // The identity key wrapped for the cipher, computed on first use.
+  private SecretKeySpec identityKeySpec;
+
+  // The temporary key of the most recently used epoch. The temporary key only depends on
+  // timestampSeconds >> 16, so all EIDs within one epoch (about 18 hours) share it.
+  private TemporaryKey temporaryKey;
+
   /**
    * Constructs an EddystoneEidrGenerator instance with a real beacon private key and a real
    * service public key.
@@ -102,22 +116,8 @@ public class EddystoneEidrGenerator {
     return bytesToHex(bytes, 0, bytes.length, add0x);
   }
 
-  private static final char[] HEX_ARRAY = { '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'A', 'B', 'C', 'D', 'E', 'F' };
-
   public static String bytesToHex(final byte[] bytes, final int start, final int length, final boolean add0x) {
-    if (bytes == null || bytes.length <= start || length <= 0)
-      return "";
-
-    final int maxLength = Math.min(length, bytes.length - start);
-    final char[] hexChars = new char[maxLength * 2];
-    for (int j = 0; j < maxLength; j++) {
-      final int v = bytes[start + j] & 0xFF;
-      hexChars[j * 2] = HEX_ARRAY[v >>> 4];
-      hexChars[j * 2 + 1] = HEX_ARRAY[v & 0x0F];
-    }
-    if (!add0x)
-      return new String(hexChars);
-    return "0x" + new String(hexChars);
+    return HexCodec.bytesToHex(bytes, start, length, add0x);
   }
 
   /**
@@ -139,6 +139,8 @@ public class EddystoneEidrGenerator {
    */
   public void setIdentityKey(byte[] beaconIdentityKey) {
     this.beaconIdentityKey = beaconIdentityKey;
+    identityKeySpec = null;
+    temporaryKey = null;
     // When using a given identity key, the beacon's public and private keys are unused. Nullify
     // them to make sure.
     beaconPublicKey = null;
@@ -157,7 +159,67 @@ public class EddystoneEidrGenerator {
   public byte[] getEidr(int rotationPeriodExponent, int timestampSeconds) {
     checkArgument(rotationPeriodExponent >= MIN_ROTATION_PERIOD_EXPONENT
         && rotationPeriodExponent <= MAX_ROTATION_PERIOD_EXPONENT);
-    return getEidrInternal(rotationPeriodExponent, timestampSeconds);
+    byte[] eidr = new byte[EIDR_LENGTH];
+    return getEidrInternal(rotationPeriodExponent, timestampSeconds, eidr, 0) ? eidr : null;
+  }
+
+  /**
+   * Writes the 8-byte ephemeral identifier given the rotation period exponent and a timestamp to
+   * {@code out} at {@code offset}. Unlike {@link #getEidr(int, int)} this does not allocate the
+   * result nor any intermediate blocks, which makes it suitable for bulk EID generation.
+   *
+   * @param rotationPeriodExponent  A value between {@code MIN_ROTATION_PERIOD_EXPONENT} and
+   *                                {@code MAX_ROTATION_PERIOD_EXPONENT} indicating that the
+   *                                beacon will rotate its EID every 2^rot seconds
+   * @param timestampSeconds  The current time in seconds
+   * @param out  The output buffer, with at least {@link #EIDR_LENGTH} bytes after {@code offset}
+   * @param offset  The offset in {@code out} to write the identifier at
+   * @return true if the identifier was written, false if it could not be computed
+   */
+  public boolean getEidr(int rotationPeriodExponent, int timestampSeconds, byte[] out,
+      int offset) {
+    checkArgument(rotationPeriodExponent >= MIN_ROTATION_PERIOD_EXPONENT
+        && rotationPeriodExponent <= MAX_ROTATION_PERIOD_EXPONENT);
+    checkArgument(out != null && offset >= 0 && out.length - offset >= EIDR_LENGTH);
+    return getEidrInternal(rotationPeriodExponent, timestampSeconds, out, offset);
+  }
+
+  /**
+   * Writes the ephemeral identifiers of all rotation windows between two timestamps to
+   * {@code out}, one {@link #EIDR_LENGTH}-byte identifier per window, starting with the window
+   * that contains {@code fromTimestampSeconds} and ending with the one that contains
+   * {@code toTimestampSeconds}. The temporary key is computed once per epoch rather than once
+   * per window, halving the AES work compared to calling {@link #getEidr(int, int)} repeatedly.
+   *
+   * @param rotationPeriodExponent  A value between {@code MIN_ROTATION_PERIOD_EXPONENT} and
+   *                                {@code MAX_ROTATION_PERIOD_EXPONENT}
+   * @param fromTimestampSeconds  The time in seconds within the first window
+   * @param toTimestampSeconds  The time in seconds within the last window, not less than
+   *                            {@code fromTimestampSeconds}
+   * @param out  The output buffer, with room for all windows after {@code offset}
+   * @param offset  The offset in {@code out} to write the first identifier at
+   * @return the number of identifiers written, or -1 if they could not be computed
+   */
+  public int getEidrs(int rotationPeriodExponent, int fromTimestampSeconds,
+      int toTimestampSeconds, byte[] out, int offset) {
+    checkArgument(rotationPeriodExponent >= MIN_ROTATION_PERIOD_EXPONENT
+        && rotationPeriodExponent <= MAX_ROTATION_PERIOD_EXPONENT);
+    checkArgument(fromTimestampSeconds <= toTimestampSeconds);
+    int firstWindow = fromTimestampSeconds >> rotationPeriodExponent;
+    int lastWindow = toTimestampSeconds >> rotationPeriodExponent;
+    long count = (long) lastWindow - firstWindow + 1;
+    checkArgument(out != null && offset >= 0 && out.length - offset >= count * EIDR_LENGTH);
+    for (int window = firstWindow; window <= lastWindow; window++) {
+      if (!getEidrInternal(rotationPeriodExponent, window << rotationPeriodExponent, out,
+          offset)) {
+        return -1;
+      }
+      offset += EIDR_LENGTH;
+      if (window == Integer.MAX_VALUE) {
+        break;
+      }
+    }
+    return (int) count;
   }
 
   /**
@@ -183,64 +245,94 @@ public class EddystoneEidrGenerator {
     if (beaconIdentityKey != null) {
       return beaconIdentityKey;
     }
-    Mac hkdfSha256Mac;
-    try {
-      hkdfSha256Mac = Mac.getInstance("HmacSHA256");
-    } catch (NoSuchAlgorithmException e) {
-      Log.e(TAG, "Error constructing SHA256 HMAC instance", e);
-      return null;  // XXX fix callers to cope with null
-    }
-
-    byte[] publicKeys = new byte[serviceEcdhPublicKey.length + beaconPublicKey.length];
-    System.arraycopy(serviceEcdhPublicKey, 0, publicKeys, 0, serviceEcdhPublicKey.length);
-    System.arraycopy(beaconPublicKey, 0, publicKeys, serviceEcdhPublicKey.length, beaconPublicKey.length);
-
-    try {
-      hkdfSha256Mac.init(new SecretKeySpec(publicKeys, "AES"));
-    } catch (InvalidKeyException e) {
-      Log.e(TAG, "Error initializing SHA256 HMAC instance", e);
-      return null;
-    }
-
-    byte[] sharedSecret = hkdfSha256Mac.doFinal(getSharedSecret());
-    if (sharedSecret == null) {
-      Log.e(TAG, "Shared secret is zero. Possibly indicates a weak public key!");
-      return null;
-    }
-
-    Log.v("TAG", "beacon final shared secret: " + bytesToHex(sharedSecret, 0, 32, false));
+    return computeIdentityKey(serviceEcdhPublicKey, beaconPublicKey, getSharedSecret());
+  }
 
-    try {
-      hkdfSha256Mac.init(new SecretKeySpec(sharedSecret, "AES"));
-    } catch (InvalidKeyException e) {
-      Log.e(TAG, "Error reinitializing SHA256 HMAC instance", e);
-      return null;
+  /**
+   * Derives the 16-byte identity key from the ECDH shared secret with HKDF-SHA256, using both
+   * public keys as the salt.
+   *
+   * @return the identity key or null if it could not be computed
+   */
+  static byte[] computeIdentityKey(byte[] serviceEcdhPublicKey, byte[] beaconPublicKey,
+      byte[] sharedSecret) {
+    byte[] identityKey = new byte[16];
+    if (!HkdfSha256.deriveIdentityKey(serviceEcdhPublicKey, beaconPublicKey, sharedSecret,
+        identityKey, 0)) {
+      return null;  // XXX fix callers to cope with null
     }
-
-    byte[] salt = { 0x01 };
-    return Arrays.copyOfRange(hkdfSha256Mac.doFinal(salt), 0, 16);
+    return identityKey;
   }
 
   byte[] generateTkData(int timestampSeconds) {
-    // TODO: link to docs showing encryption data structure.
     byte[] data = new byte[16];
+    fillTkData(data, timestampSeconds);
+    return data;
+  }
+
+  private static void fillTkData(byte[] data, int timestampSeconds) {
+    // TODO: link to docs showing encryption data structure.
+    Arrays.fill(data, 0, 16, (byte) 0);
     data[11] = (byte) 0xff;  // Salt.
     int trimmedTime = timestampSeconds >> 16;
     data[14] = (byte) ((trimmedTime >> 8) & 0xff);
     data[15] = (byte) (trimmedTime & 0xff);
-    return data;
   }
 
   byte[] getTemporaryKey(int timestampSeconds) {
-    byte[] tkData = generateTkData(timestampSeconds);
-    byte[] identityKey = getIdentityKey();
-    return identityKey == null ? null
-        : aes128Encrypt(tkData, new SecretKeySpec(identityKey, "AES"));
+    byte[] temporaryKey = new byte[16];
+    return computeTemporaryKey(timestampSeconds, temporaryKey, AES_CONTEXT.get())
+        ? temporaryKey : null;
+  }
+
+  private boolean computeTemporaryKey(int timestampSeconds, byte[] out, AesContext context) {
+    SecretKeySpec keySpec = getIdentityKeySpec();
+    if (keySpec == null) {
+      return false;
+    }
+    fillTkData(context.block, timestampSeconds);
+    return context.identityKeyCipher.encrypt(context.block, 0, 16, keySpec, out, 0);
+  }
+
+  private SecretKeySpec getIdentityKeySpec() {
+    if (identityKeySpec == null) {
+      byte[] identityKey = getIdentityKey();
+      if (identityKey == null) {
+        return null;
+      }
+      identityKeySpec = new SecretKeySpec(identityKey, "AES");
+    }
+    return identityKeySpec;
+  }
+
+  /**
+   * Returns the temporary key for the epoch of {@code timestampSeconds}, from the cache if the
+   * epoch did not change since the last call.
+   */
+  private SecretKeySpec getTemporaryKeySpec(int timestampSeconds, AesContext context) {
+    int epoch = timestampSeconds >> 16;
+    TemporaryKey cached = temporaryKey;
+    if (cached != null && cached.epoch == epoch) {
+      return cached.keySpec;
+    }
+    if (!computeTemporaryKey(timestampSeconds, context.temporaryKey, context)) {
+      return null;
+    }
+    cached = new TemporaryKey(epoch, new SecretKeySpec(context.temporaryKey, "AES"));
+    temporaryKey = cached;
+    return cached.keySpec;
   }
 
   byte[] generateEidrData(int rotationPeriodExponent, int timestampSeconds) {
-    // TODO: link to docs showing encryption data structure.
     byte[] data = new byte[16];
+    fillEidrData(data, rotationPeriodExponent, timestampSeconds);
+    return data;
+  }
+
+  private static void fillEidrData(byte[] data, int rotationPeriodExponent,
+      int timestampSeconds) {
+    // TODO: link to docs showing encryption data structure.
+    Arrays.fill(data, 0, 16, (byte) 0);
     data[11] = (byte) rotationPeriodExponent;
     // Clear the {@code rotationPeriodExponent} bits of the timestamp.
     long scaledTime = (timestampSeconds >> rotationPeriodExponent) << rotationPeriodExponent;
@@ -248,51 +340,54 @@ public class EddystoneEidrGenerator {
     data[13] = ((byte) ((scaledTime >> 16) & 0xff));
     data[14] = ((byte) ((scaledTime >> 8) & 0xff));
     data[15] = ((byte) (scaledTime & 0xff));
-    return data;
   }
 
-  private byte[] getEidrInternal(int rotationPeriodExponent, int timestampSeconds) {
-    byte[] temporaryKey = getTemporaryKey(timestampSeconds);
-    if (temporaryKey == null) {
-      return null;
+  private boolean getEidrInternal(int rotationPeriodExponent, int timestampSeconds, byte[] out,
+      int offset) {
+    AesContext context = AES_CONTEXT.get();
+    SecretKeySpec temporaryKeySpec = getTemporaryKeySpec(timestampSeconds, context);
+    if (temporaryKeySpec == null) {
+      return false;
+    }
+    fillEidrData(context.block, rotationPeriodExponent, timestampSeconds);
+    if (!context.temporaryKeyCipher.encrypt(context.block, 0, 16, temporaryKeySpec,
+        context.output, 0)) {
+      return false;
     }
-    byte[] eidData = generateEidrData(rotationPeriodExponent, timestampSeconds);
-    byte[] encrypted =  aes128Encrypt(eidData, new SecretKeySpec(temporaryKey, "AES"));
-    return encrypted == null ? null : Arrays.copyOfRange(encrypted, 0, 8);
+    System.arraycopy(context.output, 0, out, offset, EIDR_LENGTH);
+    return true;
   }
 
   public byte[] aes128Encrypt(byte[] data, SecretKeySpec keySpec) {
-    Cipher cipher;
-    try {
-      // Ignore the "ECB encryption should not be used" warning. We use exactly one block so
-      // the difference between ECB and CBC is just an IV or not. In addition our blocks are
-      // always different since they have a monotonic timestamp. Most importantly, our blocks
-      // aren't sensitive. Decrypting them means means knowing the beacon time and its rotation
-      // period. If due to ECB an attacker could find out that the beacon broadcast the same
-      // block a second time, all it could infer is that for some reason the clock of the beacon
-      // reset, which is not very helpful
-      cipher = Cipher.getInstance("AES/ECB/NoPadding");
-    } catch (NoSuchAlgorithmException | NoSuchPaddingException e) {
-      Log.e(TAG, "Error constructing cipher instance", e);
-      return null;
-    }
+    byte[] ret = new byte[data.length];
+    return AES_CONTEXT.get().temporaryKeyCipher.encrypt(data, 0, data.length, keySpec, ret, 0)
+        ? ret : null;
+  }
 
-    try {
-      cipher.init(Cipher.ENCRYPT_MODE, keySpec);
-    } catch (InvalidKeyException e) {
-      Log.e(TAG, "Error initializing cipher instance", e);
-      return null;
-    }
+  /**
+   * An immutable (epoch, temporary key) pair, so that generators shared between threads never see
+   * a key paired with the wrong epoch.
+   */
+  private static final class TemporaryKey {
+    private final int epoch;
+    private final SecretKeySpec keySpec;
 
-    byte[] ret;
-    try {
-      ret = cipher.doFinal(data);
-    } catch (IllegalBlockSizeException | BadPaddingException e) {
-      Log.e(TAG, "Error executing cipher", e);
-      return null;
+    TemporaryKey(int epoch, SecretKeySpec keySpec) {
+      this.epoch = epoch;
+      this.keySpec = keySpec;
     }
+  }
 
-    return ret;
+  /**
+   * Scratch state of one thread. The identity key and the temporary key get a cipher each, so
+   * that a cipher usually still holds the key it needs and is not re-initialized.
+   */
+  private static final class AesContext {
+    private final byte[] block = new byte[16];
+    private final byte[] output = new byte[16];
+    private final byte[] temporaryKey = new byte[16];
+    private final AesEcbCipher identityKeyCipher = new AesEcbCipher();
+    private final AesEcbCipher temporaryKeyCipher = new AesEcbCipher();
   }
 
   private void checkArgument(boolean b) {
@@ -304,5 +399,7 @@ public class EddystoneEidrGenerator {
   void setPrivateKeyForTesting(byte[] b) {
     this.beaconPrivateKey = b;
     this.beaconPublicKey = Curve25519.scalarMultBase(b);
+    identityKeySpec = null;
+    temporaryKey = null;
   }
 }
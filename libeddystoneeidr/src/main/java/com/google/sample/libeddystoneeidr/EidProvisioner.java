@@ -0,0 +1,199 @@
+// Copyright 2015 Google Inc. All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//    http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sample.libeddystoneeidr;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Derives beacon key pairs and identity keys in bulk against a single service ECDH key.
+ *
+ * <p>The work is split into chunks that run on a fixed pool of worker threads. Every worker keeps
+ * its own Curve25519 workspace and random generator, and {@link HkdfSha256} its own HmacSHA256
+ * instance, so nothing is constructed per beacon apart from the keys themselves. Within a chunk
+ * the Curve25519 operations are batched to share their field inversions. Results are streamed to
+ * a {@link Listener} as soon as each chunk is done, in no particular order.
+ *
+ * <p>Call {@link #shutdown()} once the provisioner is no longer needed.
+ */
+public class EidProvisioner {
+  // Chunks per thread. More chunks balance better when workers run at different speeds.
+  private static final int CHUNKS_PER_THREAD = 4;
+
+  /**
+   * Receives provisioned keys. Called concurrently from the worker threads.
+   */
+  public interface Listener {
+    /**
+     * @param index the index of the beacon within the batch
+     * @param beaconPrivateKey the 32-byte Curve25519 private key of the beacon
+     * @param beaconPublicKey the 32-byte Curve25519 public key of the beacon
+     * @param identityKey the 16-byte identity key shared by the beacon and the service
+     */
+    void onKeysProvisioned(int index, byte[] beaconPrivateKey, byte[] beaconPublicKey,
+        byte[] identityKey);
+
+    /**
+     * Called instead of {@link #onKeysProvisioned} when the keys of a beacon could not be derived.
+     */
+    void onProvisioningFailed(int index);
+  }
+
+  private final byte[] serviceEcdhPublicKey;
+  private final int threadCount;
+  private final ExecutorService executor;
+
+  private final ThreadLocal<Worker> workers = new ThreadLocal<Worker>() {
+    @Override
+    protected Worker initialValue() {
+      return new Worker();
+    }
+  };
+
+  /**
+   * Creates a provisioner using one worker thread per available processor.
+   *
+   * @param serviceEcdhPublicKey 32-byte public key of remote server
+   */
+  public EidProvisioner(byte[] serviceEcdhPublicKey) {
+    this(serviceEcdhPublicKey, Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * @param serviceEcdhPublicKey 32-byte public key of remote server
+   * @param threadCount number of worker threads
+   */
+  public EidProvisioner(byte[] serviceEcdhPublicKey, int threadCount) {
+    if (serviceEcdhPublicKey == null || serviceEcdhPublicKey.length != 32) {
+      throw new IllegalArgumentException("Service public key must be 32 bytes long");
+    }
+    if (threadCount < 1) {
+      throw new IllegalArgumentException("At least one thread is required");
+    }
+    this.serviceEcdhPublicKey = serviceEcdhPublicKey.clone();
+    this.threadCount = threadCount;
+    executor = Executors.newFixedThreadPool(threadCount);
+  }
+
+  /**
+   * Provisions {@code count} beacons with freshly generated random private keys. Blocks until
+   * all beacons have been reported to the listener.
+   */
+  public void provision(int count, Listener listener) throws InterruptedException {
+    run(null, count, listener);
+  }
+
+  /**
+   * Provisions one beacon per given 32-byte private key. The keys are not modified. Blocks until
+   * all beacons have been reported to the listener.
+   */
+  public void provision(byte[][] beaconPrivateKeys, Listener listener)
+      throws InterruptedException {
+    for (byte[] key : beaconPrivateKeys) {
+      if (key == null || key.length != 32) {
+        throw new IllegalArgumentException("Private keys must be 32 bytes long");
+      }
+    }
+    run(beaconPrivateKeys, beaconPrivateKeys.length, listener);
+  }
+
+  /**
+   * Stops the worker threads. Batches already running are completed.
+   */
+  public void shutdown() {
+    executor.shutdown();
+  }
+
+  private void run(final byte[][] beaconPrivateKeys, int count, final Listener listener)
+      throws InterruptedException {
+    int chunkSize = Math.max(1, (count + threadCount * CHUNKS_PER_THREAD - 1)
+        / (threadCount * CHUNKS_PER_THREAD));
+    List<Future<Void>> chunks = new ArrayList<>();
+    for (int start = 0; start < count; start += chunkSize) {
+      final int from = start;
+      final int to = Math.min(count, start + chunkSize);
+      chunks.add(executor.submit(new Callable<Void>() {
+        @Override
+        public Void call() {
+          workers.get().provision(from, to, beaconPrivateKeys, listener);
+          return null;
+        }
+      }));
+    }
+    try {
+      for (Future<Void> chunk : chunks) {
+        chunk.get();
+      }
+    } catch (ExecutionException e) {
+      // Listener exceptions end up here; rethrow them on the calling thread.
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new RuntimeException(cause);
+    } finally {
+      for (Future<Void> chunk : chunks) {
+        chunk.cancel(false);
+      }
+    }
+  }
+
+  /**
+   * Per-thread state. Only ever used by the thread that created it.
+   */
+  private final class Worker {
+    private final Curve25519.Polynomial25519.Workspace workspace =
+        new Curve25519.Polynomial25519.Workspace();
+    private final SecureRandom random = new SecureRandom();
+
+    /**
+     * Provisions the beacons in [from, to). Public keys and shared secrets of the whole chunk are
+     * computed with one batch scalar multiplication each, sharing their field inversions.
+     */
+    void provision(int from, int to, byte[][] givenPrivateKeys, Listener listener) {
+      int count = to - from;
+      byte[][] privateKeys = new byte[count][];
+      byte[][] servicePublicKeys = new byte[count][];
+      for (int i = 0; i < count; i++) {
+        if (givenPrivateKeys != null) {
+          privateKeys[i] = givenPrivateKeys[from + i].clone();
+        } else {
+          privateKeys[i] = new byte[32];
+          random.nextBytes(privateKeys[i]);
+        }
+        servicePublicKeys[i] = serviceEcdhPublicKey;
+      }
+      // Clamps the private keys, so the caller receives them as the beacons will use them.
+      byte[][] publicKeys = Curve25519.scalarMultBase(privateKeys, workspace);
+      byte[][] sharedSecrets = Curve25519.scalarMult(privateKeys, servicePublicKeys, workspace);
+
+      for (int i = 0; i < count; i++) {
+        byte[] identityKey = EddystoneEidrGenerator.computeIdentityKey(
+            serviceEcdhPublicKey, publicKeys[i], sharedSecrets[i]);
+        if (identityKey == null) {
+          listener.onProvisioningFailed(from + i);
+        } else {
+          listener.onKeysProvisioned(from + i, privateKeys[i], publicKeys[i], identityKey);
+        }
+      }
+    }
+  }
+}
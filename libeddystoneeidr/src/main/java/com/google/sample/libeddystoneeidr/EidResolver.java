@@ -0,0 +1,270 @@
+// Copyright 2015 Google Inc. All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//    http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sample.libeddystoneeidr;
+
+import java.util.Arrays;
+
+import no.nordicsemi.android.libeddystonecore.LongIntHashMap;
+
+/**
+ * Resolves observed ephemeral identifiers back to the beacons that broadcast them.
+ *
+ * <p>Beacon clocks drift, so a beacon may already broadcast the EID of a later rotation window, or
+ * still the EID of an earlier one. For every registered beacon the resolver keeps the EIDs of the
+ * current window and of {@code toleranceWindows} windows on either side in a ring buffer, indexed
+ * by a primitive hash map, so that a sighting is resolved with a single lookup instead of one AES
+ * computation per registered beacon. Call {@link #refresh(int)} periodically; only beacons whose
+ * window has rolled over are updated, and a roll-over by one window costs a single EID
+ * computation.
+ *
+ * <p>Every match records how far the beacon's clock is ahead of or behind the refresh time, see
+ * {@link #getClockOffset(int)}.
+ *
+ * <p>This class is not thread-safe.
+ */
+public class EidResolver {
+  /** Returned by the resolve methods when the EID does not belong to any registered beacon. */
+  public static final int NOT_FOUND = LongIntHashMap.NO_VALUE;
+
+  private static final int NO_WINDOW = Integer.MIN_VALUE;
+
+  // Windows indexed on either side of the current one, and the resulting slots per beacon.
+  private final int tolerance;
+  private final int slots;
+
+  private EddystoneEidrGenerator[] generators;
+  private int[] exponents;
+  // The current window of each beacon, i.e. timestampSeconds >> rotationPeriodExponent.
+  private int[] windows;
+  // Slot of the oldest window in each beacon's ring buffer.
+  private int[] heads;
+  // Window offset of each beacon's most recent match.
+  private int[] offsets;
+  // A ring buffer of slots consecutive EIDs per beacon.
+  private long[] eids;
+  private int beaconCount;
+
+  // Maps EIDs to beacon * slots + slot.
+  private final LongIntHashMap index;
+  private final byte[] eid = new byte[EddystoneEidrGenerator.EIDR_LENGTH];
+
+  private int timestampSeconds;
+  private boolean refreshed;
+
+  public EidResolver() {
+    this(16);
+  }
+
+  /**
+   * Creates a resolver that accepts EIDs from the previous, the current and the next window.
+   *
+   * @param expectedBeacons the number of beacons expected to be registered
+   */
+  public EidResolver(int expectedBeacons) {
+    this(expectedBeacons, 1);
+  }
+
+  /**
+   * @param expectedBeacons the number of beacons expected to be registered
+   * @param toleranceWindows the number of rotation windows a beacon clock may be ahead or behind
+   */
+  public EidResolver(int expectedBeacons, int toleranceWindows) {
+    if (toleranceWindows < 0) {
+      throw new IllegalArgumentException("Invalid tolerance");
+    }
+    int capacity = Math.max(expectedBeacons, 1);
+    tolerance = toleranceWindows;
+    slots = 2 * toleranceWindows + 1;
+    generators = new EddystoneEidrGenerator[capacity];
+    exponents = new int[capacity];
+    windows = new int[capacity];
+    heads = new int[capacity];
+    offsets = new int[capacity];
+    eids = new long[capacity * slots];
+    index = new LongIntHashMap(capacity * slots);
+  }
+
+  /**
+   * Registers a beacon. If the resolver has already been refreshed, the beacon's EIDs are computed
+   * for the last refresh time right away.
+   *
+   * @param identityKey 16-byte identity key of the beacon
+   * @param rotationPeriodExponent the beacon's rotation period exponent
+   * @return the handle of the beacon, returned by the resolve methods on a match
+   */
+  public int addBeacon(byte[] identityKey, int rotationPeriodExponent) {
+    if (identityKey == null || identityKey.length != 16) {
+      throw new IllegalArgumentException("Identity key must be 16 bytes long");
+    }
+    if (rotationPeriodExponent < EddystoneEidrGenerator.MIN_ROTATION_PERIOD_EXPONENT
+        || rotationPeriodExponent > EddystoneEidrGenerator.MAX_ROTATION_PERIOD_EXPONENT) {
+      throw new IllegalArgumentException("Invalid rotation period exponent");
+    }
+    if (beaconCount == generators.length) {
+      grow();
+    }
+    int beacon = beaconCount++;
+    EddystoneEidrGenerator generator = new EddystoneEidrGenerator();
+    generator.setIdentityKey(identityKey.clone());
+    generators[beacon] = generator;
+    exponents[beacon] = rotationPeriodExponent;
+    windows[beacon] = NO_WINDOW;
+    heads[beacon] = 0;
+    offsets[beacon] = 0;
+    if (refreshed) {
+      refreshBeacon(beacon, timestampSeconds);
+    }
+    return beacon;
+  }
+
+  public int getBeaconCount() {
+    return beaconCount;
+  }
+
+  /**
+   * Brings the index up to date with the given time. Beacons whose window did not change are
+   * skipped; beacons that moved by n windows compute n new EIDs, at most one per slot.
+   *
+   * @param timestampSeconds the current beacon time in seconds
+   */
+  public void refresh(int timestampSeconds) {
+    this.timestampSeconds = timestampSeconds;
+    refreshed = true;
+    for (int beacon = 0; beacon < beaconCount; beacon++) {
+      refreshBeacon(beacon, timestampSeconds);
+    }
+  }
+
+  /**
+   * Returns the handle of the beacon that broadcasts the given EID in one of the indexed windows,
+   * or {@link #NOT_FOUND}.
+   *
+   * <p>This is not a pure lookup: a match overwrites the clock offset of the beacon returned by
+   * {@link #getClockOffset(int)} with the window the EID was found in. Resolving an EID that was
+   * not observed just now, e.g. a stale or replayed one, therefore skews the offset.
+   */
+  public int resolve(long eid) {
+    int value = index.get(eid);
+    if (value == NOT_FOUND) {
+      return NOT_FOUND;
+    }
+    int beacon = value / slots;
+    int position = value - beacon * slots - heads[beacon];
+    if (position < 0) {
+      position += slots;
+    }
+    offsets[beacon] = position - tolerance;
+    return beacon;
+  }
+
+  /**
+   * Returns the handle of the beacon that broadcasts the 8-byte EID starting at {@code offset}, or
+   * {@link #NOT_FOUND}. Updates the clock offset of the beacon like {@link #resolve(long)}.
+   */
+  public int resolve(byte[] eid, int offset) {
+    return resolve(toLong(eid, offset));
+  }
+
+  /**
+   * Returns how many seconds the beacon's clock was ahead of the refresh time at its most recent
+   * match, negative if it was behind. The estimate has the resolution of the beacon's rotation
+   * period, and is 0 until the beacon has been matched. A persistent offset can be used to
+   * correct the beacon time when the beacon is registered again.
+   *
+   * @param beacon the handle returned by {@link #addBeacon(byte[], int)}
+   */
+  public int getClockOffset(int beacon) {
+    if (beacon < 0 || beacon >= beaconCount) {
+      throw new IllegalArgumentException("Unknown beacon");
+    }
+    return offsets[beacon] << exponents[beacon];
+  }
+
+  /**
+   * Packs 8 bytes of an EID, big endian, into a long.
+   */
+  public static long toLong(byte[] eid, int offset) {
+    long value = 0;
+    for (int i = 0; i < 8; i++) {
+      value = (value << 8) | (eid[offset + i] & 0xff);
+    }
+    return value;
+  }
+
+  private void refreshBeacon(int beacon, int timestampSeconds) {
+    int window = timestampSeconds >> exponents[beacon];
+    int oldWindow = windows[beacon];
+    if (window == oldWindow) {
+      return;
+    }
+    int base = beacon * slots;
+    long delta = (long) window - oldWindow;
+    if (oldWindow != NO_WINDOW && delta > 0 && delta < slots) {
+      // Moving forward: the oldest slot receives the newest window.
+      int head = heads[beacon];
+      for (int w = oldWindow + 1; w <= window; w++) {
+        replace(beacon, base, head, w + tolerance);
+        head = head + 1 == slots ? 0 : head + 1;
+      }
+      heads[beacon] = head;
+    } else if (oldWindow != NO_WINDOW && delta < 0 && -delta < slots) {
+      // Moving backward: the newest slot receives the oldest window.
+      int head = heads[beacon];
+      for (int w = oldWindow - 1; w >= window; w--) {
+        head = head == 0 ? slots - 1 : head - 1;
+        replace(beacon, base, head, w - tolerance);
+      }
+      heads[beacon] = head;
+    } else {
+      if (oldWindow != NO_WINDOW) {
+        for (int slot = 0; slot < slots; slot++) {
+          index.remove(eids[base + slot], base + slot);
+        }
+      }
+      for (int slot = 0; slot < slots; slot++) {
+        eids[base + slot] = computeEid(beacon, base + slot, window - tolerance + slot);
+      }
+      heads[beacon] = 0;
+    }
+    windows[beacon] = window;
+  }
+
+  private void replace(int beacon, int base, int slot, int window) {
+    index.remove(eids[base + slot], base + slot);
+    eids[base + slot] = computeEid(beacon, base + slot, window);
+  }
+
+  private long computeEid(int beacon, int value, int window) {
+    int exponent = exponents[beacon];
+    if (!generators[beacon].getEidr(exponent, window << exponent, eid, 0)) {
+      // Nothing to index. Removing this value later is a no-op unless another slot happens to
+      // map the same key, in which case remove() leaves it alone.
+      return 0;
+    }
+    long eidValue = toLong(eid, 0);
+    index.put(eidValue, value);
+    return eidValue;
+  }
+
+  private void grow() {
+    int capacity = generators.length << 1;
+    generators = Arrays.copyOf(generators, capacity);
+    exponents = Arrays.copyOf(exponents, capacity);
+    windows = Arrays.copyOf(windows, capacity);
+    heads = Arrays.copyOf(heads, capacity);
+    offsets = Arrays.copyOf(offsets, capacity);
+    eids = Arrays.copyOf(eids, capacity * slots);
+  }
+}
@@ -0,0 +1,254 @@
+// Copyright 2015 Google Inc. All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//    http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sample.libeddystoneeidr;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read-only view of a file of precomputed EIDs, written by {@link EidTableWriter}.
+ *
+ * <p>The file starts with a 16-byte header: the magic "EIDT", a version and 8 reserved bytes. It
+ * is followed by any number of segments, each appended in one go. A segment is a 16-byte header
+ * (record count, the lowest and the highest window start time, 4 reserved bytes) followed by
+ * fixed 16-byte records sorted by EID as an unsigned number: the 8-byte EID, the 4-byte beacon id
+ * and the 4-byte start time of the rotation window. All values are big endian.
+ *
+ * <p>Every segment is memory mapped, and a lookup is a binary search per segment, newest first,
+ * that reads the mapped buffers directly without creating objects. The writer keeps the number of
+ * segments at or below {@link EidTableWriter#MAX_SEGMENTS}. A segment left incomplete by a crash is
+ * ignored.
+ *
+ * <p>Lookups do not modify the table, so a table may be shared between threads once opened.
+ */
+public class EidTable implements Closeable {
+  /** Returned by {@link #lookup(long)} when the EID is not in the table. */
+  public static final int NOT_FOUND = -1;
+
+  static final int MAGIC = 0x45494454;  // "EIDT"
+  static final int VERSION = 1;
+  static final int HEADER_SIZE = 16;
+  static final int SEGMENT_HEADER_SIZE = 16;
+  static final int RECORD_SIZE = 16;
+  // Largest segment that fits in a single mapping.
+  static final int MAX_SEGMENT_RECORDS = (Integer.MAX_VALUE - SEGMENT_HEADER_SIZE) / RECORD_SIZE;
+
+  private final RandomAccessFile file;
+  private final MappedByteBuffer[] segments;
+  private final int[] counts;
+  private final long entryCount;
+  private final int minTimestamp;
+  private final int maxTimestamp;
+
+  /**
+   * A match, filled in by {@link #lookup(long, Entry)}.
+   */
+  public static final class Entry {
+    /** The beacon id given to the writer. */
+    public int beacon;
+    /** Start of the rotation window in which the beacon broadcasts the EID, in seconds. */
+    public int timestampSeconds;
+  }
+
+  /**
+   * Maps the given table file.
+   *
+   * @throws IOException if the file cannot be read or is not an EID table
+   */
+  public EidTable(File path) throws IOException {
+    file = new RandomAccessFile(path, "r");
+    try {
+      FileChannel channel = file.getChannel();
+      long end = readHeader(channel);
+      List<MappedByteBuffer> mapped = new ArrayList<>();
+      List<Integer> sizes = new ArrayList<>();
+      long entries = 0;
+      int min = Integer.MAX_VALUE;
+      int max = Integer.MIN_VALUE;
+      ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_SIZE);
+      for (long position = HEADER_SIZE; position < end; ) {
+        int count = readSegmentHeader(channel, position, end, header);
+        if (count < 0) {
+          break;
+        }
+        mapped.add(channel.map(FileChannel.MapMode.READ_ONLY, position + SEGMENT_HEADER_SIZE,
+            (long) count * RECORD_SIZE));
+        sizes.add(count);
+        if (count > 0) {
+          min = Math.min(min, header.getInt(4));
+          max = Math.max(max, header.getInt(8));
+        }
+        entries += count;
+        position += SEGMENT_HEADER_SIZE + (long) count * RECORD_SIZE;
+      }
+      segments = mapped.toArray(new MappedByteBuffer[mapped.size()]);
+      counts = new int[sizes.size()];
+      for (int i = 0; i < counts.length; i++) {
+        counts[i] = sizes.get(i);
+      }
+      entryCount = entries;
+      minTimestamp = min;
+      maxTimestamp = max;
+    } catch (IOException e) {
+      file.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Returns the id of the beacon that broadcasts the given EID, or {@link #NOT_FOUND}.
+   */
+  public int lookup(long eid) {
+    for (int s = segments.length - 1; s >= 0; s--) {
+      int index = search(segments[s], counts[s], eid);
+      if (index >= 0) {
+        return segments[s].getInt(index * RECORD_SIZE + 8);
+      }
+    }
+    return NOT_FOUND;
+  }
+
+  /**
+   * Returns the id of the beacon that broadcasts the 8-byte EID starting at {@code offset}, or
+   * {@link #NOT_FOUND}.
+   */
+  public int lookup(byte[] eid, int offset) {
+    return lookup(EidResolver.toLong(eid, offset));
+  }
+
+  /**
+   * Looks up the given EID.
+   *
+   * @param entry receives the beacon id and the window start time on a match
+   * @return true if the EID is in the table
+   */
+  public boolean lookup(long eid, Entry entry) {
+    for (int s = segments.length - 1; s >= 0; s--) {
+      int index = search(segments[s], counts[s], eid);
+      if (index >= 0) {
+        entry.beacon = segments[s].getInt(index * RECORD_SIZE + 8);
+        entry.timestampSeconds = segments[s].getInt(index * RECORD_SIZE + 12);
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Returns the number of records in all complete segments. */
+  public long getEntryCount() {
+    return entryCount;
+  }
+
+  public int getSegmentCount() {
+    return segments.length;
+  }
+
+  /**
+   * Returns the start time of the latest window in the table, or {@link Integer#MIN_VALUE} if the
+   * table is empty. Windows after this one still have to be appended.
+   */
+  public int getMaxTimestamp() {
+    return maxTimestamp;
+  }
+
+  /**
+   * Returns the start time of the earliest window in the table, or {@link Integer#MAX_VALUE} if
+   * the table is empty.
+   */
+  public int getMinTimestamp() {
+    return minTimestamp;
+  }
+
+  /**
+   * Closes the file. The mappings stay valid until they are garbage collected, but the table must
+   * not be used any more.
+   */
+  @Override
+  public void close() throws IOException {
+    file.close();
+  }
+
+  /**
+   * Binary search for {@code eid} among {@code count} records.
+   *
+   * @return the index of the record, or -1
+   */
+  private static int search(ByteBuffer records, int count, long eid) {
+    long key = eid ^ Long.MIN_VALUE;
+    int low = 0;
+    int high = count - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      long value = records.getLong(mid * RECORD_SIZE) ^ Long.MIN_VALUE;
+      if (value < key) {
+        low = mid + 1;
+      } else if (value > key) {
+        high = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Validates the file header.
+   *
+   * @return the length of the file
+   */
+  static long readHeader(FileChannel channel) throws IOException {
+    long size = channel.size();
+    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+    if (size < HEADER_SIZE || channel.read(header, 0) != HEADER_SIZE
+        || header.getInt(0) != MAGIC) {
+      throw new IOException("Not an EID table");
+    }
+    if (header.getInt(4) != VERSION) {
+      throw new IOException("Unsupported EID table version " + header.getInt(4));
+    }
+    return size;
+  }
+
+  /**
+   * Reads the header of the segment at {@code position} into {@code header}.
+   *
+   * @return the record count, or -1 if the segment is incomplete
+   */
+  static int readSegmentHeader(FileChannel channel, long position, long end, ByteBuffer header)
+      throws IOException {
+    if (end - position < SEGMENT_HEADER_SIZE) {
+      return -1;
+    }
+    header.clear();
+    while (header.hasRemaining()) {
+      if (channel.read(header, position + header.position()) < 0) {
+        return -1;
+      }
+    }
+    int count = header.getInt(0);
+    if (count < 0 || count > MAX_SEGMENT_RECORDS
+        || end - position - SEGMENT_HEADER_SIZE < (long) count * RECORD_SIZE) {
+      return -1;
+    }
+    return count;
+  }
+}
@@ -0,0 +1,383 @@
+// Copyright 2015 Google Inc. All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//    http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sample.libeddystoneeidr;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Appends precomputed EIDs to an {@link EidTable} file.
+ *
+ * <p>Records are buffered in primitive arrays and written as one sorted segment by
+ * {@link #flush()}. Appending to an existing file adds a new segment and leaves the existing ones
+ * untouched, so new rotation windows can be added as they become due without rewriting the table.
+ * Once a flush would take the table past {@link #MAX_SEGMENTS} segments, all segments are merged
+ * by {@link #compact()} instead, which bounds the number of binary searches per lookup. An
+ * incomplete segment left behind by a crash is truncated when the file is opened.
+ *
+ * <p>This class is not thread-safe.
+ */
+public class EidTableWriter implements Closeable {
+  /** Number of segments above which {@link #flush()} compacts the table. */
+  static final int MAX_SEGMENTS = 16;
+
+  // Windows computed per call to EddystoneEidrGenerator.getEidrs().
+  private static final int WINDOWS_PER_BATCH = 256;
+  private static final int WRITE_BUFFER_RECORDS = 4096;
+
+  private final File path;
+  private RandomAccessFile file;
+  private FileChannel channel;
+  private long end;
+  private int segmentCount;
+
+  private long[] eids = new long[1024];
+  // Beacon id in the upper and window start time in the lower 32 bits.
+  private long[] values = new long[1024];
+  private int size;
+
+  private final EddystoneEidrGenerator generator = new EddystoneEidrGenerator();
+  private final byte[] eidBuffer = new byte[WINDOWS_PER_BATCH * EddystoneEidrGenerator.EIDR_LENGTH];
+
+  /**
+   * Opens the given table for appending, creating it if it does not exist.
+   *
+   * @throws IOException if the file cannot be written or is not an EID table
+   */
+  public EidTableWriter(File path) throws IOException {
+    this.path = path;
+    file = new RandomAccessFile(path, "rw");
+    channel = file.getChannel();
+    try {
+      if (channel.size() == 0) {
+        writeHeader();
+      } else {
+        long size = EidTable.readHeader(channel);
+        ByteBuffer segmentHeader = ByteBuffer.allocate(EidTable.SEGMENT_HEADER_SIZE);
+        end = EidTable.HEADER_SIZE;
+        int count;
+        while ((count = EidTable.readSegmentHeader(channel, end, size, segmentHeader)) >= 0) {
+          end += EidTable.SEGMENT_HEADER_SIZE + (long) count * EidTable.RECORD_SIZE;
+          segmentCount++;
+        }
+        if (end < size) {
+          channel.truncate(end);
+        }
+      }
+    } catch (IOException e) {
+      file.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Buffers a single record.
+   *
+   * @param eid the EID, packed as by {@link EidResolver#toLong(byte[], int)}
+   * @param beacon the id to return when the EID is looked up
+   * @param timestampSeconds the start time of the rotation window
+   */
+  public void add(long eid, int beacon, int timestampSeconds) {
+    if (size == eids.length) {
+      eids = Arrays.copyOf(eids, size << 1);
+      values = Arrays.copyOf(values, size << 1);
+    }
+    eids[size] = eid;
+    values[size] = ((long) beacon << 32) | (timestampSeconds & 0xffffffffL);
+    size++;
+  }
+
+  /**
+   * Computes and buffers the EIDs of a beacon for every rotation window between two timestamps,
+   * both inclusive.
+   *
+   * @param beacon the id to return when one of the EIDs is looked up
+   * @param identityKey 16-byte identity key of the beacon
+   * @param rotationPeriodExponent the beacon's rotation period exponent
+   * @param fromTimestampSeconds the time in seconds within the first window
+   * @param toTimestampSeconds the time in seconds within the last window
+   * @return the number of records added, or -1 if the EIDs could not be computed
+   */
+  public int addWindows(int beacon, byte[] identityKey, int rotationPeriodExponent,
+      int fromTimestampSeconds, int toTimestampSeconds) {
+    if (identityKey == null || identityKey.length != 16) {
+      throw new IllegalArgumentException("Identity key must be 16 bytes long");
+    }
+    generator.setIdentityKey(identityKey);
+    int firstWindow = fromTimestampSeconds >> rotationPeriodExponent;
+    int lastWindow = toTimestampSeconds >> rotationPeriodExponent;
+    int added = 0;
+    for (long window = firstWindow; window <= lastWindow; window += WINDOWS_PER_BATCH) {
+      int batchLast = (int) Math.min(lastWindow, window + WINDOWS_PER_BATCH - 1);
+      int count = generator.getEidrs(rotationPeriodExponent, (int) window << rotationPeriodExponent,
+          batchLast << rotationPeriodExponent, eidBuffer, 0);
+      if (count < 0) {
+        size -= added;
+        return -1;
+      }
+      for (int i = 0; i < count; i++) {
+        add(EidResolver.toLong(eidBuffer, i * EddystoneEidrGenerator.EIDR_LENGTH), beacon,
+            (int) (window + i) << rotationPeriodExponent);
+      }
+      added += count;
+    }
+    return added;
+  }
+
+  /** Returns the number of records buffered since the last flush. */
+  public int getBufferedCount() {
+    return size;
+  }
+
+  /** Returns the number of complete segments in the file. */
+  public int getSegmentCount() {
+    return segmentCount;
+  }
+
+  /**
+   * Sorts the buffered records and appends them to the file as one segment, or compacts the table
+   * if it would have more than {@link #MAX_SEGMENTS} segments. Does nothing if no records are
+   * buffered.
+   */
+  public void flush() throws IOException {
+    if (size == 0) {
+      return;
+    }
+    long newSegments = (size + (long) EidTable.MAX_SEGMENT_RECORDS - 1)
+        / EidTable.MAX_SEGMENT_RECORDS;
+    if (segmentCount + newSegments > MAX_SEGMENTS) {
+      compact();
+      return;
+    }
+    sort(eids, values, size);
+    writeSegments(eids, values, size);
+    size = 0;
+  }
+
+  /**
+   * Merges all segments and the buffered records into one sorted segment, or as few as the
+   * segment size allows. If an EID was added more than once, only the newest record is kept, which
+   * is the one a lookup returned before.
+   *
+   * <p>All records are loaded into memory, and the merged table is written to a temporary file
+   * that then replaces the table, so a crash leaves either the old or the new table behind. An
+   * {@link EidTable} opened before keeps reading the old records.
+   */
+  public void compact() throws IOException {
+    long existing = (end - EidTable.HEADER_SIZE
+        - (long) segmentCount * EidTable.SEGMENT_HEADER_SIZE) / EidTable.RECORD_SIZE;
+    if (existing + size > Integer.MAX_VALUE - 8) {
+      throw new IOException("EID table too large to compact");
+    }
+    int count = (int) existing + size;
+    long[] mergedEids = new long[count];
+    long[] mergedValues = new long[count];
+    // Older records first, so that the stable sort keeps the newest duplicate last.
+    readRecords(mergedEids, mergedValues);
+    System.arraycopy(eids, 0, mergedEids, (int) existing, size);
+    System.arraycopy(values, 0, mergedValues, (int) existing, size);
+    sort(mergedEids, mergedValues, count);
+    count = removeDuplicates(mergedEids, mergedValues, count);
+
+    File temp = new File(path.getPath() + ".tmp");
+    RandomAccessFile oldFile = file;
+    FileChannel oldChannel = channel;
+    long oldEnd = end;
+    int oldSegmentCount = segmentCount;
+    RandomAccessFile tempFile = new RandomAccessFile(temp, "rw");
+    boolean replaced = false;
+    try {
+      tempFile.setLength(0);
+      file = tempFile;
+      channel = tempFile.getChannel();
+      segmentCount = 0;
+      writeHeader();
+      writeSegments(mergedEids, mergedValues, count);
+      channel.force(false);
+      if (!temp.renameTo(path)) {
+        throw new IOException("Unable to replace " + path);
+      }
+      replaced = true;
+    } finally {
+      if (replaced) {
+        oldFile.close();
+      } else {
+        tempFile.close();
+        temp.delete();
+        file = oldFile;
+        channel = oldChannel;
+        end = oldEnd;
+        segmentCount = oldSegmentCount;
+      }
+    }
+    size = 0;
+  }
+
+  /**
+   * Flushes the buffered records, syncs the file to storage and closes it.
+   */
+  @Override
+  public void close() throws IOException {
+    try {
+      flush();
+      channel.force(false);
+    } finally {
+      file.close();
+    }
+  }
+
+  private void writeHeader() throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(EidTable.HEADER_SIZE);
+    header.putInt(EidTable.MAGIC).putInt(EidTable.VERSION).flip();
+    writeFully(header, 0);
+    end = EidTable.HEADER_SIZE;
+  }
+
+  /**
+   * Appends the first {@code count} sorted records as segments of at most
+   * {@link EidTable#MAX_SEGMENT_RECORDS} records.
+   */
+  private void writeSegments(long[] eids, long[] values, int count) throws IOException {
+    for (int from = 0; from < count; from += EidTable.MAX_SEGMENT_RECORDS) {
+      int to = (int) Math.min(count, (long) from + EidTable.MAX_SEGMENT_RECORDS);
+      writeSegment(eids, values, from, to);
+    }
+  }
+
+  private void writeSegment(long[] eids, long[] values, int from, int to) throws IOException {
+    int min = Integer.MAX_VALUE;
+    int max = Integer.MIN_VALUE;
+    for (int i = from; i < to; i++) {
+      int timestamp = (int) values[i];
+      min = Math.min(min, timestamp);
+      max = Math.max(max, timestamp);
+    }
+    // The record count goes first, so a segment cut short by a crash is detected on open.
+    ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_RECORDS * EidTable.RECORD_SIZE);
+    buffer.putInt(to - from).putInt(min).putInt(max).putInt(0);
+    long position = end;
+    for (int i = from; i < to; i++) {
+      if (!buffer.hasRemaining()) {
+        buffer.flip();
+        position += writeFully(buffer, position);
+        buffer.clear();
+      }
+      buffer.putLong(eids[i]).putLong(values[i]);
+    }
+    buffer.flip();
+    position += writeFully(buffer, position);
+    end = position;
+    segmentCount++;
+  }
+
+  /**
+   * Reads the records of all segments, in file order.
+   */
+  private void readRecords(long[] eids, long[] values) throws IOException {
+    ByteBuffer segmentHeader = ByteBuffer.allocate(EidTable.SEGMENT_HEADER_SIZE);
+    ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_RECORDS * EidTable.RECORD_SIZE);
+    int index = 0;
+    long position = EidTable.HEADER_SIZE;
+    int count;
+    while ((count = EidTable.readSegmentHeader(channel, position, end, segmentHeader)) >= 0) {
+      position += EidTable.SEGMENT_HEADER_SIZE;
+      long segmentEnd = position + (long) count * EidTable.RECORD_SIZE;
+      while (position < segmentEnd) {
+        buffer.clear();
+        buffer.limit((int) Math.min(buffer.capacity(), segmentEnd - position));
+        while (buffer.hasRemaining()) {
+          if (channel.read(buffer, position + buffer.position()) < 0) {
+            throw new IOException("Unexpected end of EID table");
+          }
+        }
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+          eids[index] = buffer.getLong();
+          values[index] = buffer.getLong();
+          index++;
+        }
+        position += buffer.limit();
+      }
+    }
+  }
+
+  /**
+   * Keeps the last of every run of equal EIDs in the first {@code count} sorted records.
+   *
+   * @return the number of records left
+   */
+  private static int removeDuplicates(long[] eids, long[] values, int count) {
+    int kept = 0;
+    for (int i = 0; i < count; i++) {
+      if (i + 1 < count && eids[i + 1] == eids[i]) {
+        continue;
+      }
+      eids[kept] = eids[i];
+      values[kept] = values[i];
+      kept++;
+    }
+    return kept;
+  }
+
+  private int writeFully(ByteBuffer buffer, long position) throws IOException {
+    int length = buffer.remaining();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer, position + length - buffer.remaining());
+    }
+    return length;
+  }
+
+  /**
+   * Sorts the first {@code count} records by EID as an unsigned number. An LSD radix sort over
+   * 16-bit digits takes four linear passes, needs no objects per record and is stable.
+   */
+  private static void sort(long[] eids, long[] values, int count) {
+    long[] eidSource = eids;
+    long[] valueSource = values;
+    long[] eidTarget = new long[count];
+    long[] valueTarget = new long[count];
+    int[] offsets = new int[1 << 16];
+    for (int shift = 0; shift < 64; shift += 16) {
+      Arrays.fill(offsets, 0);
+      for (int i = 0; i < count; i++) {
+        offsets[(int) (eidSource[i] >>> shift) & 0xffff]++;
+      }
+      int sum = 0;
+      for (int digit = 0; digit < offsets.length; digit++) {
+        int digitCount = offsets[digit];
+        offsets[digit] = sum;
+        sum += digitCount;
+      }
+      for (int i = 0; i < count; i++) {
+        long eid = eidSource[i];
+        int target = offsets[(int) (eid >>> shift) & 0xffff]++;
+        eidTarget[target] = eid;
+        valueTarget[target] = valueSource[i];
+      }
+      long[] swap = eidSource;
+      eidSource = eidTarget;
+      eidTarget = swap;
+      swap = valueSource;
+      valueSource = valueTarget;
+      valueTarget = swap;
+    }
+    // After an even number of passes the records are back in the original arrays.
+  }
+}
@@ -0,0 +1,232 @@
+// Copyright 2015 Google Inc. All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//    http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sample.libeddystoneeidr;
+
+import android.util.Log;
+
+import java.security.GeneralSecurityException;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Decrypts and verifies encrypted TLM (eTLM) frames of an EID beacon.
+ *
+ * <p>An eTLM frame carries a 12-byte TLM record encrypted with AES-EAX under the beacon's identity
+ * key, followed by a 16-bit salt and the EAX tag truncated to 16 bits (the message integrity
+ * check). The EAX nonce is the 32-bit beacon time with the lowest rotation period exponent bits
+ * cleared, followed by the salt. The header is empty.
+ *
+ * <p>The AES key schedule, the CMAC subkeys and everything else that only depends on the key are
+ * computed once per decoder, so decoding a frame costs three AES block operations and allocates
+ * nothing. Keep one decoder per beacon. This class is not thread-safe.
+ */
+public class EtlmDecoder {
+  private static final String TAG = EtlmDecoder.class.getSimpleName();
+
+  /** Length of an eTLM frame: type, version, 12-byte encrypted TLM, salt and MIC. */
+  public static final int FRAME_LENGTH = 18;
+
+  private static final int FRAME_TYPE_TLM = 0x20;
+  private static final int VERSION_ETLM = 0x01;
+  private static final int TLM_LENGTH = 12;
+
+  private final Cipher cipher;
+  private final int rotationPeriodExponent;
+
+  // CMAC subkey used when the last block is incomplete.
+  private final byte[] k2 = new byte[16];
+  // E_K([0]) and E_K([2]): the first CMAC blocks of OMAC^0 (nonce) and OMAC^2 (ciphertext).
+  private final byte[] omac0Prefix = new byte[16];
+  private final byte[] omac2Prefix = new byte[16];
+  // OMAC^1 of the empty header.
+  private final byte[] headerTag = new byte[16];
+
+  private final byte[] nonceTag = new byte[16];
+  private final byte[] block = new byte[16];
+  private final byte[] output = new byte[16];
+
+  /**
+   * A decrypted TLM record. Fields use the units of the unencrypted TLM frame.
+   */
+  public static final class Telemetry {
+    /** Battery voltage in mV, or 0 if not supported. */
+    public int batteryVoltage;
+    /** Beacon temperature in degrees Celsius, or -128 if not supported. */
+    public float temperature;
+    /** Number of advertising PDUs since power-up or reboot. */
+    public long advertisingCount;
+    /** Time since power-up or reboot, in 0.1 second resolution. */
+    public long timeSinceBoot;
+  }
+
+  /**
+   * @param identityKey 16-byte identity key of the beacon
+   * @param rotationPeriodExponent the beacon's rotation period exponent
+   * @throws IllegalStateException if AES is not available
+   */
+  public EtlmDecoder(byte[] identityKey, int rotationPeriodExponent) {
+    if (identityKey == null || identityKey.length != 16) {
+      throw new IllegalArgumentException("Identity key must be 16 bytes long");
+    }
+    if (rotationPeriodExponent < EddystoneEidrGenerator.MIN_ROTATION_PERIOD_EXPONENT
+        || rotationPeriodExponent > EddystoneEidrGenerator.MAX_ROTATION_PERIOD_EXPONENT) {
+      throw new IllegalArgumentException("Invalid rotation period exponent");
+    }
+    this.rotationPeriodExponent = rotationPeriodExponent;
+    try {
+      cipher = Cipher.getInstance("AES/ECB/NoPadding");
+      cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(identityKey, "AES"));
+    } catch (GeneralSecurityException e) {
+      Log.e(TAG, "Error initializing cipher instance", e);
+      throw new IllegalStateException(e);
+    }
+
+    byte[] k1 = new byte[16];
+    encrypt(block, omac0Prefix);          // L = E_K(0^128) = E_K([0])
+    doubleInGf128(omac0Prefix, k1);
+    doubleInGf128(k1, k2);
+
+    block[15] = 2;
+    encrypt(block, omac2Prefix);
+
+    // OMAC^1 of the empty header is the CMAC of the single, complete block [1].
+    block[15] = 1;
+    xor(block, k1, block);
+    encrypt(block, headerTag);
+  }
+
+  /**
+   * Decrypts the eTLM frame at {@code offset} and verifies its message integrity check.
+   *
+   * @param frame the frame, starting with the frame type byte
+   * @param offset the offset of the frame type byte
+   * @param timestampSeconds the beacon time in seconds when the frame was broadcast
+   * @param telemetry receives the decrypted record
+   * @return true if the frame is a valid eTLM frame of this beacon, false otherwise
+   */
+  public boolean decode(byte[] frame, int offset, int timestampSeconds, Telemetry telemetry) {
+    if (frame == null || frame.length - offset < FRAME_LENGTH
+        || (frame[offset] & 0xff) != FRAME_TYPE_TLM
+        || (frame[offset + 1] & 0xff) != VERSION_ETLM) {
+      return false;
+    }
+    int ciphertext = offset + 2;
+    int salt = ciphertext + TLM_LENGTH;
+    int mic = salt + 2;
+
+    // N' = OMAC^0(nonce), with the 6-byte nonce padded into the second CMAC block.
+    int scaledTime = (timestampSeconds >>> rotationPeriodExponent) << rotationPeriodExponent;
+    block[0] = (byte) (scaledTime >>> 24);
+    block[1] = (byte) (scaledTime >>> 16);
+    block[2] = (byte) (scaledTime >>> 8);
+    block[3] = (byte) scaledTime;
+    block[4] = frame[salt];
+    block[5] = frame[salt + 1];
+    pad(block, 6);
+    cmacLastBlock(omac0Prefix, nonceTag);
+
+    // C' = OMAC^2(ciphertext).
+    System.arraycopy(frame, ciphertext, block, 0, TLM_LENGTH);
+    pad(block, TLM_LENGTH);
+    cmacLastBlock(omac2Prefix, output);
+
+    // Tag = N' ^ H' ^ C'. Only its first two bytes are transmitted.
+    int tag0 = (nonceTag[0] ^ headerTag[0] ^ output[0]) & 0xff;
+    int tag1 = (nonceTag[1] ^ headerTag[1] ^ output[1]) & 0xff;
+    if ((((tag0 ^ frame[mic]) | (tag1 ^ frame[mic + 1])) & 0xff) != 0) {
+      return false;
+    }
+
+    // CTR mode starting at N'. Twelve bytes only need the first counter block.
+    encrypt(nonceTag, output);
+    for (int i = 0; i < TLM_LENGTH; i++) {
+      block[i] = (byte) (frame[ciphertext + i] ^ output[i]);
+    }
+
+    telemetry.batteryVoltage = ((block[0] & 0xff) << 8) | (block[1] & 0xff);
+    telemetry.temperature = (short) (((block[2] & 0xff) << 8) | (block[3] & 0xff)) / 256.0f;
+    telemetry.advertisingCount = readUint32(block, 4);
+    telemetry.timeSinceBoot = readUint32(block, 8);
+    return true;
+  }
+
+  /**
+   * Allocating variant of {@link #decode(byte[], int, int, Telemetry)}.
+   *
+   * @return the decrypted record, or null if the frame is not a valid eTLM frame of this beacon
+   */
+  public Telemetry decode(byte[] frame, int timestampSeconds) {
+    Telemetry telemetry = new Telemetry();
+    return decode(frame, 0, timestampSeconds, telemetry) ? telemetry : null;
+  }
+
+  /**
+   * Finishes a two-block CMAC whose first block encrypts to {@code prefix}. The padded last block
+   * must be in {@link #block}.
+   */
+  private void cmacLastBlock(byte[] prefix, byte[] out) {
+    xor(block, prefix, block);
+    xor(block, k2, block);
+    encrypt(block, out);
+  }
+
+  private void encrypt(byte[] in, byte[] out) {
+    try {
+      cipher.doFinal(in, 0, 16, out, 0);
+    } catch (GeneralSecurityException e) {
+      // Cannot happen with a 16-byte block on an initialized cipher.
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Applies the CMAC padding 10* to the incomplete block of {@code length} bytes.
+   */
+  private static void pad(byte[] block, int length) {
+    block[length] = (byte) 0x80;
+    for (int i = length + 1; i < 16; i++) {
+      block[i] = 0;
+    }
+  }
+
+  private static void xor(byte[] a, byte[] b, byte[] out) {
+    for (int i = 0; i < 16; i++) {
+      out[i] = (byte) (a[i] ^ b[i]);
+    }
+  }
+
+  /**
+   * Multiplies a block by x in GF(2^128), as used for the CMAC subkeys.
+   */
+  private static void doubleInGf128(byte[] in, byte[] out) {
+    int carry = 0;
+    for (int i = 15; i >= 0; i--) {
+      int b = in[i] & 0xff;
+      out[i] = (byte) ((b << 1) | carry);
+      carry = b >>> 7;
+    }
+    if (carry != 0) {
+      out[15] ^= (byte) 0x87;
+    }
+  }
+
+  private static long readUint32(byte[] data, int offset) {
+    return ((data[offset] & 0xffL) << 24)
+        | ((data[offset + 1] & 0xffL) << 16)
+        | ((data[offset + 2] & 0xffL) << 8)
+        | (data[offset + 3] & 0xffL);
+  }
+}
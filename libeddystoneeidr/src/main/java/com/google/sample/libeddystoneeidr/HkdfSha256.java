@@ -0,0 +1,164 @@
+// Copyright 2015 Google Inc. All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//    http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sample.libeddystoneeidr;
+
+import android.util.Log;
+
+import java.security.GeneralSecurityException;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * HKDF-SHA256 (RFC 5869) extract and expand steps writing into caller-supplied buffers.
+ *
+ * <p>Every thread keeps its own HmacSHA256 instance and scratch buffers, so a derivation does not
+ * look up a provider or allocate anything apart from the key specs that {@link Mac#init} needs.
+ * All methods may be called concurrently.
+ */
+public final class HkdfSha256 {
+  private static final String TAG = HkdfSha256.class.getSimpleName();
+
+  /** Length of the pseudorandom key produced by the extract step. */
+  public static final int HASH_LENGTH = 32;
+  /** Largest output of a single expand step. */
+  public static final int MAX_OUTPUT_LENGTH = 255 * HASH_LENGTH;
+
+  private static final String ALGORITHM = "HmacSHA256";
+  // Largest salt that fits in the per-thread salt buffer; longer salts are copied.
+  private static final int SALT_BUFFER_LENGTH = 64;
+
+  private static final ThreadLocal<Context> CONTEXT = new ThreadLocal<Context>() {
+    @Override
+    protected Context initialValue() {
+      return new Context();
+    }
+  };
+
+  private HkdfSha256() {
+  }
+
+  /**
+   * Computes PRK = HMAC-SHA256(salt, ikm).
+   *
+   * @param prk the output buffer, with room for {@link #HASH_LENGTH} bytes after
+   *            {@code prkOffset}
+   * @param saltLength the salt length; an empty salt stands for {@link #HASH_LENGTH} zero bytes
+   * @return false if HmacSHA256 is not available
+   */
+  public static boolean extract(byte[] salt, int saltOffset, int saltLength, byte[] ikm,
+      int ikmOffset, int ikmLength, byte[] prk, int prkOffset) {
+    Context context = CONTEXT.get();
+    Mac mac = context.mac();
+    if (mac == null) {
+      return false;
+    }
+    if (saltLength == 0) {
+      salt = context.zeroSalt;
+      saltOffset = 0;
+      saltLength = HASH_LENGTH;
+    }
+    try {
+      mac.init(new SecretKeySpec(salt, saltOffset, saltLength, ALGORITHM));
+      mac.update(ikm, ikmOffset, ikmLength);
+      mac.doFinal(prk, prkOffset);
+      return true;
+    } catch (GeneralSecurityException e) {
+      Log.e(TAG, "Error computing HKDF extract", e);
+      return false;
+    }
+  }
+
+  /**
+   * Computes the first {@code length} bytes of OKM = T(1) | T(2) | ..., where
+   * T(i) = HMAC-SHA256(prk, T(i - 1) | info | i).
+   *
+   * @param prk the {@link #HASH_LENGTH}-byte pseudorandom key from {@link #extract}
+   * @param length the number of bytes to write to {@code out}, at most {@link #MAX_OUTPUT_LENGTH}
+   * @return false if HmacSHA256 is not available
+   */
+  public static boolean expand(byte[] prk, int prkOffset, byte[] info, int infoOffset,
+      int infoLength, byte[] out, int outOffset, int length) {
+    if (length < 0 || length > MAX_OUTPUT_LENGTH) {
+      throw new IllegalArgumentException("Invalid output length");
+    }
+    Context context = CONTEXT.get();
+    Mac mac = context.mac();
+    if (mac == null) {
+      return false;
+    }
+    byte[] block = context.block;
+    try {
+      mac.init(new SecretKeySpec(prk, prkOffset, HASH_LENGTH, ALGORITHM));
+      for (int i = 1, written = 0; written < length; i++) {
+        if (i > 1) {
+          mac.update(block, 0, HASH_LENGTH);
+        }
+        mac.update(info, infoOffset, infoLength);
+        mac.update((byte) i);
+        mac.doFinal(block, 0);
+        int chunk = Math.min(HASH_LENGTH, length - written);
+        System.arraycopy(block, 0, out, outOffset + written, chunk);
+        written += chunk;
+      }
+      return true;
+    } catch (GeneralSecurityException e) {
+      Log.e(TAG, "Error computing HKDF expand", e);
+      return false;
+    }
+  }
+
+  /**
+   * Derives the 16-byte Eddystone identity key: HKDF-SHA256 of the ECDH shared secret, salted
+   * with the service public key followed by the beacon public key, with empty info.
+   *
+   * @param out the output buffer, with room for 16 bytes after {@code offset}
+   * @return false if the key could not be derived
+   */
+  public static boolean deriveIdentityKey(byte[] serviceEcdhPublicKey, byte[] beaconPublicKey,
+      byte[] sharedSecret, byte[] out, int offset) {
+    Context context = CONTEXT.get();
+    int saltLength = serviceEcdhPublicKey.length + beaconPublicKey.length;
+    byte[] salt = saltLength <= SALT_BUFFER_LENGTH ? context.salt : new byte[saltLength];
+    System.arraycopy(serviceEcdhPublicKey, 0, salt, 0, serviceEcdhPublicKey.length);
+    System.arraycopy(beaconPublicKey, 0, salt, serviceEcdhPublicKey.length,
+        beaconPublicKey.length);
+    byte[] prk = context.prk;
+    return extract(salt, 0, saltLength, sharedSecret, 0, sharedSecret.length, prk, 0)
+        && expand(prk, 0, prk, 0, 0, out, offset, 16);
+  }
+
+  /**
+   * Per-thread state. Only ever used by the thread that created it.
+   */
+  private static final class Context {
+    final byte[] salt = new byte[SALT_BUFFER_LENGTH];
+    final byte[] zeroSalt = new byte[HASH_LENGTH];
+    final byte[] prk = new byte[HASH_LENGTH];
+    final byte[] block = new byte[HASH_LENGTH];
+    private Mac mac;
+
+    Mac mac() {
+      if (mac == null) {
+        try {
+          mac = Mac.getInstance(ALGORITHM);
+        } catch (GeneralSecurityException e) {
+          Log.e(TAG, "Error constructing SHA256 HMAC instance", e);
+        }
+      }
+      return mac;
+    }
+  }
+}